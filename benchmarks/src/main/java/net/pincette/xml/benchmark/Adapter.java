@@ -0,0 +1,351 @@
+package net.pincette.xml.benchmark;
+
+import static java.io.File.createTempFile;
+import static java.io.OutputStream.nullOutputStream;
+import static java.io.Writer.nullWriter;
+import static java.util.stream.Stream.generate;
+import static net.pincette.util.Util.tryToGetRethrow;
+import static net.pincette.xml.benchmark.Copy.copy;
+import static net.pincette.xml.benchmark.Documents.NAMESPACES;
+import static net.pincette.xml.benchmark.Documents.inputSource;
+import static net.pincette.xml.benchmark.Documents.newEventReader;
+import static net.pincette.xml.benchmark.Documents.newParser;
+import static net.pincette.xml.benchmark.Documents.newStreamReader;
+import static net.pincette.xml.benchmark.Drain.drain;
+
+import java.io.File;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import net.pincette.xml.benchmark.Documents.Size;
+import net.pincette.xml.sax.Accumulator;
+import net.pincette.xml.sax.AsyncTee;
+import net.pincette.xml.sax.AsyncTee.Backpressure;
+import net.pincette.xml.sax.BalanceChecker;
+import net.pincette.xml.sax.CompiledSimpleXPath;
+import net.pincette.xml.sax.DiscardElementsFilter;
+import net.pincette.xml.sax.DuplicateNamespaceFilter;
+import net.pincette.xml.sax.FilterOfFilters;
+import net.pincette.xml.sax.GobbleDocumentEvents;
+import net.pincette.xml.sax.Pipe;
+import net.pincette.xml.sax.ProtectEventHandlerFilter;
+import net.pincette.xml.sax.RouterFilter;
+import net.pincette.xml.sax.SimpleXPathFilter;
+import net.pincette.xml.sax.Tee;
+import net.pincette.xml.sax.Tracer;
+import net.pincette.xml.sax.TransformerHandlerFilter;
+import net.pincette.xml.stream.BeautifierEventWriter;
+import net.pincette.xml.stream.ContentHandlerEventWriter;
+import net.pincette.xml.stream.ContentHandlerStreamWriter;
+import net.pincette.xml.stream.DOMEventReader;
+import net.pincette.xml.stream.DOMEventWriter;
+import net.pincette.xml.stream.DevNullStreamWriter;
+import net.pincette.xml.stream.EscapePIEventWriter;
+import net.pincette.xml.stream.EventReaderXMLReader;
+import net.pincette.xml.stream.EventStreamReader;
+import net.pincette.xml.stream.EventStreamWriter;
+import net.pincette.xml.stream.EventWriterContentHandler;
+import net.pincette.xml.stream.NamespaceTrackerEventReader;
+import net.pincette.xml.stream.RemoveBaseURIEventReader;
+import net.pincette.xml.stream.ReplaceParametersEventReader;
+import net.pincette.xml.stream.SetBaseURIEventReader;
+import net.pincette.xml.stream.SetNamespaceEventReaderDelegate;
+import net.pincette.xml.stream.StreamEventReader;
+import net.pincette.xml.stream.StreamEventWriter;
+import net.pincette.xml.stream.TransformerHandlerEventReaderDelegate;
+import net.pincette.xml.stream.XMLFilterEventReaderDelegate;
+import net.pincette.xml.stream.XMLReaderEventReader;
+import net.pincette.xml.stream.XMLTextExtractorEventWriter;
+import org.w3c.dom.Document;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLFilter;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * The readers, writers, adapters and filters of which the allocation is measured. An operation runs
+ * one document through it and returns the number of events that went in. Everything that comes out
+ * is handed to a sink, so the events can't be optimised away.
+ *
+ * <p>The tubes of {@link AsyncTee} and the content handler of {@link Pipe} run on other threads.
+ * They don't get the sink, because it belongs to the benchmark thread.
+ *
+ * @author Werner Donné
+ */
+public enum Adapter {
+  SAX_BASELINE((size, sink) -> () -> parse(newParser(), size)),
+  STAX_BASELINE((size, sink) -> () -> drain(newEventReader(size), sink)),
+  ACCUMULATOR(
+      (size, sink) -> filter(size, sink, () -> new Accumulator(a -> sink.accept(a.getDocument())))),
+  ASYNC_TEE(
+      (size, sink) ->
+          filter(
+              size,
+              sink,
+              () -> new AsyncTee(new ContentHandler[] {new DefaultHandler()}, Backpressure.BLOCK))),
+  BALANCE_CHECKER(Adapter::balanceChecker),
+  BEAUTIFIER_EVENT_WRITER(
+      (size, sink) -> write(size, () -> new BeautifierEventWriter(new CountingEventWriter(sink)))),
+  CONTENT_HANDLER_EVENT_WRITER(
+      (size, sink) -> write(size, () -> new ContentHandlerEventWriter(new SinkHandler(sink)))),
+  CONTENT_HANDLER_STREAM_WRITER(
+      (size, sink) ->
+          () -> copy(newStreamReader(size), new ContentHandlerStreamWriter(new SinkHandler(sink)))),
+  DISCARD_ELEMENTS_FILTER(
+      (size, sink) ->
+          filter(
+              size,
+              sink,
+              () ->
+                  new DiscardElementsFilter(
+                      new QName[] {new QName("urn:benchmark", "description")}))),
+  DOM_EVENT_READER(Adapter::domEventReader),
+  DOM_EVENT_WRITER(
+      (size, sink) ->
+          () -> {
+            final CountingEventReader reader = new CountingEventReader(newEventReader(size));
+            final DOMEventWriter writer = new DOMEventWriter();
+
+            writer.add(reader);
+            sink.accept(writer.getDocument());
+
+            return reader.getCount();
+          }),
+  DUPLICATE_NAMESPACE_FILTER((size, sink) -> filter(size, sink, DuplicateNamespaceFilter::new)),
+  ESCAPE_PI_EVENT_WRITER((size, sink) -> write(size, () -> new EscapePIEventWriter(nullWriter()))),
+  EVENT_READER_XML_READER(
+      (size, sink) ->
+          () -> {
+            final CountingHandler handler = new CountingHandler();
+            final EventReaderXMLReader reader = new EventReaderXMLReader(newEventReader(size));
+
+            reader.setContentHandler(handler);
+            reader.parse(new InputSource());
+
+            return handler.getCount();
+          }),
+  EVENT_STREAM_READER(
+      (size, sink) -> () -> drain(new EventStreamReader(newEventReader(size)), sink)),
+  EVENT_STREAM_WRITER(
+      (size, sink) ->
+          () -> copy(newStreamReader(size), new EventStreamWriter(new CountingEventWriter(sink)))),
+  EVENT_STREAM_WRITER_REUSED(
+      (size, sink) ->
+          () ->
+              copy(
+                  newStreamReader(size),
+                  new EventStreamWriter(new CountingEventWriter(sink), true))),
+  EVENT_WRITER_CONTENT_HANDLER((size, sink) -> eventWriterContentHandler(size, sink, false)),
+  EVENT_WRITER_CONTENT_HANDLER_REUSED((size, sink) -> eventWriterContentHandler(size, sink, true)),
+  FILTER_OF_FILTERS(
+      (size, sink) ->
+          filter(
+              size,
+              sink,
+              () ->
+                  new FilterOfFilters(
+                      generate(PassThroughFilter::new).limit(5).toArray(XMLFilter[]::new)))),
+  GOBBLE_DOCUMENT_EVENTS((size, sink) -> filter(size, sink, GobbleDocumentEvents::new)),
+  NAMESPACE_TRACKER_EVENT_READER(
+      (size, sink) -> () -> drain(new NamespaceTrackerEventReader(newEventReader(size)), sink)),
+  PIPE((size, sink) -> filter(size, Pipe::new, DefaultHandler::new)),
+  PROTECT_EVENT_HANDLER_FILTER(
+      (size, sink) -> filter(size, sink, () -> new ProtectEventHandlerFilter(true, true))),
+  REMOVE_BASE_URI_EVENT_READER(
+      (size, sink) ->
+          () ->
+              drain(
+                  new RemoveBaseURIEventReader(
+                      "urn:benchmark:base",
+                      new SetBaseURIEventReader("urn:benchmark:base", newEventReader(size))),
+                  sink)),
+  REPLACE_PARAMETERS_EVENT_READER(
+      (size, sink) ->
+          () ->
+              drain(
+                  new ReplaceParametersEventReader(Map.of("name", "value"), newEventReader(size)),
+                  sink)),
+  ROUTER_FILTER(
+      (size, sink) ->
+          filter(
+              size,
+              sink,
+              () ->
+                  new RouterFilter()
+                      .route(
+                          CompiledSimpleXPath.compile("/records/record/x:value", NAMESPACES),
+                          new SinkHandler(sink)))),
+  SET_BASE_URI_EVENT_READER(
+      (size, sink) ->
+          () -> drain(new SetBaseURIEventReader("urn:benchmark:base", newEventReader(size)), sink)),
+  SET_NAMESPACE_EVENT_READER_DELEGATE(
+      (size, sink) ->
+          () ->
+              drain(
+                  new SetNamespaceEventReaderDelegate("urn:benchmark:other", newEventReader(size)),
+                  sink)),
+  SIMPLE_X_PATH_FILTER(
+      (size, sink) ->
+          filter(size, sink, () -> new SimpleXPathFilter("/records/record/x:value", NAMESPACES))),
+  STREAM_EVENT_READER(
+      (size, sink) -> () -> drain(new StreamEventReader(newStreamReader(size)), sink)),
+  STREAM_EVENT_READER_REUSED(
+      (size, sink) -> () -> drain(new StreamEventReader(newStreamReader(size), true), sink)),
+  STREAM_EVENT_WRITER(
+      (size, sink) -> write(size, () -> new StreamEventWriter(new DevNullStreamWriter()))),
+  TEE(
+      (size, sink) ->
+          filter(size, sink, () -> new Tee(new ContentHandler[] {new SinkHandler(sink)}))),
+  TRACER((size, sink) -> filter(size, sink, () -> new Tracer(nullOutputStream()))),
+  TRANSFORMER_HANDLER_EVENT_READER_DELEGATE(
+      (size, sink) ->
+          () ->
+              drain(
+                  new TransformerHandlerEventReaderDelegate(
+                      identityHandler(), newEventReader(size)),
+                  sink)),
+  TRANSFORMER_HANDLER_FILTER(
+      (size, sink) -> filter(size, sink, () -> new TransformerHandlerFilter(identityHandler()))),
+  XML_FILTER_EVENT_READER_DELEGATE(
+      (size, sink) ->
+          () ->
+              drain(
+                  new XMLFilterEventReaderDelegate(new PassThroughFilter(), newEventReader(size)),
+                  sink)),
+  XML_READER_EVENT_READER(
+      (size, sink) -> () -> drain(new XMLReaderEventReader(newParser(), inputSource(size)), sink)),
+  XML_TEXT_EXTRACTOR_EVENT_WRITER(
+      (size, sink) -> write(size, () -> new XMLTextExtractorEventWriter(nullWriter())));
+
+  private final Preparer preparer;
+
+  Adapter(final Preparer preparer) {
+    this.preparer = preparer;
+  }
+
+  private static Operation balanceChecker(final Size size, final Consumer<Object> sink)
+      throws Exception {
+    final File file = createTempFile("balance", ".txt");
+
+    file.deleteOnExit();
+
+    return filter(size, sink, () -> new BalanceChecker(file));
+  }
+
+  private static Operation domEventReader(final Size size, final Consumer<Object> sink)
+      throws Exception {
+    final DOMEventWriter writer = new DOMEventWriter();
+    final Document document;
+
+    writer.add(newEventReader(size));
+    document = writer.getDocument();
+
+    return () -> drain(new DOMEventReader(document), sink);
+  }
+
+  private static Operation eventWriterContentHandler(
+      final Size size, final Consumer<Object> sink, final boolean reuseEvents) {
+    return () -> {
+      final CountingEventWriter writer = new CountingEventWriter(sink);
+      final XMLReader parser = newParser();
+
+      parser.setContentHandler(new EventWriterContentHandler(writer, reuseEvents));
+      parser.parse(inputSource(size));
+
+      return writer.getCount();
+    };
+  }
+
+  private static Operation filter(
+      final Size size, final Consumer<Object> sink, final Supplier<XMLFilter> filter)
+      throws Exception {
+    return filter(size, filter, () -> new SinkHandler(sink));
+  }
+
+  /** The events are counted once on the unfiltered document, because some filters remove events. */
+  private static Operation filter(
+      final Size size, final Supplier<XMLFilter> filter, final Supplier<ContentHandler> handler)
+      throws Exception {
+    final long events = parse(newParser(), size);
+
+    return () -> {
+      final XMLFilter f = filter.get();
+
+      f.setParent(newParser());
+      f.setContentHandler(handler.get());
+      f.parse(inputSource(size));
+
+      return events;
+    };
+  }
+
+  private static TransformerHandler identityHandler() {
+    return tryToGetRethrow(
+            () ->
+                ((SAXTransformerFactory) TransformerFactory.newInstance()).newTransformerHandler())
+        .orElse(null);
+  }
+
+  private static long parse(final XMLReader reader, final Size size) throws Exception {
+    final CountingHandler handler = new CountingHandler();
+
+    reader.setContentHandler(handler);
+    reader.parse(inputSource(size));
+
+    return handler.getCount();
+  }
+
+  public Operation prepare(final Size size, final Consumer<Object> sink) throws Exception {
+    return preparer.prepare(size, sink);
+  }
+
+  private static Operation write(final Size size, final Supplier<XMLEventWriter> writer) {
+    return () -> {
+      final CountingEventReader reader = new CountingEventReader(newEventReader(size));
+
+      writer.get().add(reader);
+
+      return reader.getCount();
+    };
+  }
+
+  @FunctionalInterface
+  public interface Operation {
+    long run() throws Exception;
+  }
+
+  @FunctionalInterface
+  private interface Preparer {
+    Operation prepare(Size size, Consumer<Object> sink) throws Exception;
+  }
+
+  /** Hands the attributes and character arrays to the sink, because some adapters create those. */
+  private static class SinkHandler extends DefaultHandler {
+    private final Consumer<Object> sink;
+
+    private SinkHandler(final Consumer<Object> sink) {
+      this.sink = sink;
+    }
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+      sink.accept(ch);
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts) {
+      sink.accept(atts);
+    }
+  }
+}
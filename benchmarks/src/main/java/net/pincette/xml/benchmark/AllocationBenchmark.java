@@ -0,0 +1,53 @@
+package net.pincette.xml.benchmark;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import net.pincette.xml.benchmark.Adapter.Operation;
+import net.pincette.xml.benchmark.Documents.Size;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Runs documents through every adapter. It is meant to be run with <code>-prof gc</code>. The
+ * <code>gc.alloc.rate.norm</code> metric is then the number of bytes per document. Divide it by
+ * the <code>events</code> counter per document to get the bytes per event. The {@link
+ * AllocationBudget} checks this against budgets.
+ *
+ * @author Werner Donné
+ */
+@BenchmarkMode(Mode.Throughput)
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class AllocationBenchmark {
+  @Param
+  public Adapter adapter;
+
+  @Param({"SMALL", "MEDIUM"})
+  public Size size;
+
+  private Operation operation;
+
+  @Benchmark
+  public void run(final EventCounter counter) throws Exception {
+    counter.events += operation.run();
+  }
+
+  @Setup(Level.Trial)
+  public void setup(final Blackhole blackhole) throws Exception {
+    operation = adapter.prepare(size, blackhole::consume);
+  }
+}
@@ -0,0 +1,102 @@
+package net.pincette.xml.benchmark;
+
+import static java.lang.management.ManagementFactory.getThreadMXBean;
+
+import com.sun.management.ThreadMXBean;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import net.pincette.xml.benchmark.Adapter.Operation;
+import net.pincette.xml.benchmark.Documents.Size;
+
+/**
+ * Measures the bytes that are allocated per event by every adapter and compares them with a
+ * budget. The budgets are in the resource <code>allocation-budgets.properties</code>, with the
+ * adapter names as keys. The first optional argument is the document size, which is
+ * <code>MEDIUM</code> by default. The second one is a properties file with other budgets. An
+ * exception is thrown when an adapter goes over its budget or fails, so a build that runs this
+ * fails.
+ *
+ * <p>Only the allocations of the calling thread are measured.
+ *
+ * @author Werner Donné
+ */
+public class AllocationBudget {
+  private static final String BUDGETS = "allocation-budgets.properties";
+  private static final int MEASUREMENTS = 3;
+  private static final int WARMUPS = 5;
+
+  @SuppressWarnings("squid:S1068") // Keeps what the adapters produce reachable.
+  private static volatile Object sink;
+
+  private AllocationBudget() {}
+
+  private static long allocated() {
+    return ((ThreadMXBean) getThreadMXBean()).getCurrentThreadAllocatedBytes();
+  }
+
+  private static Properties budgets(final String[] args) throws IOException {
+    final Properties properties = new Properties();
+
+    try (InputStream in =
+        args.length > 1
+            ? new FileInputStream(args[1])
+            : AllocationBudget.class.getClassLoader().getResourceAsStream(BUDGETS)) {
+      if (in != null) {
+        properties.load(in);
+      }
+    }
+
+    return properties;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    final Properties budgets = budgets(args);
+    final List<String> over = new ArrayList<>();
+    final Size size = args.length > 0 ? Size.valueOf(args[0]) : Size.MEDIUM;
+
+    System.out.printf("%-42s %12s %12s%n", "Adapter", "Bytes/event", "Budget");
+
+    for (Adapter adapter : Adapter.values()) {
+      final String budget = budgets.getProperty(adapter.name(), "-");
+
+      try {
+        final double perEvent = measure(adapter.prepare(size, o -> sink = o));
+
+        System.out.printf("%-42s %12.1f %12s%n", adapter.name(), perEvent, budget);
+
+        if (!budget.equals("-") && perEvent > Double.parseDouble(budget)) {
+          over.add(adapter.name());
+        }
+      } catch (Exception e) {
+        System.out.printf("%-42s %12s %12s %s%n", adapter.name(), "failed", budget, e);
+        over.add(adapter.name());
+      }
+    }
+
+    if (!over.isEmpty()) {
+      throw new IllegalStateException(
+          "Failed or over the allocation budget: " + String.join(", ", over));
+    }
+  }
+
+  private static double measure(final Operation operation) throws Exception {
+    double result = Double.MAX_VALUE;
+
+    for (int i = 0; i < WARMUPS; ++i) {
+      operation.run();
+    }
+
+    for (int i = 0; i < MEASUREMENTS; ++i) {
+      final long before = allocated();
+      final long events = operation.run();
+
+      result = Math.min(result, ((double) (allocated() - before)) / Math.max(1, events));
+    }
+
+    return result;
+  }
+}
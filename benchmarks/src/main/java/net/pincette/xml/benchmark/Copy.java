@@ -0,0 +1,88 @@
+package net.pincette.xml.benchmark;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.COMMENT;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.PROCESSING_INSTRUCTION;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Copies a stream reader to a stream writer without an intermediate event model.
+ *
+ * @author Werner Donné
+ */
+public class Copy {
+  private Copy() {}
+
+  public static long copy(final XMLStreamReader reader, final XMLStreamWriter writer)
+      throws XMLStreamException {
+    long count = 1;
+
+    writer.writeStartDocument();
+
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+        case START_ELEMENT:
+          writeStartElement(reader, writer);
+          break;
+        case END_ELEMENT:
+          writer.writeEndElement();
+          break;
+        case CHARACTERS, SPACE:
+          writer.writeCharacters(
+              reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+          break;
+        case CDATA:
+          writer.writeCData(reader.getText());
+          break;
+        case COMMENT:
+          writer.writeComment(reader.getText());
+          break;
+        case PROCESSING_INSTRUCTION:
+          writer.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+          break;
+        case END_DOCUMENT:
+          writer.writeEndDocument();
+          break;
+        default:
+          break;
+      }
+
+      ++count;
+    }
+
+    reader.close();
+    writer.close();
+
+    return count;
+  }
+
+  private static String orEmpty(final String s) {
+    return s != null ? s : "";
+  }
+
+  private static void writeStartElement(final XMLStreamReader reader, final XMLStreamWriter writer)
+      throws XMLStreamException {
+    writer.writeStartElement(
+        orEmpty(reader.getPrefix()), reader.getLocalName(), orEmpty(reader.getNamespaceURI()));
+
+    for (int i = 0; i < reader.getNamespaceCount(); ++i) {
+      writer.writeNamespace(orEmpty(reader.getNamespacePrefix(i)), reader.getNamespaceURI(i));
+    }
+
+    for (int i = 0; i < reader.getAttributeCount(); ++i) {
+      writer.writeAttribute(
+          orEmpty(reader.getAttributePrefix(i)),
+          orEmpty(reader.getAttributeNamespace(i)),
+          reader.getAttributeLocalName(i),
+          reader.getAttributeValue(i));
+    }
+  }
+}
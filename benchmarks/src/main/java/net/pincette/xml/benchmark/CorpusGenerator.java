@@ -0,0 +1,381 @@
+package net.pincette.xml.benchmark;
+
+import static java.nio.file.Files.newOutputStream;
+import static net.pincette.util.Util.tryToDoRethrow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import net.pincette.xml.stream.InternalEntityDeclaration;
+
+/**
+ * Generates synthetic documents with a chosen shape. The output is a pure function of the seed and
+ * the settings. Documents are written event by event, so the size of a document doesn't influence
+ * the memory usage. The root element has <code>count</code> units, the structure of which depends
+ * on the shape.
+ *
+ * @author Werner Donné
+ */
+public class CorpusGenerator {
+  public static final String NAMESPACE = "urn:corpus";
+  public static final String XINCLUDE = "http://www.w3.org/2001/XInclude";
+
+  private static final int CHUNK = 8192;
+  private static final String LETTERS = "abcdefghijklmnopqrstuvwxyz";
+
+  private final int attributes;
+  private final int depth;
+  private final int entities;
+  private final XMLEventFactory factory = XMLEventFactory.newFactory();
+  private final int includes;
+  private final int namespaces;
+  private final long seed;
+  private final int textLength;
+
+  public CorpusGenerator(final long seed) {
+    this(seed, 32, 64, 16, 8, 16, 1024 * 1024);
+  }
+
+  private CorpusGenerator(
+      final long seed,
+      final int attributes,
+      final int depth,
+      final int entities,
+      final int includes,
+      final int namespaces,
+      final int textLength) {
+    this.seed = seed;
+    this.attributes = attributes;
+    this.depth = depth;
+    this.entities = entities;
+    this.includes = includes;
+    this.namespaces = namespaces;
+    this.textLength = textLength;
+  }
+
+  private static String includeName(final int index) {
+    return "include-" + index + ".xml";
+  }
+
+  private static String name(final SplittableRandom random, final int length) {
+    final char[] result = new char[length];
+
+    for (int i = 0; i < length; ++i) {
+      result[i] = LETTERS.charAt(random.nextInt(LETTERS.length()));
+    }
+
+    return new String(result);
+  }
+
+  private static String text(final SplittableRandom random, final int length) {
+    final StringBuilder builder = new StringBuilder(length);
+
+    while (builder.length() < length) {
+      builder.append(name(random, 1 + random.nextInt(10)));
+
+      if (builder.length() < length) {
+        builder.append(' ');
+      }
+    }
+
+    builder.setLength(length);
+
+    return builder.toString();
+  }
+
+  /** Writes the document to <code>writer</code>, which is closed afterwards. */
+  public void generate(final Shape shape, final long count, final XMLEventWriter writer)
+      throws XMLStreamException {
+    final SplittableRandom random = new SplittableRandom(seed);
+    final QName root = new QName(NAMESPACE, "corpus");
+
+    writer.add(factory.createStartDocument("UTF-8", "1.0"));
+
+    if (shape == Shape.ENTITY_HEAVY) {
+      writeDTD(writer, random);
+    }
+
+    writer.add(factory.createStartElement(root, null, null));
+    writer.add(factory.createNamespace(NAMESPACE));
+
+    if (shape == Shape.NAMESPACE_HEAVY) {
+      for (int i = 0; i < namespaces; i += 2) {
+        writer.add(factory.createNamespace("p" + i, NAMESPACE + ":" + i));
+      }
+    }
+
+    if (shape == Shape.XINCLUDE_HEAVY) {
+      writer.add(factory.createNamespace("xi", XINCLUDE));
+    }
+
+    for (long i = 0; i < count; ++i) {
+      writeUnit(shape, i, writer, random);
+    }
+
+    writer.add(factory.createEndElement(root, null));
+    writer.add(factory.createEndDocument());
+    writer.flush();
+    writer.close();
+  }
+
+  public void generate(final Shape shape, final long count, final OutputStream out)
+      throws XMLStreamException {
+    generate(shape, count, XMLOutputFactory.newFactory().createXMLEventWriter(out, "UTF-8"));
+  }
+
+  public void generate(final Shape shape, final long count, final Path file)
+      throws IOException, XMLStreamException {
+    try (final OutputStream out = newOutputStream(file)) {
+      generate(shape, count, out);
+    }
+  }
+
+  /**
+   * Returns the document as a stream, which is produced by a separate thread through a pipe. This
+   * way even multi-gigabyte documents can be fed to a parser without storing them.
+   */
+  public InputStream open(final Shape shape, final long count) throws IOException {
+    final PipedInputStream in = new PipedInputStream(CHUNK * 8);
+    final PipedOutputStream out = new PipedOutputStream(in);
+    final Thread thread =
+        new Thread(
+            () ->
+                tryToDoRethrow(
+                    () -> {
+                      try (out) {
+                        generate(shape, count, out);
+                      }
+                    }));
+
+    thread.setDaemon(true);
+    thread.start();
+
+    return in;
+  }
+
+  public CorpusGenerator withAttributes(final int attributes) {
+    return new CorpusGenerator(
+        seed, attributes, depth, entities, includes, namespaces, textLength);
+  }
+
+  public CorpusGenerator withDepth(final int depth) {
+    return new CorpusGenerator(
+        seed, attributes, depth, entities, includes, namespaces, textLength);
+  }
+
+  public CorpusGenerator withEntities(final int entities) {
+    return new CorpusGenerator(
+        seed, attributes, depth, entities, includes, namespaces, textLength);
+  }
+
+  public CorpusGenerator withIncludes(final int includes) {
+    return new CorpusGenerator(
+        seed, attributes, depth, entities, includes, namespaces, textLength);
+  }
+
+  public CorpusGenerator withNamespaces(final int namespaces) {
+    return new CorpusGenerator(
+        seed, attributes, depth, entities, includes, namespaces, textLength);
+  }
+
+  public CorpusGenerator withTextLength(final int textLength) {
+    return new CorpusGenerator(
+        seed, attributes, depth, entities, includes, namespaces, textLength);
+  }
+
+  private void writeAttributeHeavy(final XMLEventWriter writer, final SplittableRandom random)
+      throws XMLStreamException {
+    final QName name = new QName(NAMESPACE, "item");
+
+    writer.add(factory.createStartElement(name, null, null));
+
+    for (int i = 0; i < attributes; ++i) {
+      writer.add(factory.createAttribute("a" + i, text(random, 1 + random.nextInt(24))));
+    }
+
+    writer.add(factory.createEndElement(name, null));
+  }
+
+  private void writeDeep(final XMLEventWriter writer, final SplittableRandom random)
+      throws XMLStreamException {
+    for (int i = 0; i < depth; ++i) {
+      writer.add(factory.createStartElement(new QName(NAMESPACE, "level" + i), null, null));
+    }
+
+    writer.add(factory.createCharacters(text(random, 16)));
+
+    for (int i = depth - 1; i >= 0; --i) {
+      writer.add(factory.createEndElement(new QName(NAMESPACE, "level" + i), null));
+    }
+  }
+
+  private void writeDTD(final XMLEventWriter writer, final SplittableRandom random)
+      throws XMLStreamException {
+    final StringBuilder builder = new StringBuilder("<!DOCTYPE corpus [");
+
+    for (int i = 0; i < entities; ++i) {
+      builder
+          .append("<!ENTITY e")
+          .append(i)
+          .append(" \"")
+          .append(text(random, 1 + random.nextInt(32)))
+          .append("\">");
+    }
+
+    writer.add(factory.createDTD(builder.append("]>").toString()));
+  }
+
+  private void writeEntityHeavy(final XMLEventWriter writer, final SplittableRandom random)
+      throws XMLStreamException {
+    final QName name = new QName(NAMESPACE, "text");
+
+    writer.add(factory.createStartElement(name, null, null));
+
+    for (int i = 0; i < 8; ++i) {
+      final String entity = "e" + random.nextInt(entities);
+
+      writer.add(factory.createCharacters(text(random, 8)));
+      writer.add(
+          factory.createEntityReference(entity, new InternalEntityDeclaration(entity, null)));
+    }
+
+    writer.add(factory.createEndElement(name, null));
+  }
+
+  private void writeHugeText(final XMLEventWriter writer, final SplittableRandom random)
+      throws XMLStreamException {
+    final QName name = new QName(NAMESPACE, "text");
+
+    writer.add(factory.createStartElement(name, null, null));
+
+    for (int written = 0; written < textLength; written += CHUNK) {
+      writer.add(factory.createCharacters(text(random, Math.min(CHUNK, textLength - written))));
+    }
+
+    writer.add(factory.createEndElement(name, null));
+  }
+
+  /**
+   * Writes the documents the XInclude-heavy shape refers to in <code>directory</code>. Without
+   * them the fallbacks are used.
+   */
+  public void writeIncludeTargets(final Path directory) throws IOException, XMLStreamException {
+    for (int i = 0; i < includes; ++i) {
+      new CorpusGenerator(seed + i).generate(Shape.WIDE, 16, directory.resolve(includeName(i)));
+    }
+  }
+
+  private void writeNamespaceHeavy(
+      final XMLEventWriter writer, final long index, final SplittableRandom random)
+      throws XMLStreamException {
+    final QName outer = new QName(NAMESPACE, "scope");
+
+    writer.add(factory.createStartElement(outer, null, null));
+
+    for (int i = 0; i < namespaces; ++i) {
+      // The even prefixes repeat the bindings of the root element.
+
+      writer.add(
+          factory.createNamespace(
+              "p" + i, NAMESPACE + ":" + (i % 2 == 0 ? i : (index + "-" + i))));
+    }
+
+    for (int i = 0; i < namespaces; ++i) {
+      final int prefix = random.nextInt(namespaces);
+      final QName inner =
+          new QName(
+              NAMESPACE + ":" + (prefix % 2 == 0 ? prefix : (index + "-" + prefix)),
+              "element",
+              "p" + prefix);
+
+      writer.add(factory.createStartElement(inner, null, null));
+      writer.add(factory.createNamespace("p" + prefix, inner.getNamespaceURI()));
+      writer.add(
+          factory.createAttribute(
+              "p" + prefix, inner.getNamespaceURI(), "attribute", name(random, 8)));
+      writer.add(factory.createEndElement(inner, null));
+    }
+
+    writer.add(factory.createEndElement(outer, null));
+  }
+
+  private void writeUnit(
+      final Shape shape,
+      final long index,
+      final XMLEventWriter writer,
+      final SplittableRandom random)
+      throws XMLStreamException {
+    switch (shape) {
+      case ATTRIBUTE_HEAVY -> writeAttributeHeavy(writer, random);
+      case DEEP -> writeDeep(writer, random);
+      case ENTITY_HEAVY -> writeEntityHeavy(writer, random);
+      case HUGE_TEXT -> writeHugeText(writer, random);
+      case NAMESPACE_HEAVY -> writeNamespaceHeavy(writer, index, random);
+      case WIDE -> writeWide(writer, random);
+      case XINCLUDE_HEAVY -> writeXInclude(writer, index, random);
+    }
+  }
+
+  private void writeWide(final XMLEventWriter writer, final SplittableRandom random)
+      throws XMLStreamException {
+    final QName name = new QName(NAMESPACE, "sibling");
+
+    writer.add(factory.createStartElement(name, null, null));
+    writer.add(factory.createCharacters(name(random, 4)));
+    writer.add(factory.createEndElement(name, null));
+  }
+
+  private void writeXInclude(
+      final XMLEventWriter writer, final long index, final SplittableRandom random)
+      throws XMLStreamException {
+    final QName fallback = new QName(XINCLUDE, "fallback", "xi");
+    final QName include = new QName(XINCLUDE, "include", "xi");
+    final QName name = new QName(NAMESPACE, "fallback-content");
+
+    writer.add(factory.createStartElement(include, null, null));
+    writer.add(factory.createAttribute("href", includeName((int) (index % includes))));
+
+    if (random.nextInt(4) == 0) {
+      writer.add(factory.createAttribute("parse", "text"));
+    }
+
+    writer.add(factory.createStartElement(fallback, null, null));
+    writer.add(factory.createStartElement(name, null, null));
+    writer.add(factory.createCharacters(text(random, 32)));
+    writer.add(factory.createEndElement(name, null));
+    writer.add(factory.createEndElement(fallback, null));
+    writer.add(factory.createEndElement(include, null));
+  }
+
+  public enum Shape {
+    /** Each unit is a chain of nested elements. */
+    DEEP,
+
+    /** Each unit is a small element, so the root gets very many children. */
+    WIDE,
+
+    /** Each unit is an empty element with many attributes. */
+    ATTRIBUTE_HEAVY,
+
+    /** Each unit declares many namespaces, half of which are already in scope. */
+    NAMESPACE_HEAVY,
+
+    /** Each unit is an element with one very large text node. */
+    HUGE_TEXT,
+
+    /** The DTD declares internal entities and each unit is text with entity references. */
+    ENTITY_HEAVY,
+
+    /** Each unit is an XInclude element with a fallback. */
+    XINCLUDE_HEAVY
+  }
+}
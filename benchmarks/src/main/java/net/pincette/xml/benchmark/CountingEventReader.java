@@ -0,0 +1,30 @@
+package net.pincette.xml.benchmark;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.util.EventReaderDelegate;
+
+/**
+ * Counts the events that are pulled through it.
+ *
+ * @author Werner Donné
+ */
+public class CountingEventReader extends EventReaderDelegate {
+  private long count;
+
+  public CountingEventReader(final XMLEventReader reader) {
+    super(reader);
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public XMLEvent nextEvent() throws XMLStreamException {
+    ++count;
+
+    return super.nextEvent();
+  }
+}
@@ -0,0 +1,39 @@
+package net.pincette.xml.benchmark;
+
+import java.util.function.Consumer;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import net.pincette.xml.stream.DevNullEventWriter;
+import net.pincette.xml.stream.EventWriterDelegate;
+
+/**
+ * Counts the events that are written to it and hands them to a sink, so they escape.
+ *
+ * @author Werner Donné
+ */
+public class CountingEventWriter extends EventWriterDelegate {
+  private final Consumer<Object> sink;
+  private long count;
+
+  public CountingEventWriter(final Consumer<Object> sink) {
+    this(sink, new DevNullEventWriter());
+  }
+
+  public CountingEventWriter(
+      final Consumer<Object> sink, final XMLEventWriter writer) {
+    super(writer);
+    this.sink = sink;
+  }
+
+  @Override
+  public void add(final XMLEvent event) throws XMLStreamException {
+    ++count;
+    sink.accept(event);
+    super.add(event);
+  }
+
+  public long getCount() {
+    return count;
+  }
+}
@@ -0,0 +1,66 @@
+package net.pincette.xml.benchmark;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Counts the SAX events it receives.
+ *
+ * @author Werner Donné
+ */
+public class CountingHandler extends DefaultHandler {
+  private long count;
+
+  @Override
+  public void characters(final char[] ch, final int start, final int length) {
+    ++count;
+  }
+
+  @Override
+  public void endDocument() {
+    ++count;
+  }
+
+  @Override
+  public void endElement(final String namespaceURI, final String localName, final String qName) {
+    ++count;
+  }
+
+  @Override
+  public void endPrefixMapping(final String prefix) {
+    ++count;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  @Override
+  public void ignorableWhitespace(final char[] ch, final int start, final int length) {
+    ++count;
+  }
+
+  @Override
+  public void processingInstruction(final String target, final String data) {
+    ++count;
+  }
+
+  @Override
+  public void startDocument() {
+    ++count;
+  }
+
+  @Override
+  public void startElement(
+      final String namespaceURI,
+      final String localName,
+      final String qName,
+      final Attributes atts) {
+    ++count;
+  }
+
+  @Override
+  public void startPrefixMapping(final String prefix, final String uri) {
+    ++count;
+  }
+}
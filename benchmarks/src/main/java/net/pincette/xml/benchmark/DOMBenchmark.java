@@ -0,0 +1,68 @@
+package net.pincette.xml.benchmark;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static net.pincette.xml.benchmark.Documents.newEventReader;
+import static net.pincette.xml.benchmark.Drain.drain;
+
+import javax.xml.stream.XMLStreamException;
+import net.pincette.xml.benchmark.Documents.Size;
+import net.pincette.xml.stream.DOMEventReader;
+import net.pincette.xml.stream.DOMEventWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.w3c.dom.Document;
+
+/**
+ * Reads events from a DOM tree and builds DOM trees from events. The large document is left out,
+ * because it can't be streamed into a DOM tree.
+ *
+ * @author Werner Donné
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class DOMBenchmark {
+  @Param({"SMALL", "MEDIUM"})
+  public Size size;
+
+  private Document document;
+
+  @Benchmark
+  public void domEventReader(final EventCounter counter, final Blackhole blackhole)
+      throws XMLStreamException {
+    counter.events += drain(new DOMEventReader(document), blackhole);
+  }
+
+  @Benchmark
+  public Document domEventWriter(final EventCounter counter) throws XMLStreamException {
+    final CountingEventReader reader = new CountingEventReader(newEventReader(size));
+    final DOMEventWriter writer = new DOMEventWriter();
+
+    writer.add(reader);
+    counter.events += reader.getCount();
+
+    return writer.getDocument();
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws XMLStreamException {
+    final DOMEventWriter writer = new DOMEventWriter();
+
+    writer.add(newEventReader(size));
+    document = writer.getDocument();
+  }
+}
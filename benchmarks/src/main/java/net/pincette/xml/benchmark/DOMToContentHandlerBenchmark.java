@@ -0,0 +1,61 @@
+package net.pincette.xml.benchmark;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.xml.stream.XMLInputFactory.newFactory;
+import static net.pincette.xml.sax.DOMToContentHandler.documentToContentHandler;
+
+import java.io.IOException;
+import javax.xml.stream.XMLStreamException;
+import net.pincette.xml.benchmark.CorpusGenerator.Shape;
+import net.pincette.xml.stream.DOMEventWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Document;
+import org.xml.sax.SAXException;
+
+/**
+ * Feeds generated DOM documents of several shapes through a <code>ContentHandler</code>.
+ *
+ * @author Werner Donné
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class DOMToContentHandlerBenchmark {
+  @Param({"1000", "100000"})
+  public long count;
+
+  @Param({"DEEP", "WIDE", "ATTRIBUTE_HEAVY", "NAMESPACE_HEAVY"})
+  public Shape shape;
+
+  private Document document;
+
+  @Benchmark
+  public void documentToHandler(final EventCounter counter) throws SAXException {
+    final CountingHandler handler = new CountingHandler();
+
+    documentToContentHandler(document, handler);
+    counter.events += handler.getCount();
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, XMLStreamException {
+    final DOMEventWriter writer = new DOMEventWriter();
+
+    writer.add(newFactory().createXMLEventReader(new CorpusGenerator(0).open(shape, count)));
+    document = writer.getDocument();
+  }
+}
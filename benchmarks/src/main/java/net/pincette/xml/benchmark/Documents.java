@@ -0,0 +1,146 @@
+package net.pincette.xml.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.pincette.util.Util.tryToGetRethrow;
+
+import java.io.InputStream;
+import java.util.Map;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.xml.sax.InputSource;
+import org.xml.sax.XMLReader;
+
+/**
+ * Generated benchmark documents. They are streamed, so the large one never lives in memory. A
+ * document is a root element with a sequence of identical records, which contain attributes,
+ * namespaces, text, a processing instruction and a comment.
+ *
+ * @author Werner Donné
+ */
+public class Documents {
+  /** The prefixes of the namespaces in the documents, with the empty one for the default. */
+  public static final Map<String, String> NAMESPACES =
+      Map.of("", "urn:benchmark", "x", "urn:benchmark:extra");
+
+  private static final byte[] FOOTER = "</records>".getBytes(UTF_8);
+  private static final byte[] HEADER =
+      ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+              + "<records xmlns=\"urn:benchmark\" xmlns:x=\"urn:benchmark:extra\">")
+          .getBytes(UTF_8);
+  private static final byte[] RECORD =
+      ("<record id=\"r\" x:type=\"plain\">"
+              + "<name>A record name</name>"
+              + "<x:value unit=\"m\">12345.678</x:value>"
+              + "<?javax.xml.transform.disable-output-escaping?>"
+              + "<description>Some text with an &amp; and &lt; in it.</description>"
+              + "<?javax.xml.transform.enable-output-escaping?>"
+              + "<!-- A comment. -->"
+              + "</record>")
+          .getBytes(UTF_8);
+
+  private Documents() {}
+
+  public static InputSource inputSource(final Size size) {
+    return new InputSource(open(size));
+  }
+
+  public static XMLEventReader newEventReader(final Size size) throws XMLStreamException {
+    return XMLInputFactory.newFactory().createXMLEventReader(open(size));
+  }
+
+  public static XMLReader newParser() {
+    return tryToGetRethrow(
+            () -> {
+              final SAXParserFactory factory = SAXParserFactory.newInstance();
+
+              factory.setNamespaceAware(true);
+
+              return factory.newSAXParser().getXMLReader();
+            })
+        .orElse(null);
+  }
+
+  public static XMLStreamReader newStreamReader(final Size size) throws XMLStreamException {
+    return XMLInputFactory.newFactory().createXMLStreamReader(open(size));
+  }
+
+  public static InputStream open(final Size size) {
+    return new RepeatingInputStream(
+        HEADER,
+        RECORD,
+        Math.max(1, (size.bytes - HEADER.length - FOOTER.length) / RECORD.length),
+        FOOTER);
+  }
+
+  public enum Size {
+    SMALL(4L * 1024),
+    MEDIUM(10L * 1024 * 1024),
+    LARGE(1024L * 1024 * 1024);
+
+    private final long bytes;
+
+    Size(final long bytes) {
+      this.bytes = bytes;
+    }
+  }
+
+  private static class RepeatingInputStream extends InputStream {
+    private final byte[] footer;
+    private final byte[] record;
+    private byte[] current;
+    private int position;
+    private long remaining;
+
+    private RepeatingInputStream(
+        final byte[] header, final byte[] record, final long count, final byte[] footer) {
+      this.record = record;
+      this.remaining = count;
+      this.footer = footer;
+      current = header;
+    }
+
+    private boolean advance() {
+      if (current == null) {
+        return false;
+      }
+
+      if (position < current.length) {
+        return true;
+      }
+
+      position = 0;
+
+      if (remaining > 0) {
+        --remaining;
+        current = record;
+      } else {
+        current = current == footer ? null : footer;
+      }
+
+      return current != null;
+    }
+
+    @Override
+    public int read() {
+      return advance() ? (current[position++] & 0xff) : -1;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) {
+      int count = 0;
+
+      while (count < len && advance()) {
+        final int n = Math.min(len - count, current.length - position);
+
+        System.arraycopy(current, position, b, off + count, n);
+        position += n;
+        count += n;
+      }
+
+      return count == 0 && len > 0 ? -1 : count;
+    }
+  }
+}
@@ -0,0 +1,72 @@
+package net.pincette.xml.benchmark;
+
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.util.function.Consumer;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Consumes readers completely. Everything that is read is handed to a sink, so it escapes.
+ *
+ * @author Werner Donné
+ */
+public class Drain {
+  private Drain() {}
+
+  public static long drain(final XMLEventReader reader, final Blackhole blackhole)
+      throws XMLStreamException {
+    return drain(reader, blackhole::consume);
+  }
+
+  public static long drain(final XMLStreamReader reader, final Blackhole blackhole)
+      throws XMLStreamException {
+    return drain(reader, blackhole::consume);
+  }
+
+  public static long drain(final XMLEventReader reader, final Consumer<Object> sink)
+      throws XMLStreamException {
+    long count = 0;
+
+    while (reader.hasNext()) {
+      sink.accept(reader.nextEvent());
+      ++count;
+    }
+
+    reader.close();
+
+    return count;
+  }
+
+  public static long drain(final XMLStreamReader reader, final Consumer<Object> sink)
+      throws XMLStreamException {
+    long count = 0;
+
+    while (reader.hasNext()) {
+      switch (reader.next()) {
+        case START_ELEMENT:
+          sink.accept(reader.getLocalName());
+
+          for (int i = 0; i < reader.getAttributeCount(); ++i) {
+            sink.accept(reader.getAttributeValue(i));
+          }
+          break;
+        case CHARACTERS, SPACE:
+          sink.accept(reader.getTextCharacters());
+          break;
+        default:
+          break;
+      }
+
+      ++count;
+    }
+
+    reader.close();
+
+    return count;
+  }
+}
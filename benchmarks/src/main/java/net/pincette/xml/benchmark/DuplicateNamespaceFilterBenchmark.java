@@ -0,0 +1,53 @@
+package net.pincette.xml.benchmark;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static net.pincette.xml.benchmark.Documents.newParser;
+
+import java.io.IOException;
+import net.pincette.xml.benchmark.CorpusGenerator.Shape;
+import net.pincette.xml.sax.DuplicateNamespaceFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Parses generated namespace-heavy documents through the <code>DuplicateNamespaceFilter</code>.
+ *
+ * @author Werner Donné
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class DuplicateNamespaceFilterBenchmark {
+  @Param({"1000", "100000"})
+  public long count;
+
+  @Param({"16", "64"})
+  public int namespaces;
+
+  @Benchmark
+  public void parse(final EventCounter counter) throws IOException, SAXException {
+    final CountingHandler handler = new CountingHandler();
+    final DuplicateNamespaceFilter filter = new DuplicateNamespaceFilter(newParser());
+
+    filter.setContentHandler(handler);
+    filter.parse(
+        new InputSource(
+            new CorpusGenerator(0)
+                .withNamespaces(namespaces)
+                .open(Shape.NAMESPACE_HEAVY, count)));
+    counter.events += handler.getCount();
+  }
+}
@@ -0,0 +1,43 @@
+package net.pincette.xml.benchmark;
+
+import static java.io.Writer.nullWriter;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static net.pincette.xml.benchmark.Documents.newEventReader;
+
+import javax.xml.stream.XMLStreamException;
+import net.pincette.xml.benchmark.Documents.Size;
+import net.pincette.xml.stream.EscapePIEventWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Serializes documents, which contain output escaping processing instructions.
+ *
+ * @author Werner Donné
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class EscapePIEventWriterBenchmark {
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  public Size size;
+
+  @Benchmark
+  public void write(final EventCounter counter) throws XMLStreamException {
+    final CountingEventReader reader = new CountingEventReader(newEventReader(size));
+
+    new EscapePIEventWriter(nullWriter()).add(reader);
+    counter.events += reader.getCount();
+  }
+}
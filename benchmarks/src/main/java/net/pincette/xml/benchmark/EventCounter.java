@@ -0,0 +1,26 @@
+package net.pincette.xml.benchmark;
+
+import static org.openjdk.jmh.annotations.AuxCounters.Type.OPERATIONS;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Reports the number of XML events a benchmark has processed, next to the number of documents.
+ * With the throughput mode this gives the events per time unit.
+ *
+ * @author Werner Donné
+ */
+@AuxCounters(OPERATIONS)
+@State(Scope.Thread)
+public class EventCounter {
+  public long events;
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    events = 0;
+  }
+}
@@ -0,0 +1,54 @@
+package net.pincette.xml.benchmark;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Stream.generate;
+import static net.pincette.xml.benchmark.Documents.inputSource;
+import static net.pincette.xml.benchmark.Documents.newParser;
+
+import java.io.IOException;
+import net.pincette.xml.benchmark.Documents.Size;
+import net.pincette.xml.sax.FilterOfFilters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLFilter;
+
+/**
+ * Parses documents through filter chains of different lengths.
+ *
+ * @author Werner Donné
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class FilterOfFiltersBenchmark {
+  @Param({"1", "5", "20"})
+  public int filters;
+
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  public Size size;
+
+  @Benchmark
+  public void parse(final EventCounter counter) throws IOException, SAXException {
+    final CountingHandler handler = new CountingHandler();
+    final FilterOfFilters chain =
+        new FilterOfFilters(
+            generate(PassThroughFilter::new).limit(filters).toArray(XMLFilter[]::new),
+            newParser());
+
+    chain.setContentHandler(handler);
+    chain.parse(inputSource(size));
+    counter.events += handler.getCount();
+  }
+}
@@ -0,0 +1,20 @@
+package net.pincette.xml.benchmark;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * A filter that lets everything through, but which is not a plain <code>XMLFilterImpl</code>, so
+ * it can't be recognised as an identity stage.
+ *
+ * @author Werner Donné
+ */
+public class PassThroughFilter extends XMLFilterImpl {
+  @Override
+  public void startElement(
+      final String namespaceURI, final String localName, final String qName, final Attributes atts)
+      throws SAXException {
+    super.startElement(namespaceURI, localName, qName, atts);
+  }
+}
@@ -0,0 +1,90 @@
+package net.pincette.xml.benchmark;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static net.pincette.xml.benchmark.Documents.inputSource;
+import static net.pincette.xml.benchmark.Documents.newEventReader;
+import static net.pincette.xml.benchmark.Documents.newParser;
+import static net.pincette.xml.benchmark.Documents.newStreamReader;
+import static net.pincette.xml.benchmark.Drain.drain;
+
+import javax.xml.stream.XMLStreamException;
+import net.pincette.xml.benchmark.Documents.Size;
+import net.pincette.xml.stream.EventReaderXMLReader;
+import net.pincette.xml.stream.EventStreamReader;
+import net.pincette.xml.stream.StreamEventReader;
+import net.pincette.xml.stream.XMLFilterEventReaderDelegate;
+import net.pincette.xml.stream.XMLReaderEventReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * Pulls documents through the adapters between SAX, StAX event readers and StAX stream readers.
+ * The <code>baseline</code> benchmark reads the plain StAX event reader without an adapter.
+ *
+ * @author Werner Donné
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class ReaderAdaptersBenchmark {
+  @Param({"SMALL", "MEDIUM", "LARGE"})
+  public Size size;
+
+  @Benchmark
+  public void baseline(final EventCounter counter, final Blackhole blackhole)
+      throws XMLStreamException {
+    counter.events += drain(newEventReader(size), blackhole);
+  }
+
+  @Benchmark
+  public void eventReaderXMLReader(final EventCounter counter)
+      throws XMLStreamException, SAXException {
+    final CountingHandler handler = new CountingHandler();
+    final EventReaderXMLReader reader = new EventReaderXMLReader(newEventReader(size));
+
+    reader.setContentHandler(handler);
+    reader.parse(new InputSource());
+    counter.events += handler.getCount();
+  }
+
+  @Benchmark
+  public void eventStreamReader(final EventCounter counter, final Blackhole blackhole)
+      throws XMLStreamException {
+    counter.events += drain(new EventStreamReader(newEventReader(size)), blackhole);
+  }
+
+  @Benchmark
+  public void streamEventReader(final EventCounter counter, final Blackhole blackhole)
+      throws XMLStreamException {
+    counter.events += drain(new StreamEventReader(newStreamReader(size)), blackhole);
+  }
+
+  @Benchmark
+  public void xmlFilterEventReaderDelegate(final EventCounter counter, final Blackhole blackhole)
+      throws XMLStreamException {
+    counter.events +=
+        drain(
+            new XMLFilterEventReaderDelegate(new PassThroughFilter(), newEventReader(size)),
+            blackhole);
+  }
+
+  @Benchmark
+  public void xmlReaderEventReader(final EventCounter counter, final Blackhole blackhole)
+      throws XMLStreamException {
+    counter.events += drain(new XMLReaderEventReader(newParser(), inputSource(size)), blackhole);
+  }
+}
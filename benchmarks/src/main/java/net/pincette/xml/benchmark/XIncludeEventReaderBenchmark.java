@@ -0,0 +1,87 @@
+package net.pincette.xml.benchmark;
+
+import static java.nio.file.Files.createTempDirectory;
+import static java.nio.file.Files.delete;
+import static java.nio.file.Files.walk;
+import static java.util.Comparator.reverseOrder;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static net.pincette.xml.benchmark.Drain.drain;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import net.pincette.xml.benchmark.CorpusGenerator.Shape;
+import net.pincette.xml.stream.XIncludeEventReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Resolves generated XInclude-heavy documents. Without the targets all fallbacks are used.
+ *
+ * @author Werner Donné
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@Fork(1)
+@Measurement(iterations = 5)
+@OutputTimeUnit(MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+public class XIncludeEventReaderBenchmark {
+  private final XMLInputFactory factory = XMLInputFactory.newFactory();
+
+  @Param({"100", "10000"})
+  public long count;
+
+  @Param({"true", "false"})
+  public boolean targets;
+
+  private Path directory;
+
+  @Benchmark
+  public void include(final EventCounter counter, final Blackhole blackhole)
+      throws IOException, XMLStreamException {
+    final String baseURI = directory.resolve("corpus.xml").toUri().toString();
+
+    counter.events +=
+        drain(
+            new XIncludeEventReader(
+                baseURI,
+                factory,
+                factory.createXMLEventReader(
+                    baseURI, new CorpusGenerator(0).open(Shape.XINCLUDE_HEAVY, count))),
+            blackhole);
+  }
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, XMLStreamException {
+    directory = createTempDirectory("xinclude");
+
+    if (targets) {
+      new CorpusGenerator(0).writeIncludeTargets(directory);
+    }
+  }
+
+  /** Deletes the directory with the include targets, which deleteOnExit can't do. */
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> paths = walk(directory)) {
+      for (final Path path : paths.sorted(reverseOrder()).toList()) {
+        delete(path);
+      }
+    }
+  }
+}
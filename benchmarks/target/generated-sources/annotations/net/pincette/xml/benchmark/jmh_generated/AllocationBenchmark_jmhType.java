@@ -0,0 +1,4 @@
+package net.pincette.xml.benchmark.jmh_generated;
+public class AllocationBenchmark_jmhType extends AllocationBenchmark_jmhType_B3 {
+}
+
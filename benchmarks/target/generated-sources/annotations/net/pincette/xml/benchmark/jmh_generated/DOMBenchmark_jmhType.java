@@ -0,0 +1,4 @@
+package net.pincette.xml.benchmark.jmh_generated;
+public class DOMBenchmark_jmhType extends DOMBenchmark_jmhType_B3 {
+}
+
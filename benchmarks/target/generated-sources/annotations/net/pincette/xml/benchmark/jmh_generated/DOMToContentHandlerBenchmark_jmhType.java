@@ -0,0 +1,4 @@
+package net.pincette.xml.benchmark.jmh_generated;
+public class DOMToContentHandlerBenchmark_jmhType extends DOMToContentHandlerBenchmark_jmhType_B3 {
+}
+
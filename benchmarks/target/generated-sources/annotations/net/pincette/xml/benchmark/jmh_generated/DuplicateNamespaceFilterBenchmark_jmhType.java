@@ -0,0 +1,4 @@
+package net.pincette.xml.benchmark.jmh_generated;
+public class DuplicateNamespaceFilterBenchmark_jmhType extends DuplicateNamespaceFilterBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package net.pincette.xml.benchmark.jmh_generated;
+public class EscapePIEventWriterBenchmark_jmhType extends EscapePIEventWriterBenchmark_jmhType_B3 {
+}
+
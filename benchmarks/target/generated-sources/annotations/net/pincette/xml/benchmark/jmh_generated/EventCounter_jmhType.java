@@ -0,0 +1,4 @@
+package net.pincette.xml.benchmark.jmh_generated;
+public class EventCounter_jmhType extends EventCounter_jmhType_B3 {
+}
+
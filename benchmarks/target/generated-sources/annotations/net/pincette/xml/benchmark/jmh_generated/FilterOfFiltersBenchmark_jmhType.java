@@ -0,0 +1,4 @@
+package net.pincette.xml.benchmark.jmh_generated;
+public class FilterOfFiltersBenchmark_jmhType extends FilterOfFiltersBenchmark_jmhType_B3 {
+}
+
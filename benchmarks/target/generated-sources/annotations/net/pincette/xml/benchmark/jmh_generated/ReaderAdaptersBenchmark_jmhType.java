@@ -0,0 +1,4 @@
+package net.pincette.xml.benchmark.jmh_generated;
+public class ReaderAdaptersBenchmark_jmhType extends ReaderAdaptersBenchmark_jmhType_B3 {
+}
+
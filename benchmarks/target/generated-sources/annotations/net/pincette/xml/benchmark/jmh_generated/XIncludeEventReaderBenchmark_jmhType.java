@@ -0,0 +1,4 @@
+package net.pincette.xml.benchmark.jmh_generated;
+public class XIncludeEventReaderBenchmark_jmhType extends XIncludeEventReaderBenchmark_jmhType_B3 {
+}
+
@@ -5,4 +5,5 @@ module net.pincette.xmlfilter {
 
   exports net.pincette.xml.sax;
   exports net.pincette.xml.stream;
+  // net.pincette.xml.internal has the helpers both packages share. It is not exported.
 }
@@ -0,0 +1,241 @@
+package net.pincette.xml.internal;
+
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A stack of namespace declarations per element. The declarations are kept in flat arrays and
+ * there are hash indexes from the prefixes and the namespace URIs to their latest declaration. A
+ * lookup in either direction therefore doesn't depend on the depth of the document, and an element
+ * without declarations costs nothing. There is always a root scope, which is never removed, for
+ * the declarations outside of any element.
+ *
+ * <p>The declarations can be accessed by index. Those of the innermost scope go from <code>
+ * getScopeStart()</code> to <code>getDeclarationCount()</code>.
+ *
+ * @author Werner Donné
+ */
+public class NamespaceScope {
+  private static final int NONE = -1;
+
+  private final Index prefixIndex = new Index();
+  private final Index uriIndex = new Index();
+  private int depth;
+  private int[] marks = new int[16];
+  private String[] namespaceURIs = new String[16];
+  private String[] prefixes = new String[16];
+  private int[] shadowedPrefixes = new int[16];
+  private int[] shadowedURIs = new int[16];
+  private int size;
+
+  private static String normalize(final String s) {
+    return s != null ? s : "";
+  }
+
+  /** Removes all declarations and scopes. */
+  public void clear() {
+    depth = 0;
+    size = 0;
+    fill(prefixes, null);
+    fill(namespaceURIs, null);
+    prefixIndex.clear();
+    uriIndex.clear();
+  }
+
+  /** Adds a declaration to the innermost scope. A <code>null</code> prefix is the default one. */
+  public void declare(final String prefix, final String namespaceURI) {
+    if (size == prefixes.length) {
+      prefixes = copyOf(prefixes, size * 2);
+      namespaceURIs = copyOf(namespaceURIs, size * 2);
+      shadowedPrefixes = copyOf(shadowedPrefixes, size * 2);
+      shadowedURIs = copyOf(shadowedURIs, size * 2);
+    }
+
+    final String p = normalize(prefix);
+    final String uri = normalize(namespaceURI);
+
+    prefixes[size] = p;
+    namespaceURIs[size] = uri;
+    shadowedPrefixes[size] = prefixIndex.put(p, size);
+    shadowedURIs[size] = uriIndex.put(uri, size);
+    ++size;
+  }
+
+  /** Tells if the innermost scope declares <code>prefix</code>. */
+  public boolean declares(final String prefix) {
+    final int index = prefixIndex.get(normalize(prefix));
+
+    return index != NONE && index >= marks[depth];
+  }
+
+  /** Returns the number of declarations in all scopes. */
+  public int getDeclarationCount() {
+    return size;
+  }
+
+  public String getDeclaredNamespaceURI(final int index) {
+    return namespaceURIs[index];
+  }
+
+  public String getDeclaredPrefix(final int index) {
+    return prefixes[index];
+  }
+
+  /** Returns the number of scopes, not counting the root scope. */
+  public int getDepth() {
+    return depth;
+  }
+
+  /** Returns the namespace URI <code>prefix</code> is bound to or <code>null</code>. */
+  public String getNamespaceURI(final String prefix) {
+    final int index = prefixIndex.get(normalize(prefix));
+
+    return index != NONE ? namespaceURIs[index] : null;
+  }
+
+  /** Returns a prefix that is bound to <code>namespaceURI</code> or <code>null</code>. */
+  public String getPrefix(final String namespaceURI) {
+    final int index = nextBound(uriIndex.get(normalize(namespaceURI)));
+
+    return index != NONE ? prefixes[index] : null;
+  }
+
+  /** Returns all prefixes that are bound to <code>namespaceURI</code>, the latest first. */
+  public Iterator<String> getPrefixes(final String namespaceURI) {
+    return new Iterator<>() {
+      private int index = nextBound(uriIndex.get(normalize(namespaceURI)));
+
+      public boolean hasNext() {
+        return index != NONE;
+      }
+
+      public String next() {
+        if (index == NONE) {
+          throw new NoSuchElementException();
+        }
+
+        final String result = prefixes[index];
+
+        index = nextBound(shadowedURIs[index]);
+
+        return result;
+      }
+    };
+  }
+
+  /** Returns the index of the first declaration of the innermost scope. */
+  public int getScopeStart() {
+    return marks[depth];
+  }
+
+  /** Follows the declarations of a namespace URI until one with a prefix that is not rebound. */
+  private int nextBound(final int from) {
+    int index = from;
+
+    while (index != NONE && prefixIndex.get(prefixes[index]) != index) {
+      index = shadowedURIs[index];
+    }
+
+    return index;
+  }
+
+  /** Removes the innermost scope with all its declarations. */
+  public void pop() {
+    if (depth == 0) {
+      throw new IllegalStateException("Only the root scope is left.");
+    }
+
+    for (int i = size - 1; i >= marks[depth]; --i) {
+      prefixIndex.put(prefixes[i], shadowedPrefixes[i]);
+      uriIndex.put(namespaceURIs[i], shadowedURIs[i]);
+      prefixes[i] = null;
+      namespaceURIs[i] = null;
+    }
+
+    size = marks[depth--];
+  }
+
+  /** Opens a new scope, which is the innermost one. */
+  public void push() {
+    if (depth + 1 == marks.length) {
+      marks = copyOf(marks, marks.length * 2);
+    }
+
+    marks[++depth] = size;
+  }
+
+  /**
+   * An open addressing hash table from strings to declaration indexes. Keys are not removed, but
+   * get <code>NONE</code> when all their declarations are gone, because there are only a few
+   * different prefixes and namespace URIs in a document.
+   */
+  private static class Index {
+    private String[] keys = new String[16];
+    private int keyCount;
+    private int[] values = new int[16];
+
+    private void clear() {
+      fill(keys, null);
+      keyCount = 0;
+    }
+
+    private int get(final String key) {
+      final int slot = slot(keys, key);
+
+      return keys[slot] != null ? values[slot] : NONE;
+    }
+
+    /** Sets the value and returns the previous one. */
+    private int put(final String key, final int value) {
+      int slot = slot(keys, key);
+
+      if (keys[slot] == null) {
+        if ((keyCount + 1) * 2 > keys.length) {
+          rehash();
+          slot = slot(keys, key);
+        }
+
+        keys[slot] = key;
+        values[slot] = NONE;
+        ++keyCount;
+      }
+
+      final int previous = values[slot];
+
+      values[slot] = value;
+
+      return previous;
+    }
+
+    private void rehash() {
+      final String[] oldKeys = keys;
+      final int[] oldValues = values;
+
+      keys = new String[oldKeys.length * 2];
+      values = new int[oldKeys.length * 2];
+
+      for (int i = 0; i < oldKeys.length; ++i) {
+        if (oldKeys[i] != null) {
+          final int slot = slot(keys, oldKeys[i]);
+
+          keys[slot] = oldKeys[i];
+          values[slot] = oldValues[i];
+        }
+      }
+    }
+
+    private static int slot(final String[] keys, final String key) {
+      final int mask = keys.length - 1;
+      final int h = key.hashCode();
+
+      for (int i = (h ^ (h >>> 16)) & mask; ; i = (i + 1) & mask) {
+        if (keys[i] == null || keys[i] == key || keys[i].equals(key)) {
+          return i;
+        }
+      }
+    }
+  }
+}
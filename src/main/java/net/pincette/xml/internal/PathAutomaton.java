@@ -0,0 +1,188 @@
+package net.pincette.xml.internal;
+
+import static java.util.Arrays.copyOf;
+import static net.pincette.xml.internal.SymbolTable.NONE;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import javax.xml.namespace.QName;
+
+/**
+ * Tells whether the current element path matches any of a set of paths. The paths are compiled in
+ * an automaton, so <code>push</code> and <code>pop</code> take constant time and <code>match</code>
+ * is a field read. An absolute path must match the complete element path, a relative one only its
+ * end.
+ *
+ * @author Werner Donné
+ */
+public class PathAutomaton {
+  private final boolean absolute;
+  private final State root;
+  private final SymbolTable symbols = new SymbolTable();
+  private State[] stack = new State[16];
+  private int size;
+  private State state;
+
+  public PathAutomaton(final QName[][] paths, final boolean absolute) {
+    this.absolute = absolute;
+
+    for (final QName[] path : paths) {
+      for (final QName name : path) {
+        symbols.intern(name);
+      }
+    }
+
+    root = new State(symbols.size());
+    state = root;
+
+    for (int i = 0; i < paths.length; ++i) {
+      addPath(paths[i], i);
+    }
+
+    if (!absolute) {
+      setFailures();
+    }
+  }
+
+  private void addPath(final QName[] path, final int index) {
+    if (path.length > 0) {
+      State s = root;
+
+      for (final QName name : path) {
+        final int id = symbols.lookup(name);
+
+        if (s.children[id] == null) {
+          s.children[id] = new State(symbols.size());
+        }
+
+        s = s.children[id];
+      }
+
+      if (s.path == -1) {
+        s.path = index;
+      }
+    }
+  }
+
+  /** Returns <code>true</code> if any of the given paths match, <code>false</code> otherwise. */
+  public boolean match() {
+    return matchIndex() != -1;
+  }
+
+  /**
+   * Returns the index of the first of the given paths that matches or -1 if none of them match.
+   */
+  public int matchIndex() {
+    return state != null ? state.path : -1;
+  }
+
+  private State next(final State from, final int id) {
+    if (absolute) {
+      return from != null && id != NONE ? from.children[id] : null;
+    }
+
+    if (id == NONE) {
+      return root;
+    }
+
+    if (from.transitions == null) {
+      from.transitions = new State[symbols.size()];
+    }
+
+    if (from.transitions[id] == null) {
+      from.transitions[id] = transition(from, id);
+    }
+
+    return from.transitions[id];
+  }
+
+  public void pop() {
+    state = stack[--size];
+    stack[size] = null;
+  }
+
+  public void push(final QName pathElement) {
+    push(pathElement.getNamespaceURI(), pathElement.getLocalPart());
+  }
+
+  /**
+   * Pushes an element without creating a <code>QName</code>.
+   *
+   * @param namespaceURI the namespace of the element. It may be <code>null</code>.
+   * @param localName the local name of the element.
+   */
+  public void push(final String namespaceURI, final String localName) {
+    if (size == stack.length) {
+      stack = copyOf(stack, size * 2);
+    }
+
+    stack[size++] = state;
+    state = next(state, symbols.lookup(namespaceURI, localName));
+  }
+
+  /** Forgets the current element path. */
+  public void reset() {
+    while (size > 0) {
+      stack[--size] = null;
+    }
+
+    state = root;
+  }
+
+  /**
+   * The failure state of a state is the state of the longest proper suffix of its path. A state
+   * also accepts the paths its failure state accepts.
+   */
+  private void setFailures() {
+    final Queue<State> queue = new ArrayDeque<>();
+
+    for (final State child : root.children) {
+      if (child != null) {
+        child.failure = root;
+        queue.add(child);
+      }
+    }
+
+    while (!queue.isEmpty()) {
+      final State s = queue.remove();
+
+      if (s.path == -1 || (s.failure.path != -1 && s.failure.path < s.path)) {
+        s.path = s.failure.path;
+      }
+
+      for (int id = 0; id < s.children.length; ++id) {
+        if (s.children[id] != null) {
+          State f = s.failure;
+
+          while (f != root && f.children[id] == null) {
+            f = f.failure;
+          }
+
+          s.children[id].failure = f.children[id] != null ? f.children[id] : root;
+          queue.add(s.children[id]);
+        }
+      }
+    }
+  }
+
+  private State transition(final State from, final int id) {
+    for (State s = from; s != null; s = s.failure) {
+      if (s.children[id] != null) {
+        return s.children[id];
+      }
+    }
+
+    return root;
+  }
+
+  private static class State {
+    private final State[] children;
+    private State failure;
+    private int path = -1;
+    private State[] transitions;
+
+    private State(final int symbols) {
+      children = new State[symbols];
+    }
+  }
+}
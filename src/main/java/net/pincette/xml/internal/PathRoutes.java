@@ -0,0 +1,145 @@
+package net.pincette.xml.internal;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.namespace.QName;
+import net.pincette.xml.internal.SimplePath.Step;
+
+/**
+ * Associates element paths with targets. All paths are compiled in one automaton, so finding the
+ * target for an element takes one step, regardless of the number of paths. When several paths
+ * match the same element, the one that was added first wins. Paths can't be added anymore once the
+ * automaton is in use.
+ *
+ * @param <T> the type of the targets.
+ * @author Werner Donné
+ */
+public class PathRoutes<T> {
+  private final List<QName[]> absolutePaths = new ArrayList<>();
+  private final List<Integer> absoluteRoutes = new ArrayList<>();
+  private final List<QName[]> relativePaths = new ArrayList<>();
+  private final List<Integer> relativeRoutes = new ArrayList<>();
+  private final List<T> targets = new ArrayList<>();
+  private PathAutomaton absolute;
+  private PathAutomaton relative;
+
+  private static QName[] toPath(final SimplePath path) {
+    if (path.isRelative()) {
+      throw new IllegalArgumentException("Only absolute expressions can be routed.");
+    }
+
+    final Step[] elements = path.getSteps();
+    final QName[] result = new QName[elements.length];
+
+    for (int i = 0; i < elements.length; ++i) {
+      if (elements[i].position() != -1 || elements[i].isWildcard()) {
+        throw new IllegalArgumentException("Positions and wildcards can't be routed.");
+      }
+
+      result[i] = new QName(elements[i].namespaceURI(), elements[i].localName());
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds a route.
+   *
+   * @param path the element names from the outer to the inner element.
+   * @param absolute when <code>true</code> the path must start at the document element, otherwise
+   *     it must match the last elements of the current path.
+   * @param target the target for matching elements.
+   * @return The object itself.
+   */
+  public PathRoutes<T> add(final QName[] path, final boolean absolute, final T target) {
+    if (this.absolute != null) {
+      throw new IllegalStateException("The routes are already in use.");
+    }
+
+    (absolute ? absolutePaths : relativePaths).add(path.clone());
+    (absolute ? absoluteRoutes : relativeRoutes).add(targets.size());
+    targets.add(target);
+
+    return this;
+  }
+
+  /**
+   * Adds a route for an absolute expression without positions and wildcards.
+   *
+   * @param path the expression.
+   * @param target the target for matching elements.
+   * @return The object itself.
+   * @throws IllegalArgumentException when the expression can't be routed.
+   */
+  public PathRoutes<T> add(final SimplePath path, final T target) {
+    return add(toPath(path), true, target);
+  }
+
+  private void compile() {
+    if (absolute == null) {
+      absolute = new PathAutomaton(absolutePaths.toArray(QName[][]::new), true);
+      relative = new PathAutomaton(relativePaths.toArray(QName[][]::new), false);
+    }
+  }
+
+  /** Returns the targets in the order in which they were added. */
+  public List<T> getTargets() {
+    return unmodifiableList(targets);
+  }
+
+  public boolean isEmpty() {
+    return targets.isEmpty();
+  }
+
+  /** Should be called for each end tag. */
+  public void pop() {
+    absolute.pop();
+    relative.pop();
+  }
+
+  /** Forgets the current path, which is needed when a document was not completed. */
+  public void reset() {
+    if (absolute != null) {
+      absolute.reset();
+      relative.reset();
+    }
+  }
+
+  /**
+   * Should be called for each start tag.
+   *
+   * @param namespaceURI the namespace of the element. It may be <code>null</code>.
+   * @param localName the local name of the element.
+   * @return The target for the element or <code>null</code> if no route matches.
+   */
+  public T push(final String namespaceURI, final String localName) {
+    compile();
+    absolute.push(namespaceURI, localName);
+    relative.push(namespaceURI, localName);
+
+    return target();
+  }
+
+  /**
+   * Should be called for each start tag.
+   *
+   * @param name the name of the element.
+   * @return The target for the element or <code>null</code> if no route matches.
+   */
+  public T push(final QName name) {
+    return push(name.getNamespaceURI(), name.getLocalPart());
+  }
+
+  private T target() {
+    final int a = absolute.matchIndex();
+    final int r = relative.matchIndex();
+    final int route =
+        Math.min(
+            a != -1 ? absoluteRoutes.get(a) : Integer.MAX_VALUE,
+            r != -1 ? relativeRoutes.get(r) : Integer.MAX_VALUE);
+
+    return route != Integer.MAX_VALUE ? targets.get(route) : null;
+  }
+}
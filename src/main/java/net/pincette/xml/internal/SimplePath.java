@@ -0,0 +1,96 @@
+package net.pincette.xml.internal;
+
+import static java.lang.Long.parseLong;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parsed steps of a <code>SimpleXPath</code> expression. All steps are child steps. A step
+ * has a name, of which the local name may be the wildcard "*", and an optional position, which
+ * starts at 1. Instances are immutable.
+ *
+ * @author Werner Donné
+ */
+public class SimplePath {
+  private final boolean relative;
+  private final Step[] steps;
+
+  /**
+   * Creates a path from steps.
+   *
+   * @param steps the steps of the expression.
+   * @param relative when <code>false</code> the first step should match the document element.
+   */
+  public SimplePath(final Step[] steps, final boolean relative) {
+    this.steps = steps.clone();
+    this.relative = relative;
+  }
+
+  /**
+   * Parses an expression.
+   *
+   * @param expression the expression.
+   * @param namespacePrefixMap maps prefixes to URIs. It may be <code>null</code>. The key of the
+   *     default namespace is the empty string.
+   * @return The parsed expression.
+   */
+  public static SimplePath parse(
+      final String expression, final Map<String, String> namespacePrefixMap) {
+    final Map<String, String> namespaces =
+        namespacePrefixMap != null ? namespacePrefixMap : Map.of();
+    final boolean relative = expression.isEmpty() || expression.charAt(0) != '/';
+    final List<Step> steps = new ArrayList<>();
+
+    for (int start = relative ? 0 : 1; start <= expression.length(); ) {
+      final int slash = expression.indexOf('/', start);
+      final int end = slash != -1 ? slash : expression.length();
+
+      steps.add(parseStep(expression.substring(start, end), namespaces));
+      start = end + 1;
+    }
+
+    return new SimplePath(steps.toArray(Step[]::new), relative);
+  }
+
+  private static Step parseStep(final String step, final Map<String, String> namespacePrefixMap) {
+    final int colon = step.indexOf(':');
+    final int startOfPosition = step.indexOf('[');
+
+    return new Step(
+        namespacePrefixMap.get(colon != -1 ? step.substring(0, colon) : ""),
+        step.substring(colon + 1, startOfPosition != -1 ? startOfPosition : step.length()),
+        startOfPosition != -1
+            ? parseLong(step.substring(startOfPosition + 1, step.length() - 1))
+            : -1);
+  }
+
+  public Step[] getSteps() {
+    return steps.clone();
+  }
+
+  public boolean isRelative() {
+    return relative;
+  }
+
+  /**
+   * A child step. The <code>namespaceURI</code> may be <code>null</code>. The position is -1 when
+   * it is absent.
+   */
+  public record Step(String namespaceURI, String localName, long position) {
+    public Step {
+      if (position < -1) {
+        throw new IllegalArgumentException(String.valueOf(position));
+      }
+
+      if (localName == null) {
+        throw new NullPointerException();
+      }
+    }
+
+    public boolean isWildcard() {
+      return "*".equals(localName);
+    }
+  }
+}
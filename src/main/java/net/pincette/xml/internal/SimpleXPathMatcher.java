@@ -0,0 +1,95 @@
+package net.pincette.xml.internal;
+
+import java.util.Objects;
+import net.pincette.xml.internal.SimplePath.Step;
+
+/**
+ * Matches a <code>SimplePath</code> against a stream of element events without building a
+ * tree. It keeps a sibling counter per step, so the memory use doesn't depend on the size of the
+ * document. An absolute expression starts at the document element. A relative one starts at the
+ * children of the document element, as when it is evaluated against the document element. Because
+ * all steps are child steps, matching elements never contain each other.
+ *
+ * @author Werner Donné
+ */
+public class SimpleXPathMatcher {
+  private final long[] counters;
+  private final int offset;
+  private final Step[] path;
+  private int depth;
+  private int matched;
+
+  public SimpleXPathMatcher(final SimplePath path) {
+    this.path = path.getSteps();
+    this.offset = path.isRelative() ? 1 : 0;
+    this.counters = new long[this.path.length + 1];
+  }
+
+  private static boolean nameMatches(
+      final Step element, final String namespaceURI, final String localName) {
+    return (element.isWildcard() || element.localName().equals(localName))
+        && Objects.equals(
+            element.namespaceURI(),
+            namespaceURI == null || namespaceURI.isEmpty() ? null : namespaceURI);
+  }
+
+  /** Should be called for each end tag. */
+  public void endElement() {
+    if (matched == depth) {
+      --matched;
+    }
+
+    --depth;
+  }
+
+  /** The number of open elements. */
+  public int getDepth() {
+    return depth;
+  }
+
+  /** Returns <code>true</code> when the current element or one of its ancestors matches. */
+  public boolean isInMatch() {
+    return matched >= path.length + offset;
+  }
+
+  /** Prepares the matcher for another document. */
+  public void reset() {
+    depth = 0;
+    matched = 0;
+    counters[0] = 0;
+  }
+
+  /**
+   * Should be called for each start tag.
+   *
+   * @param namespaceURI the namespace of the element. It may be <code>null</code> or empty.
+   * @param localName the local name of the element.
+   * @return <code>true</code> when the element matches the complete expression.
+   */
+  public boolean startElement(final String namespaceURI, final String localName) {
+    final int step = depth - offset;
+
+    ++depth;
+
+    if (matched != depth - 1 || step >= path.length) {
+      return false;
+    }
+
+    if (step >= 0) {
+      if (!nameMatches(path[step], namespaceURI, localName)) {
+        return false;
+      }
+
+      final long position = ++counters[step];
+
+      if (path[step].position() != -1 && position != path[step].position()) {
+        return false;
+      }
+    }
+
+    matched = depth;
+    counters[step + 1] = 0;
+
+    return step == path.length - 1;
+  }
+}
@@ -0,0 +1,130 @@
+package net.pincette.xml.internal;
+
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Gives each pair of namespace URI and local name a number, starting from 0. A lookup takes the
+ * strings that come with the SAX events and doesn't allocate anything, so filters can match names
+ * on every start tag cheaply. A <code>null</code> namespace URI is the same as the empty string.
+ *
+ * <p>Interning is not thread-safe. A table that is not changed anymore can be shared.
+ *
+ * @author Werner Donné
+ */
+public class SymbolTable {
+  /** The result of a lookup for a name that is not in the table. */
+  public static final int NONE = -1;
+
+  private static final int INITIAL_SIZE = 8;
+
+  private int[] ids = newSlots(INITIAL_SIZE * 2);
+  private String[] localNames = new String[INITIAL_SIZE];
+  private QName[] names = new QName[INITIAL_SIZE];
+  private String[] namespaceURIs = new String[INITIAL_SIZE];
+  private int size;
+
+  /** Removes all names and gives back the space they took. The numbers start from 0 again. */
+  public void clear() {
+    ids = newSlots(INITIAL_SIZE * 2);
+    localNames = new String[INITIAL_SIZE];
+    names = new QName[INITIAL_SIZE];
+    namespaceURIs = new String[INITIAL_SIZE];
+    size = 0;
+  }
+
+  private static int hash(final String namespaceURI, final String localName) {
+    final int h = namespaceURI.hashCode() * 31 + localName.hashCode();
+
+    return h ^ (h >>> 16);
+  }
+
+  /** Returns the number of the name, which is added when it is not in the table yet. */
+  public int intern(final String namespaceURI, final String localName) {
+    final String uri = normalize(namespaceURI);
+    final int slot = slot(uri, localName);
+
+    if (ids[slot] != NONE) {
+      return ids[slot];
+    }
+
+    if (size == names.length) {
+      names = copyOf(names, size * 2);
+      namespaceURIs = copyOf(namespaceURIs, size * 2);
+      localNames = copyOf(localNames, size * 2);
+    }
+
+    names[size] = new QName(uri, localName);
+    namespaceURIs[size] = uri;
+    localNames[size] = localName;
+    ids[slot] = size;
+
+    if (++size * 2 > ids.length) {
+      rehash();
+    }
+
+    return size - 1;
+  }
+
+  public int intern(final QName name) {
+    return intern(name.getNamespaceURI(), name.getLocalPart());
+  }
+
+  /** Returns the number of the name or <code>NONE</code> if it is not in the table. */
+  public int lookup(final String namespaceURI, final String localName) {
+    return ids[slot(normalize(namespaceURI), localName)];
+  }
+
+  public int lookup(final QName name) {
+    return lookup(name.getNamespaceURI(), name.getLocalPart());
+  }
+
+  /** Returns the name with number <code>id</code>. */
+  public QName name(final int id) {
+    return names[id];
+  }
+
+  private static int[] newSlots(final int size) {
+    final int[] result = new int[size];
+
+    fill(result, NONE);
+
+    return result;
+  }
+
+  private static String normalize(final String namespaceURI) {
+    return namespaceURI != null ? namespaceURI : "";
+  }
+
+  private void rehash() {
+    ids = newSlots(ids.length * 2);
+
+    for (int i = 0; i < size; ++i) {
+      ids[slot(namespaceURIs[i], localNames[i])] = i;
+    }
+  }
+
+  private static boolean same(final String s1, final String s2) {
+    return s1 == s2 || s1.equals(s2);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** Returns the slot of the name or the free slot where it should go. */
+  private int slot(final String namespaceURI, final String localName) {
+    final int mask = ids.length - 1;
+
+    for (int i = hash(namespaceURI, localName) & mask; ; i = (i + 1) & mask) {
+      final int id = ids[i];
+
+      if (id == NONE
+          || (same(localNames[id], localName) && same(namespaceURIs[id], namespaceURI))) {
+        return i;
+      }
+    }
+  }
+}
@@ -22,15 +22,17 @@ import org.xml.sax.helpers.XMLFilterImpl;
 
 /**
  * With this class, a SAX stream can be accumulated in a DOM document. An instance of it can be
- * reused. The client must call <code>startDocument</code> and <code>endDocument</code>.
+ * reused. The client must call <code>startDocument</code> and <code>endDocument</code>. When the
+ * accumulator has created the document itself, <code>reset</code> drops it.
  *
  * @author Werner Donné
  */
-public class Accumulator extends XMLFilterImpl {
+public class Accumulator extends XMLFilterImpl implements Resettable {
   private static final DocumentBuilder documentBuilder = createDocumentBuilder();
 
   private Node currentNode = null;
   private Document document = null;
+  private boolean ownDocument;
   private final Deque<Map<String, String>> prefixMappings = new ArrayDeque<>();
   private Result result = null;
 
@@ -188,6 +190,17 @@ public class Accumulator extends XMLFilterImpl {
     currentNode.appendChild(document.createProcessingInstruction(target, data));
   }
 
+  public void reset() {
+    currentNode = null;
+    prefixMappings.clear();
+
+    // A given document belongs to the caller. The own one would keep the last tree alive.
+    if (ownDocument) {
+      document = null;
+      ownDocument = false;
+    }
+  }
+
   @Override
   public void setDocumentLocator(final Locator locator) {
     // Not needed.
@@ -202,6 +215,7 @@ public class Accumulator extends XMLFilterImpl {
   public void startDocument() {
     if (document == null) {
       document = tryToGetRethrow(documentBuilder::newDocument).orElse(null);
+      ownDocument = true;
     } else if (document.getDocumentElement() != null) {
       document.removeChild(document.getDocumentElement());
     }
@@ -0,0 +1,293 @@
+package net.pincette.xml.sax;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * A <code>Tee</code> that drives each tube on its own thread. The events are copied once into
+ * batches, which are shared by the bounded queues of the tubes. A slow tube therefore doesn't hold
+ * up the others or the parser, unless its queue is full. What happens then depends on the
+ * backpressure mode. The content handler of the filter itself is called on the parsing thread.
+ * The threads come from a shared pool and the batches are recycled when all tubes have replayed
+ * them.
+ *
+ * <p>The filter waits for all tubes in <code>endDocument</code>. If a tube failed, the first
+ * exception is thrown there and the others are added to it as suppressed exceptions. A tube that
+ * failed doesn't receive events anymore. The document locator is not passed to the tubes.
+ *
+ * <p>When the parse fails or a fatal error is reported the tubes are stopped. If the filter is
+ * driven by something else than its <code>parse</code> methods and a document can be abandoned,
+ * then <code>reset</code> should be called, otherwise the tubes keep waiting for the rest of the
+ * document.
+ *
+ * @author Werner Donné
+ */
+public class AsyncTee extends XMLFilterImpl implements Resettable {
+  private static final int BATCH_SIZE = 256;
+  private static final int FREE_BATCHES = 32;
+
+  private final Backpressure backpressure;
+  private final BlockingQueue<EventBatch> free = new ArrayBlockingQueue<>(FREE_BATCHES);
+  private final ContentHandler[] tubes;
+  private EventBatch current;
+  private Worker[] workers;
+
+  public AsyncTee(final ContentHandler[] tubes) {
+    this(tubes, Backpressure.BLOCK);
+  }
+
+  public AsyncTee(final ContentHandler[] tubes, final Backpressure backpressure) {
+    this.tubes = tubes;
+    this.backpressure = backpressure;
+  }
+
+  public AsyncTee(
+      final ContentHandler[] tubes, final Backpressure backpressure, final XMLReader parent) {
+    super(parent);
+    this.tubes = tubes;
+    this.backpressure = backpressure;
+  }
+
+  private void add() throws SAXException {
+    if (current.isFull()) {
+      send(false);
+    }
+  }
+
+  @Override
+  public void characters(final char[] ch, final int start, final int length) throws SAXException {
+    current.characters(ch, start, length);
+    add();
+    super.characters(ch, start, length);
+  }
+
+  private EventBatch batch() {
+    final EventBatch batch = free.poll();
+
+    return batch != null ? batch : new EventBatch(BATCH_SIZE);
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    current.endDocument();
+    send(true);
+
+    try {
+      super.endDocument();
+    } finally {
+      waitForTubes();
+    }
+  }
+
+  @Override
+  public void endElement(final String namespaceURI, final String localName, final String qName)
+      throws SAXException {
+    current.endElement(namespaceURI, localName, qName);
+    add();
+    super.endElement(namespaceURI, localName, qName);
+  }
+
+  @Override
+  public void endPrefixMapping(final String prefix) throws SAXException {
+    current.endPrefixMapping(prefix);
+    add();
+    super.endPrefixMapping(prefix);
+  }
+
+  @Override
+  public void fatalError(final SAXParseException exception) throws SAXException {
+    stopTubes();
+    super.fatalError(exception);
+  }
+
+  /**
+   * Returns the number of events that were not delivered to each tube in the current or last
+   * document. This can only be non-zero in the <code>DROP</code> mode.
+   */
+  public long[] getDropped() {
+    final long[] result = new long[tubes.length];
+
+    if (workers != null) {
+      for (int i = 0; i < workers.length; ++i) {
+        result[i] = workers[i].dropped;
+      }
+    }
+
+    return result;
+  }
+
+  @Override
+  public void ignorableWhitespace(final char[] ch, final int start, final int length)
+      throws SAXException {
+    current.ignorableWhitespace(ch, start, length);
+    add();
+    super.ignorableWhitespace(ch, start, length);
+  }
+
+  @Override
+  public void parse(final InputSource input) throws IOException, SAXException {
+    try {
+      super.parse(input);
+    } finally {
+      stopTubes();
+    }
+  }
+
+  @Override
+  public void parse(final String systemId) throws IOException, SAXException {
+    try {
+      super.parse(systemId);
+    } finally {
+      stopTubes();
+    }
+  }
+
+  @Override
+  public void processingInstruction(final String target, final String data) throws SAXException {
+    current.processingInstruction(target, data);
+    add();
+    super.processingInstruction(target, data);
+  }
+
+  private void release(final EventBatch batch) {
+    if (batch.release()) {
+      batch.clear();
+      free.offer(batch);
+    }
+  }
+
+  public void reset() {
+    stopTubes();
+    workers = null;
+    current = null;
+  }
+
+  private void send(final boolean last) throws SAXException {
+    final EventBatch batch = current;
+
+    current = batch();
+    batch.share(workers.length);
+
+    for (final Worker worker : workers) {
+      worker.send(batch, last);
+    }
+  }
+
+  @Override
+  public void skippedEntity(final String name) throws SAXException {
+    current.skippedEntity(name);
+    add();
+    super.skippedEntity(name);
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    stopTubes();
+    current = batch();
+    workers = new Worker[tubes.length];
+
+    for (int i = 0; i < tubes.length; ++i) {
+      workers[i] = new Worker(tubes[i]);
+    }
+
+    current.startDocument();
+    add();
+    super.startDocument();
+  }
+
+  @Override
+  public void startElement(
+      final String namespaceURI, final String localName, final String qName, final Attributes atts)
+      throws SAXException {
+    current.startElement(namespaceURI, localName, qName, atts);
+    add();
+    super.startElement(namespaceURI, localName, qName, atts);
+  }
+
+  @Override
+  public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+    current.startPrefixMapping(prefix, uri);
+    add();
+    super.startPrefixMapping(prefix, uri);
+  }
+
+  /** Stops the tubes of a document that was never completed. */
+  private void stopTubes() {
+    if (workers != null) {
+      for (final Worker worker : workers) {
+        worker.tube.stop();
+      }
+    }
+  }
+
+  private void waitForTubes() throws SAXException {
+    SAXException exception = null;
+
+    for (final Worker worker : workers) {
+      try {
+        worker.tube.await();
+      } catch (SAXException e) {
+        if (exception == null) {
+          exception = e;
+        } else {
+          exception.addSuppressed(e);
+        }
+      }
+    }
+
+    if (exception != null) {
+      throw exception;
+    }
+  }
+
+  /** What happens when the queue of a tube is full. */
+  public enum Backpressure {
+    /** The parsing thread waits until there is room in the queue. */
+    BLOCK,
+
+    /**
+     * The tube is detached for the rest of the document, so it never sees an inconsistent stream.
+     * It doesn't receive the end of the document. The dropped events are counted.
+     */
+    DROP
+  }
+
+  private class Worker {
+    private final BatchWorker tube;
+    private boolean detached;
+    private volatile long dropped;
+
+    private Worker(final ContentHandler tube) {
+      this.tube = new BatchWorker(() -> tube, AsyncTee.this::release);
+    }
+
+    private void drop(final EventBatch batch) {
+      detached = true;
+      dropped += batch.size();
+      release(batch);
+    }
+
+    private void send(final EventBatch batch, final boolean last) throws SAXException {
+      if (backpressure == Backpressure.BLOCK) {
+        tube.put(batch, last);
+      } else {
+        if (detached || !tube.offer(batch, last)) {
+          drop(batch);
+        }
+
+        // The end is only queued when there is room, because the parser should never wait.
+        if (detached && last && !tube.offer(null, true)) {
+          tube.stop();
+        }
+      }
+    }
+  }
+}
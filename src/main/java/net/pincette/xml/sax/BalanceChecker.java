@@ -9,6 +9,7 @@ import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Deque;
 import javax.xml.namespace.QName;
+import net.pincette.xml.internal.SymbolTable;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
@@ -20,6 +21,7 @@ import org.xml.sax.helpers.XMLFilterImpl;
 public class BalanceChecker extends XMLFilterImpl {
   private final Deque<QName> elements = new ArrayDeque<>();
   private final File file;
+  private final SymbolTable names = new SymbolTable();
   private int indent = 0;
   private PrintStream out;
 
@@ -45,14 +47,14 @@ public class BalanceChecker extends XMLFilterImpl {
   @Override
   public void endElement(final String namespaceURI, final String localName, final String qName)
       throws SAXException {
-    final QName element = new QName(namespaceURI, localName);
+    final QName element = names.name(names.intern(namespaceURI, localName));
 
     if (elements.isEmpty()) {
       write("Closing " + element + " while no open elements are left.");
     } else {
       final QName name = elements.pop();
 
-      if (!name.equals(element)) {
+      if (name != element) {
         write("Closing " + element + " while expecting " + name + ".");
       }
     }
@@ -70,6 +72,10 @@ public class BalanceChecker extends XMLFilterImpl {
 
   @Override
   public void startDocument() throws SAXException {
+    // The names are only compared within a document, so the table doesn't grow across documents.
+    names.clear();
+    elements.clear();
+    indent = 0;
     openWriter();
     super.startDocument();
   }
@@ -80,7 +86,7 @@ public class BalanceChecker extends XMLFilterImpl {
       throws SAXException {
     openWriter();
 
-    final QName name = new QName(namespaceURI, localName);
+    final QName name = names.name(names.intern(namespaceURI, localName));
 
     write("<" + name + ">");
     indent += 2;
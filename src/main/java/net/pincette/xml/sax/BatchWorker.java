@@ -0,0 +1,167 @@
+package net.pincette.xml.sax;
+
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Replays the batches of one document to a content handler on another thread. The threads come
+ * from a pool that is shared by all workers, so no thread is created per document. Idle threads
+ * end after a minute. A worker that is stopped before the last batch gives its thread back to the
+ * pool.
+ *
+ * <p>A batch is released after it has been replayed, also when the handler has failed. The first
+ * exception or error of the handler is kept and no more events are sent to it, but the batches
+ * are still taken until the last one, so the sender never waits for a worker that has given up. An
+ * error is rethrown as it is.
+ *
+ * @author Werner Donné
+ */
+class BatchWorker implements Runnable {
+  private static final Batch STOP = new Batch(null, true);
+  private static final ExecutorService EXECUTOR = newCachedThreadPool(BatchWorker::newThread);
+  private static final long POLL_INTERVAL = 100;
+  private static final int QUEUE_SIZE = 16;
+
+  private final Supplier<ContentHandler> handler;
+  private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+  private final Consumer<EventBatch> release;
+  private final Future<?> task;
+  private volatile Throwable error;
+  private volatile boolean stopped;
+
+  /**
+   * Starts the worker.
+   *
+   * @param handler the handler is looked up for each event.
+   * @param release called on the worker thread when a batch has been replayed.
+   */
+  BatchWorker(final Supplier<ContentHandler> handler, final Consumer<EventBatch> release) {
+    this.handler = handler;
+    this.release = release;
+    task = EXECUTOR.submit(this);
+  }
+
+  private static Thread newThread(final Runnable runnable) {
+    final Thread thread = new Thread(runnable, "xmlfilter-worker");
+
+    thread.setDaemon(true);
+
+    return thread;
+  }
+
+  /** Waits until the last batch has been replayed and throws the exception of the handler. */
+  void await() throws SAXException {
+    if (!stopped) {
+      try {
+        task.get();
+      } catch (CancellationException e) {
+        // Stopped in the meantime.
+      } catch (ExecutionException e) {
+        throw new SAXException(e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SAXException(e);
+      }
+    }
+
+    checkError();
+  }
+
+  void checkError() throws SAXException {
+    if (error instanceof Error e) {
+      throw e;
+    }
+
+    if (error != null) {
+      throw error instanceof SAXException e ? e : new SAXException((Exception) error);
+    }
+  }
+
+  /**
+   * Tries to queue the batch without waiting.
+   *
+   * @param events the events, which may be <code>null</code> for the last batch.
+   * @param last marks the end of the document.
+   * @return <code>false</code> when the queue is full.
+   */
+  boolean offer(final EventBatch events, final boolean last) {
+    return queue.offer(new Batch(events, last));
+  }
+
+  /**
+   * Queues the batch and waits when the queue is full. It fails when the worker has ended before
+   * the last batch.
+   *
+   * @param events the events, which may be <code>null</code> for the last batch.
+   * @param last marks the end of the document.
+   */
+  void put(final EventBatch events, final boolean last) throws SAXException {
+    final Batch batch = new Batch(events, last);
+
+    try {
+      while (!queue.offer(batch, POLL_INTERVAL, MILLISECONDS)) {
+        if (task.isDone()) {
+          checkError();
+          throw new SAXException("The worker has ended before the end of the document.");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SAXException(e);
+    }
+  }
+
+  public void run() {
+    try {
+      for (Batch batch = queue.take(); !stopped; batch = queue.take()) {
+        if (batch.events != null) {
+          replay(batch.events);
+        }
+
+        if (batch.last) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void replay(final EventBatch events) {
+    if (error == null) {
+      try {
+        events.replay(handler);
+      } catch (Throwable e) {
+        error = e;
+      }
+    }
+
+    release.accept(events);
+  }
+
+  /**
+   * Stops the worker when it hasn't seen the last batch yet. The queued batches are dropped. This
+   * should be called on the thread that sends the batches.
+   */
+  void stop() {
+    if (!task.isDone()) {
+      stopped = true;
+      queue.clear();
+      queue.offer(STOP);
+      task.cancel(true);
+    }
+  }
+
+  private record Batch(EventBatch events, boolean last) {}
+}
@@ -0,0 +1,339 @@
+package net.pincette.xml.sax;
+
+import static java.lang.System.nanoTime;
+import static java.util.Arrays.fill;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import net.pincette.xml.sax.SelectiveFilter.Callback;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLFilter;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Collects the number of events, the amount of character data and the time for each stage of a
+ * <code>FilterOfFilters</code>. The events are always counted. The clock is only read for one in
+ * <code>sampleInterval</code> events that enter the chain, together with everything the stages do
+ * for it. The time of a stage doesn't include the time spent in the stages after it or in the
+ * content handler of the chain. The output of the chain is not changed.
+ *
+ * <p>A profiler can be used for only one chain. It is not thread-safe, because the counters are
+ * plain fields that are updated for every event. Take snapshots and reset the profiler on the
+ * thread that runs the chain, for example between documents.
+ *
+ * @author Werner Donné
+ */
+public class ChainProfiler {
+  private static final Set<Callback> ALL = unmodifiableSet(EnumSet.allOf(Callback.class));
+  private static final Callback[] CALLBACKS = Callback.values();
+  private static final int NONE = -1;
+
+  private final int sampleInterval;
+  private long calls;
+  private long[] characters = new long[0];
+  private int current = NONE;
+  private int depth;
+  private long[][] events = new long[0][];
+  private long mark;
+  private String[] names = new String[0];
+  private long[] nanos = new long[0];
+  private long samples;
+  private boolean sampling;
+
+  public ChainProfiler() {
+    this(64);
+  }
+
+  /**
+   * @param sampleInterval the time is measured for one in <code>sampleInterval</code> events. With
+   *     1 every event is measured.
+   */
+  public ChainProfiler(final int sampleInterval) {
+    if (sampleInterval < 1) {
+      throw new IllegalArgumentException("The sample interval should be at least 1.");
+    }
+
+    this.sampleInterval = sampleInterval;
+  }
+
+  /**
+   * Puts a probe in front of each filter and one after the last filter. This can be called only
+   * once.
+   */
+  XMLFilter[] addProbes(final XMLFilter[] filters) {
+    if (names.length > 0) {
+      throw new IllegalStateException("The profiler is already used for another chain.");
+    }
+
+    final XMLFilter[] result = new XMLFilter[filters.length * 2 + 1];
+
+    names = new String[filters.length];
+    events = new long[filters.length][CALLBACKS.length];
+    characters = new long[filters.length];
+    nanos = new long[filters.length];
+
+    for (int i = 0; i < filters.length; ++i) {
+      names[i] = filters[i].toString();
+      result[i * 2] =
+          new Probe(i, filters[i] instanceof SelectiveFilter f ? f.getCallbacks() : ALL);
+      result[i * 2 + 1] = filters[i];
+    }
+
+    result[filters.length * 2] = new Probe(filters.length, ALL);
+
+    return result;
+  }
+
+  private void charge(final long now) {
+    if (current != NONE && current < nanos.length) {
+      nanos[current] += now - mark;
+    }
+
+    mark = now;
+  }
+
+  private int enter(final int stage, final Callback callback, final int length) {
+    if (stage < events.length) {
+      ++events[stage][callback.ordinal()];
+      characters[stage] += length;
+    }
+
+    if (depth++ == 0) {
+      sampling = calls++ % sampleInterval == 0;
+
+      if (sampling) {
+        ++samples;
+      }
+    }
+
+    if (!sampling) {
+      return NONE;
+    }
+
+    final int previous = current;
+
+    charge(nanoTime());
+    current = stage;
+
+    return previous;
+  }
+
+  private void exit(final int previous) {
+    if (sampling) {
+      charge(nanoTime());
+      current = previous;
+    }
+
+    --depth;
+  }
+
+  public int getSampleInterval() {
+    return sampleInterval;
+  }
+
+  /** Sets all counters to zero. */
+  public void reset() {
+    calls = 0;
+    samples = 0;
+
+    for (int i = 0; i < names.length; ++i) {
+      fill(events[i], 0);
+      characters[i] = 0;
+      nanos[i] = 0;
+    }
+  }
+
+  /**
+   * Returns the figures for each stage in the order of the chain. The time of a stage is
+   * extrapolated from the sampled events.
+   */
+  public List<Stage> snapshot() {
+    final long c = calls;
+    final long s = samples;
+    final List<Stage> result = new ArrayList<>(names.length);
+
+    for (int i = 0; i < names.length; ++i) {
+      final Map<Callback, Long> counts = new EnumMap<>(Callback.class);
+
+      for (final Callback callback : CALLBACKS) {
+        counts.put(callback, events[i][callback.ordinal()]);
+      }
+
+      result.add(
+          new Stage(
+              names[i],
+              unmodifiableMap(counts),
+              characters[i],
+              s > 0 ? (long) (nanos[i] * ((double) c / s)) : 0));
+    }
+
+    return result;
+  }
+
+  /**
+   * The figures for one stage.
+   *
+   * @param name the string representation of the filter.
+   * @param events the number of events the filter has received per callback.
+   * @param characters the number of characters the filter has received through <code>characters
+   *     </code> and <code>ignorableWhitespace</code>.
+   * @param nanos the estimated time the filter has used in nanoseconds.
+   */
+  public record Stage(String name, Map<Callback, Long> events, long characters, long nanos) {
+    public long totalEvents() {
+      return events.values().stream().mapToLong(Long::longValue).sum();
+    }
+  }
+
+  private class Probe extends XMLFilterImpl implements SelectiveFilter {
+    private final Set<Callback> callbacks;
+    private final int stage;
+
+    private Probe(final int stage, final Set<Callback> callbacks) {
+      this.stage = stage;
+      this.callbacks = callbacks;
+    }
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length)
+        throws SAXException {
+      final int previous = enter(stage, Callback.CHARACTERS, length);
+
+      try {
+        super.characters(ch, start, length);
+      } finally {
+        exit(previous);
+      }
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+      final int previous = enter(stage, Callback.END_DOCUMENT, 0);
+
+      try {
+        super.endDocument();
+      } finally {
+        exit(previous);
+      }
+    }
+
+    @Override
+    public void endElement(final String namespaceURI, final String localName, final String qName)
+        throws SAXException {
+      final int previous = enter(stage, Callback.END_ELEMENT, 0);
+
+      try {
+        super.endElement(namespaceURI, localName, qName);
+      } finally {
+        exit(previous);
+      }
+    }
+
+    @Override
+    public void endPrefixMapping(final String prefix) throws SAXException {
+      final int previous = enter(stage, Callback.END_PREFIX_MAPPING, 0);
+
+      try {
+        super.endPrefixMapping(prefix);
+      } finally {
+        exit(previous);
+      }
+    }
+
+    public Set<Callback> getCallbacks() {
+      return callbacks;
+    }
+
+    @Override
+    public void ignorableWhitespace(final char[] ch, final int start, final int length)
+        throws SAXException {
+      final int previous = enter(stage, Callback.IGNORABLE_WHITESPACE, length);
+
+      try {
+        super.ignorableWhitespace(ch, start, length);
+      } finally {
+        exit(previous);
+      }
+    }
+
+    @Override
+    public void processingInstruction(final String target, final String data)
+        throws SAXException {
+      final int previous = enter(stage, Callback.PROCESSING_INSTRUCTION, 0);
+
+      try {
+        super.processingInstruction(target, data);
+      } finally {
+        exit(previous);
+      }
+    }
+
+    @Override
+    public void setDocumentLocator(final Locator locator) {
+      final int previous = enter(stage, Callback.SET_DOCUMENT_LOCATOR, 0);
+
+      try {
+        super.setDocumentLocator(locator);
+      } finally {
+        exit(previous);
+      }
+    }
+
+    @Override
+    public void skippedEntity(final String name) throws SAXException {
+      final int previous = enter(stage, Callback.SKIPPED_ENTITY, 0);
+
+      try {
+        super.skippedEntity(name);
+      } finally {
+        exit(previous);
+      }
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+      final int previous = enter(stage, Callback.START_DOCUMENT, 0);
+
+      try {
+        super.startDocument();
+      } finally {
+        exit(previous);
+      }
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts)
+        throws SAXException {
+      final int previous = enter(stage, Callback.START_ELEMENT, 0);
+
+      try {
+        super.startElement(namespaceURI, localName, qName, atts);
+      } finally {
+        exit(previous);
+      }
+    }
+
+    @Override
+    public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+      final int previous = enter(stage, Callback.START_PREFIX_MAPPING, 0);
+
+      try {
+        super.startPrefixMapping(prefix, uri);
+      } finally {
+        exit(previous);
+      }
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package net.pincette.xml.sax;
+
+import static java.util.Arrays.stream;
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import net.pincette.xml.internal.SimplePath;
+import net.pincette.xml.internal.SimplePath.Step;
+import net.pincette.xml.sax.SimpleXPath.PathElement;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+/**
+ * A <code>SimpleXPath</code> expression that is parsed only once. The evaluator walks the child
+ * elements directly and stops at a step as soon as its position is reached. Positions start at 1.
+ * Instances are immutable and can be shared between threads. The <code>compile</code> method
+ * caches them.
+ *
+ * @author Werner Donné
+ */
+public class CompiledSimpleXPath {
+  private static final Map<Key, CompiledSimpleXPath> CACHE = new ConcurrentHashMap<>();
+  private static final int CACHE_SIZE = 1000;
+
+  private final SimplePath path;
+  private final Step[] steps;
+
+  /**
+   * Creates an expression from path elements.
+   *
+   * @param path the steps of the expression.
+   * @param relative when <code>false</code> the first step should match the document element.
+   */
+  public CompiledSimpleXPath(final PathElement[] path, final boolean relative) {
+    this(
+        new SimplePath(
+            stream(path)
+                .map(e -> new Step(e.namespaceURI(), e.localName(), e.position()))
+                .toArray(Step[]::new),
+            relative));
+  }
+
+  private CompiledSimpleXPath(final SimplePath path) {
+    this.path = path;
+    this.steps = path.getSteps();
+  }
+
+  /**
+   * Returns the compiled expression from the cache or compiles it. When the cache becomes too
+   * large it is emptied.
+   *
+   * @param expression the expression.
+   * @param namespacePrefixMap maps prefixes to URIs. It may be <code>null</code>. The key of the
+   *     default namespace is the empty string.
+   * @return The compiled expression.
+   */
+  public static CompiledSimpleXPath compile(
+      final String expression, final Map<String, String> namespacePrefixMap) {
+    final Key key = new Key(expression, namespacePrefixMap != null ? namespacePrefixMap : Map.of());
+    final CompiledSimpleXPath cached = CACHE.get(key);
+
+    if (cached != null) {
+      return cached;
+    }
+
+    final CompiledSimpleXPath compiled =
+        new CompiledSimpleXPath(SimplePath.parse(expression, key.namespaces));
+
+    if (CACHE.size() >= CACHE_SIZE) {
+      CACHE.clear();
+    }
+
+    CACHE.put(new Key(expression, unmodifiableMap(new HashMap<>(key.namespaces))), compiled);
+
+    return compiled;
+  }
+
+  private static Node document(final Node node) {
+    return node instanceof Document ? node : node.getOwnerDocument();
+  }
+
+  private static boolean matches(final Node node, final Step element) {
+    return node instanceof Element
+        && (element.isWildcard() || Objects.equals(node.getLocalName(), element.localName()))
+        && Objects.equals(node.getNamespaceURI(), element.namespaceURI());
+  }
+
+  private static void matchingChildren(
+      final Node node, final Step element, final List<Node> result) {
+    long position = 0;
+
+    for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+      if (matches(child, element)) {
+        ++position;
+
+        if (element.position() == -1) {
+          result.add(child);
+        } else if (position == element.position()) {
+          result.add(child);
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Evaluates the expression. A relative expression starts from the children of the context node.
+   * An absolute one starts from its document.
+   *
+   * @param contextNode the node the expression is evaluated against.
+   * @return The selected elements in document order.
+   */
+  public Element[] evaluate(final Node contextNode) {
+    List<Node> current = new ArrayList<>();
+    final Node start =
+        contextNode != null && !path.isRelative() ? document(contextNode) : contextNode;
+
+    if (start != null) {
+      current.add(start);
+    }
+
+    for (int i = 0; i < steps.length && !current.isEmpty(); ++i) {
+      final List<Node> next = new ArrayList<>();
+
+      for (final Node node : current) {
+        matchingChildren(node, steps[i], next);
+      }
+
+      current = next;
+    }
+
+    return current.toArray(Element[]::new);
+  }
+
+  public PathElement[] getPath() {
+    return stream(steps)
+        .map(s -> new PathElement(s.namespaceURI(), s.localName(), s.position()))
+        .toArray(PathElement[]::new);
+  }
+
+  public boolean isRelative() {
+    return path.isRelative();
+  }
+
+  SimplePath simplePath() {
+    return path;
+  }
+
+  private record Key(String expression, Map<String, String> namespaces) {}
+}
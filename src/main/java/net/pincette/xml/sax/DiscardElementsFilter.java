@@ -1,12 +1,9 @@
 package net.pincette.xml.sax;
 
-import static java.util.Arrays.asList;
+import static net.pincette.xml.internal.SymbolTable.NONE;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashSet;
-import java.util.Set;
 import javax.xml.namespace.QName;
+import net.pincette.xml.internal.SymbolTable;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
@@ -17,9 +14,9 @@ import org.xml.sax.helpers.XMLFilterImpl;
  *
  * @author Werner Donné
  */
-public class DiscardElementsFilter extends XMLFilterImpl {
-  private final Deque<QName> stack = new ArrayDeque<>();
-  private final Set<QName> names;
+public class DiscardElementsFilter extends XMLFilterImpl implements Resettable {
+  private final SymbolTable names = new SymbolTable();
+  private int depth;
 
   public DiscardElementsFilter(final QName[] names) {
     this(names, null);
@@ -27,12 +24,15 @@ public class DiscardElementsFilter extends XMLFilterImpl {
 
   public DiscardElementsFilter(final QName[] names, final XMLReader parent) {
     super(parent);
-    this.names = new HashSet<>(asList(names));
+
+    for (final QName name : names) {
+      this.names.intern(name);
+    }
   }
 
   @Override
   public void characters(final char[] ch, final int start, final int length) throws SAXException {
-    if (stack.isEmpty()) {
+    if (depth == 0) {
       super.characters(ch, start, length);
     }
   }
@@ -40,8 +40,8 @@ public class DiscardElementsFilter extends XMLFilterImpl {
   @Override
   public void endElement(final String namespaceURI, final String localName, final String qName)
       throws SAXException {
-    if (!stack.isEmpty()) {
-      stack.pop();
+    if (depth > 0) {
+      --depth;
     } else {
       super.endElement(namespaceURI, localName, qName);
     }
@@ -49,7 +49,7 @@ public class DiscardElementsFilter extends XMLFilterImpl {
 
   @Override
   public void endPrefixMapping(final String prefix) throws SAXException {
-    if (stack.isEmpty()) {
+    if (depth == 0) {
       super.endPrefixMapping(prefix);
     }
   }
@@ -57,21 +57,25 @@ public class DiscardElementsFilter extends XMLFilterImpl {
   @Override
   public void ignorableWhitespace(final char[] ch, final int start, final int length)
       throws SAXException {
-    if (stack.isEmpty()) {
+    if (depth == 0) {
       super.ignorableWhitespace(ch, start, length);
     }
   }
 
   @Override
   public void processingInstruction(final String target, final String data) throws SAXException {
-    if (stack.isEmpty()) {
+    if (depth == 0) {
       super.processingInstruction(target, data);
     }
   }
 
+  public void reset() {
+    depth = 0;
+  }
+
   @Override
   public void skippedEntity(final String name) throws SAXException {
-    if (stack.isEmpty()) {
+    if (depth == 0) {
       super.skippedEntity(name);
     }
   }
@@ -80,8 +84,8 @@ public class DiscardElementsFilter extends XMLFilterImpl {
   public void startElement(
       final String namespaceURI, final String localName, final String qName, final Attributes atts)
       throws SAXException {
-    if (!stack.isEmpty() || names.contains(new QName(namespaceURI, localName))) {
-      stack.push(new QName(namespaceURI, localName));
+    if (depth > 0 || names.lookup(namespaceURI, localName) != NONE) {
+      ++depth;
     } else {
       super.startElement(namespaceURI, localName, qName, atts);
     }
@@ -89,7 +93,7 @@ public class DiscardElementsFilter extends XMLFilterImpl {
 
   @Override
   public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
-    if (stack.isEmpty()) {
+    if (depth == 0) {
       super.startPrefixMapping(prefix, uri);
     }
   }
@@ -1,16 +1,14 @@
 package net.pincette.xml.sax;
 
-import static java.util.Optional.ofNullable;
-import static net.pincette.util.StreamUtil.stream;
-import static net.pincette.util.Util.tryToDoRethrow;
+import static java.util.Arrays.copyOf;
+import static java.util.Collections.unmodifiableSet;
 import static net.pincette.xml.sax.Util.attributes;
 import static net.pincette.xml.sax.Util.reduce;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.EnumSet;
+import java.util.Set;
 import javax.xml.XMLConstants;
+import net.pincette.xml.internal.NamespaceScope;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
@@ -22,8 +20,22 @@ import org.xml.sax.helpers.XMLFilterImpl;
  *
  * @author Werner Donné
  */
-public class DuplicateNamespaceFilter extends XMLFilterImpl {
-  private final Deque<Element> elements = new ArrayDeque<>();
+public class DuplicateNamespaceFilter extends XMLFilterImpl
+    implements Resettable, SelectiveFilter {
+  private static final Set<Callback> CALLBACKS =
+      unmodifiableSet(
+          EnumSet.of(
+              Callback.END_DOCUMENT,
+              Callback.END_ELEMENT,
+              Callback.END_PREFIX_MAPPING,
+              Callback.START_DOCUMENT,
+              Callback.START_ELEMENT,
+              Callback.START_PREFIX_MAPPING));
+
+  private final NamespaceScope scope = new NamespaceScope();
+  private boolean open;
+  private boolean popPending;
+  private int[] synthetic = new int[16];
 
   public DuplicateNamespaceFilter() {}
 
@@ -33,32 +45,63 @@ public class DuplicateNamespaceFilter extends XMLFilterImpl {
 
   @Override
   public void endDocument() throws SAXException {
-    elements.pop();
+    reset();
     super.endDocument();
   }
 
   @Override
   public void endElement(final String namespaceURI, final String localName, final String qName)
       throws SAXException {
+    settle();
     super.endElement(namespaceURI, localName, qName);
-    elements
-        .pop()
-        .syntheticPrefixMap
-        .keySet()
-        .forEach(k -> tryToDoRethrow(() -> endPrefixMapping(k)));
+
+    for (int i = scope.getDeclarationCount() - synthetic[scope.getDepth()];
+        i < scope.getDeclarationCount();
+        ++i) {
+      super.endPrefixMapping(scope.getDeclaredPrefix(i));
+    }
+
+    // The scope of the element is removed after its end prefix mapping events.
+    popPending = true;
   }
 
   @Override
   public void endPrefixMapping(final String prefix) throws SAXException {
-    ofNullable(elements.peek())
-        .filter(e -> e.prefixMap.remove(prefix) != null)
-        .ifPresent(p -> tryToDoRethrow(() -> super.endPrefixMapping(prefix)));
+    if (scope.declares(prefix)) {
+      super.endPrefixMapping(prefix);
+    }
+  }
+
+  public Set<Callback> getCallbacks() {
+    return CALLBACKS;
+  }
+
+  private static boolean hasNamespaceAttributes(final Attributes atts) {
+    for (int i = 0; i < atts.getLength(); ++i) {
+      if (atts.getLocalName(i).startsWith(XMLConstants.XMLNS_ATTRIBUTE)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private boolean isInScope(final String prefix, final String uri) {
+    return uri.equals(scope.getNamespaceURI(prefix));
   }
 
   private static boolean isNamespace(final Attribute attribute) {
     return attribute.localName.startsWith(XMLConstants.XMLNS_ATTRIBUTE);
   }
 
+  /** The prefix mapping events come before the element, so its scope is opened by the first. */
+  private void openScope() {
+    if (!open) {
+      scope.push();
+      open = true;
+    }
+  }
+
   private static String prefix(final Attribute attribute) {
     return attribute.localName.indexOf(':') != -1
         ? attribute.localName.substring(attribute.localName.indexOf(':') + 1)
@@ -69,10 +112,22 @@ public class DuplicateNamespaceFilter extends XMLFilterImpl {
     return reduce(attributes(atts).filter(a -> !isNamespace(a)));
   }
 
+  public void reset() {
+    scope.clear();
+    open = false;
+    popPending = false;
+  }
+
+  private void settle() {
+    if (popPending) {
+      scope.pop();
+      popPending = false;
+    }
+  }
+
   @Override
   public void startDocument() throws SAXException {
-    elements.push(new Element());
-    // An extra level because prefix mapping events come around an element.
+    reset();
     super.startDocument();
   }
 
@@ -80,28 +135,43 @@ public class DuplicateNamespaceFilter extends XMLFilterImpl {
   public void startElement(
       final String namespaceURI, final String localName, final String qName, final Attributes atts)
       throws SAXException {
-    ofNullable(elements.peek())
-        .map(element -> element.syntheticPrefixMap)
-        .ifPresent(
-            prefixMap ->
-                attributes(atts)
-                    .filter(DuplicateNamespaceFilter::isNamespace)
-                    .forEach(a -> tryToDoRethrow(() -> startPrefixMapping(prefix(a), a.value))));
+    settle();
+    openScope();
+    open = false;
+
+    final int count = scope.getDeclarationCount();
+    final boolean namespaceAttributes = hasNamespaceAttributes(atts);
+
+    if (namespaceAttributes) {
+      for (final Attribute attribute :
+          attributes(atts).filter(DuplicateNamespaceFilter::isNamespace).toList()) {
+        if (!isInScope(prefix(attribute), attribute.value)) {
+          scope.declare(prefix(attribute), attribute.value);
+          super.startPrefixMapping(prefix(attribute), attribute.value);
+        }
+      }
+    }
+
+    if (scope.getDepth() == synthetic.length) {
+      synthetic = copyOf(synthetic, synthetic.length * 2);
+    }
 
-    elements.push(new Element());
-    super.startElement(namespaceURI, localName, qName, removeNamespaceAttributes(atts));
+    synthetic[scope.getDepth()] = scope.getDeclarationCount() - count;
+    super.startElement(
+        namespaceURI,
+        localName,
+        qName,
+        namespaceAttributes ? removeNamespaceAttributes(atts) : atts);
   }
 
   @Override
   public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
-    if (stream(elements.descendingIterator()).noneMatch(e -> uri.equals(e.prefixMap.get(prefix)))) {
-      ofNullable(elements.peek()).ifPresent(e -> e.prefixMap.put(prefix, uri));
+    settle();
+    openScope();
+
+    if (!isInScope(prefix, uri)) {
+      scope.declare(prefix, uri);
       super.startPrefixMapping(prefix, uri);
     }
   }
-
-  private static class Element {
-    private final Map<String, String> prefixMap = new HashMap<>();
-    private final Map<String, String> syntheticPrefixMap = new HashMap<>();
-  }
 }
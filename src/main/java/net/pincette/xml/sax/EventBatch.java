@@ -0,0 +1,221 @@
+package net.pincette.xml.sax;
+
+import static java.lang.Math.max;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Records SAX events, so they can be replayed to another handler, possibly on another thread.
+ * Character arrays and attributes are copied, because parsers reuse them. The events are kept in
+ * preallocated slots and the characters of all events share one array, so a batch that is cleared
+ * can be filled again without allocating. The document locator is not recorded, because it is
+ * only meaningful on the parsing thread.
+ *
+ * <p>A batch can be shared by several consumers. The last one to release it can recycle it.
+ *
+ * @author Werner Donné
+ */
+class EventBatch implements ContentHandler {
+  private static final byte CHARACTERS = 0;
+  private static final byte END_DOCUMENT = 1;
+  private static final byte END_ELEMENT = 2;
+  private static final byte END_PREFIX_MAPPING = 3;
+  private static final byte IGNORABLE_WHITESPACE = 4;
+  private static final byte PROCESSING_INSTRUCTION = 5;
+  private static final byte SKIPPED_ENTITY = 6;
+  private static final byte START_DOCUMENT = 7;
+  private static final byte START_ELEMENT = 8;
+  private static final byte START_PREFIX_MAPPING = 9;
+  private static final int STRINGS = 3;
+  private static final int TEXT_PER_EVENT = 64;
+
+  private final AttributesImpl[] attributes;
+  private final int capacity;
+  private final int[] lengths;
+  private final int[] offsets;
+  private final String[] strings;
+  private final byte[] types;
+  private final AtomicInteger users = new AtomicInteger();
+  private int size;
+  private char[] text;
+  private int textLength;
+
+  EventBatch(final int capacity) {
+    this.capacity = capacity;
+    attributes = new AttributesImpl[capacity];
+    lengths = new int[capacity];
+    offsets = new int[capacity];
+    strings = new String[capacity * STRINGS];
+    types = new byte[capacity];
+    text = new char[max(capacity, 1) * TEXT_PER_EVENT / 4];
+  }
+
+  private static void copyAttributes(final Attributes from, final AttributesImpl to) {
+    to.clear();
+
+    for (int i = 0; i < from.getLength(); ++i) {
+      to.addAttribute(
+          from.getURI(i),
+          from.getLocalName(i),
+          from.getQName(i),
+          from.getType(i),
+          from.getValue(i));
+    }
+  }
+
+  private int add(final byte type, final String s1, final String s2, final String s3) {
+    types[size] = type;
+    strings[size * STRINGS] = s1;
+    strings[size * STRINGS + 1] = s2;
+    strings[size * STRINGS + 2] = s3;
+
+    return size++;
+  }
+
+  private void addText(final byte type, final char[] ch, final int start, final int length) {
+    if (textLength + length > text.length) {
+      text = copyOf(text, max(text.length * 2, textLength + length));
+    }
+
+    System.arraycopy(ch, start, text, textLength, length);
+    offsets[size] = textLength;
+    lengths[size] = length;
+    textLength += length;
+    add(type, null, null, null);
+  }
+
+  public void characters(final char[] ch, final int start, final int length) {
+    addText(CHARACTERS, ch, start, length);
+  }
+
+  /** Empties the batch, so it can be filled again. */
+  void clear() {
+    for (int i = 0; i < size; ++i) {
+      if (types[i] == START_ELEMENT) {
+        attributes[i].clear();
+      }
+    }
+
+    fill(strings, 0, size * STRINGS, null);
+    size = 0;
+    textLength = 0;
+  }
+
+  public void endDocument() {
+    add(END_DOCUMENT, null, null, null);
+  }
+
+  public void endElement(final String namespaceURI, final String localName, final String qName) {
+    add(END_ELEMENT, namespaceURI, localName, qName);
+  }
+
+  public void endPrefixMapping(final String prefix) {
+    add(END_PREFIX_MAPPING, prefix, null, null);
+  }
+
+  public void ignorableWhitespace(final char[] ch, final int start, final int length) {
+    addText(IGNORABLE_WHITESPACE, ch, start, length);
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** A batch is full when its slots are used or when it holds a lot of text. */
+  boolean isFull() {
+    return size == capacity || textLength >= capacity * TEXT_PER_EVENT;
+  }
+
+  public void processingInstruction(final String target, final String data) {
+    add(PROCESSING_INSTRUCTION, target, data, null);
+  }
+
+  /**
+   * Returns <code>true</code> when the last consumer has released the batch.
+   *
+   * @see #share(int)
+   */
+  boolean release() {
+    return users.decrementAndGet() <= 0;
+  }
+
+  /**
+   * Sends the recorded events to the handler. The handler is looked up for each event, because it
+   * may be replaced while the events are replayed. Events for which there is no handler are
+   * skipped.
+   */
+  void replay(final Supplier<ContentHandler> handler) throws SAXException {
+    for (int i = 0; i < size; ++i) {
+      final ContentHandler h = handler.get();
+
+      if (h != null) {
+        replay(i, h);
+      }
+    }
+  }
+
+  private void replay(final int i, final ContentHandler handler) throws SAXException {
+    final int s = i * STRINGS;
+
+    switch (types[i]) {
+      case CHARACTERS -> handler.characters(text, offsets[i], lengths[i]);
+      case END_DOCUMENT -> handler.endDocument();
+      case END_ELEMENT -> handler.endElement(strings[s], strings[s + 1], strings[s + 2]);
+      case END_PREFIX_MAPPING -> handler.endPrefixMapping(strings[s]);
+      case IGNORABLE_WHITESPACE -> handler.ignorableWhitespace(text, offsets[i], lengths[i]);
+      case PROCESSING_INSTRUCTION -> handler.processingInstruction(strings[s], strings[s + 1]);
+      case SKIPPED_ENTITY -> handler.skippedEntity(strings[s]);
+      case START_DOCUMENT -> handler.startDocument();
+      case START_ELEMENT ->
+          handler.startElement(strings[s], strings[s + 1], strings[s + 2], attributes[i]);
+      case START_PREFIX_MAPPING -> handler.startPrefixMapping(strings[s], strings[s + 1]);
+      default -> throw new IllegalStateException("Unknown event type " + types[i] + ".");
+    }
+  }
+
+  public void setDocumentLocator(final Locator locator) {
+    // Not recorded.
+  }
+
+  /** Sets the number of consumers that will release the batch. */
+  void share(final int consumers) {
+    users.set(consumers);
+  }
+
+  int size() {
+    return size;
+  }
+
+  public void skippedEntity(final String name) {
+    add(SKIPPED_ENTITY, name, null, null);
+  }
+
+  public void startDocument() {
+    add(START_DOCUMENT, null, null, null);
+  }
+
+  public void startElement(
+      final String namespaceURI,
+      final String localName,
+      final String qName,
+      final Attributes atts) {
+    if (attributes[size] == null) {
+      attributes[size] = new AttributesImpl();
+    }
+
+    copyAttributes(atts, attributes[size]);
+    add(START_ELEMENT, namespaceURI, localName, qName);
+  }
+
+  public void startPrefixMapping(final String prefix, final String uri) {
+    add(START_PREFIX_MAPPING, prefix, uri, null);
+  }
+}
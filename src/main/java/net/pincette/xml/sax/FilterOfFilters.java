@@ -1,5 +1,7 @@
 package net.pincette.xml.sax;
 
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.util.Arrays.stream;
 import static net.pincette.util.Util.tryToGetRethrow;
 
@@ -10,11 +12,14 @@ import java.util.Set;
 import javax.xml.transform.sax.TransformerHandler;
 import javax.xml.transform.stream.StreamResult;
 import net.pincette.io.FlushOutputStream;
+import net.pincette.xml.sax.SelectiveFilter.Callback;
+import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.DTDHandler;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.ErrorHandler;
 import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXNotRecognizedException;
 import org.xml.sax.SAXNotSupportedException;
@@ -27,11 +32,29 @@ import org.xml.sax.helpers.XMLFilterImpl;
  * you can insert the whole in a chain as one filter. The wiring of the event chains will be
  * interrupted for those filters that don't implement the corresponding handler interfaces.
  *
+ * <p>The placeholders the debug mode uses for the filters that are not traced are left out of the
+ * chain. The given filters are always kept, also a plain <code>XMLFilterImpl</code>. The content
+ * handler callbacks a <code>SelectiveFilter</code> doesn't act on go directly to the next filter
+ * that does.
+ *
+ * <p>With a <code>ChainProfiler</code> the events, character data and time of each filter are
+ * collected. This is light enough to be used in production, unlike the debug mode, which writes
+ * the output of each filter to a file.
+ *
+ * <p>The chain can also be split into a number of segments, which are connected with a <code>
+ * Pipe</code>. Each segment then runs on its own thread, so a long chain can use several cores for
+ * one document.
+ *
  * @author Werner Donné
  */
-public class FilterOfFilters extends XMLFilterImpl {
+public class FilterOfFilters extends XMLFilterImpl implements Resettable {
+  private static final ContentHandler NONE = new XMLFilterImpl();
+  private static final Callback[] CALLBACKS = Callback.values();
+
   private XMLFilter first;
   private XMLFilter last;
+  private ContentHandler output;
+  private XMLFilter[] stages = new XMLFilter[0];
 
   public FilterOfFilters(final XMLFilter[] filters) {
     this(filters, false);
@@ -46,6 +69,29 @@ public class FilterOfFilters extends XMLFilterImpl {
     setupChain(debug ? addDebug(filters, includeClassNames) : filters);
   }
 
+  public FilterOfFilters(final XMLFilter[] filters, final ChainProfiler profiler) {
+    setupChain(profiler.addProbes(withoutIdentities(filters)));
+  }
+
+  public FilterOfFilters(
+      final XMLFilter[] filters, final ChainProfiler profiler, final XMLReader parent) {
+    this(filters, profiler);
+    setParent(parent);
+  }
+
+  /**
+   * Creates a chain that is split in at most <code>segments</code> parts with about the same number
+   * of filters, each running on its own thread.
+   */
+  public FilterOfFilters(final XMLFilter[] filters, final int segments) {
+    setupChain(addPipes(withoutIdentities(filters), segments));
+  }
+
+  public FilterOfFilters(final XMLFilter[] filters, final int segments, final XMLReader parent) {
+    this(filters, segments);
+    setParent(parent);
+  }
+
   public FilterOfFilters(final XMLFilter[] filters, final XMLReader parent) {
     this(filters, false, parent);
   }
@@ -63,6 +109,22 @@ public class FilterOfFilters extends XMLFilterImpl {
     setParent(parent);
   }
 
+  private static XMLFilter[] addPipes(final XMLFilter[] filters, final int segments) {
+    final int n = max(1, min(segments, filters.length));
+    final XMLFilter[] result = new XMLFilter[filters.length + n - 1];
+
+    for (int i = 0, j = 0, segment = 1; i < filters.length; ++i) {
+      result[j++] = filters[i];
+
+      if (segment < n && i + 1 == segment * filters.length / n) {
+        result[j++] = new Pipe();
+        ++segment;
+      }
+    }
+
+    return result;
+  }
+
   private static boolean anyFilter(final XMLFilter[] filters, final Set<String> includeClassNames) {
     return stream(filters)
         .map(filter -> filter.getClass().getName())
@@ -74,11 +136,7 @@ public class FilterOfFilters extends XMLFilterImpl {
 
     // The following connections make it work also when this filter is
     // inserted in a chain that is already running, i.e., for which parse is
-    // already called.
-
-    if (first instanceof ContentHandler h) {
-      second.setContentHandler(h);
-    }
+    // already called. The content handlers are connected by linkContentHandlers.
 
     if (first instanceof DTDHandler h) {
       second.setDTDHandler(h);
@@ -93,6 +151,10 @@ public class FilterOfFilters extends XMLFilterImpl {
     }
   }
 
+  private static boolean isIdentity(final XMLFilter filter) {
+    return filter instanceof Identity;
+  }
+
   private static ContentHandler outputHandler(final String filename) {
     return tryToGetRethrow(
             () -> {
@@ -113,7 +175,7 @@ public class FilterOfFilters extends XMLFilterImpl {
     result[0] =
         includeClassNames == null || anyFilter(filters, includeClassNames)
             ? new Tee(new ContentHandler[] {outputHandler(toString() + "_input.xml")})
-            : new XMLFilterImpl();
+            : new Identity();
 
     for (int i = 0; i < filters.length; ++i) {
       result[i * 2 + 1] = filters[i];
@@ -124,7 +186,7 @@ public class FilterOfFilters extends XMLFilterImpl {
                     new BalanceChecker(new File(this + "_" + filters[i].toString() + ".balance")),
                     outputHandler(this + "_" + filters[i].toString())
                   })
-              : new XMLFilterImpl();
+              : new Identity();
     }
 
     return result;
@@ -138,13 +200,18 @@ public class FilterOfFilters extends XMLFilterImpl {
 
   @Override
   public XMLReader getParent() {
-    return first != null ? first.getParent() : super.getParent();
+    if (first == null) {
+      return super.getParent();
+    }
+
+    return first.getParent() instanceof Link link ? link.target : first.getParent();
   }
 
   @Override
   public void setParent(final XMLReader parent) {
     if (first != null) {
-      first.setParent(parent);
+      first.setParent(
+          first instanceof SelectiveFilter && parent != null ? new Link(parent, 0) : parent);
     } else {
       super.setParent(parent);
     }
@@ -156,11 +223,47 @@ public class FilterOfFilters extends XMLFilterImpl {
     return first != null ? first.getProperty(name) : super.getProperty(name);
   }
 
-  private void linkFirst() {
-    if (first instanceof ContentHandler h) {
-      super.setContentHandler(h);
+  /**
+   * Returns the handler that receives the events that enter the stage at <code>position</code>.
+   * When some of them bypass the stage it is a junction.
+   */
+  private ContentHandler entry(final int position) {
+    if (position == stages.length) {
+      return output;
     }
 
+    if (!(stages[position] instanceof SelectiveFilter)) {
+      return stages[position] instanceof ContentHandler h ? h : null;
+    }
+
+    final ContentHandler[] targets = new ContentHandler[CALLBACKS.length];
+    boolean bypass = false;
+
+    for (final Callback callback : CALLBACKS) {
+      targets[callback.ordinal()] = target(position, callback);
+      bypass |= targets[callback.ordinal()] != stages[position];
+    }
+
+    return bypass ? new Junction(targets) : (ContentHandler) stages[position];
+  }
+
+  private void linkContentHandlers() {
+    for (int i = 1; i < stages.length; ++i) {
+      if (stages[i] instanceof ContentHandler) {
+        stages[i - 1].setContentHandler(entry(i));
+      }
+    }
+
+    if (last != null) {
+      last.setContentHandler(output);
+    }
+
+    if (first instanceof ContentHandler) {
+      super.setContentHandler(entry(0));
+    }
+  }
+
+  private void linkFirst() {
     if (first instanceof DTDHandler h) {
       super.setDTDHandler(h);
     }
@@ -183,10 +286,20 @@ public class FilterOfFilters extends XMLFilterImpl {
     }
   }
 
+  /** Resets the filters in the chain that implement <code>Resettable</code>. */
+  public void reset() {
+    for (final XMLFilter stage : stages) {
+      if (stage instanceof Resettable r) {
+        r.reset();
+      }
+    }
+  }
+
   @Override
   public void setContentHandler(final ContentHandler handler) {
     if (last != null) {
-      last.setContentHandler(handler);
+      output = handler;
+      linkContentHandlers();
     } else {
       super.setContentHandler(handler);
     }
@@ -240,14 +353,184 @@ public class FilterOfFilters extends XMLFilterImpl {
   }
 
   private void setupChain(final XMLFilter[] filters) {
-    if (filters.length > 0) {
-      for (int i = filters.length - 1; i > 0; --i) {
-        connectFilters(filters[i], filters[i - 1]);
+    stages = withoutIdentities(filters);
+
+    if (stages.length > 0) {
+      for (int i = stages.length - 1; i > 0; --i) {
+        connectFilters(stages[i], stages[i - 1]);
+
+        if (stages[i] instanceof SelectiveFilter) {
+          stages[i].setParent(new Link(stages[i - 1], i));
+        }
       }
 
-      first = filters[0];
-      last = filters[filters.length - 1];
+      first = stages[0];
+      last = stages[stages.length - 1];
+      output = last.getContentHandler();
       linkFirst();
+      linkContentHandlers();
+    }
+  }
+
+  /**
+   * Returns the first handler from the stage at <code>position</code> on that acts on <code>
+   * callback</code>.
+   */
+  private ContentHandler target(final int position, final Callback callback) {
+    for (int i = position; i < stages.length; ++i) {
+      if (!(stages[i] instanceof ContentHandler h)) {
+        return NONE;
+      }
+
+      if (!(stages[i] instanceof SelectiveFilter f) || f.getCallbacks().contains(callback)) {
+        return h;
+      }
+    }
+
+    return output != null ? output : NONE;
+  }
+
+  private static XMLFilter[] withoutIdentities(final XMLFilter[] filters) {
+    return stream(filters).filter(f -> !isIdentity(f)).toArray(XMLFilter[]::new);
+  }
+
+  /** A placeholder of the debug mode, which is dropped from the chain. */
+  private static class Identity extends XMLFilterImpl {}
+
+  /**
+   * Sits between a selective filter and its parent. When <code>XMLFilterImpl</code> sets itself as
+   * the content handler of its parent at the start of parsing, the link installs the junction for
+   * the filter instead.
+   */
+  private class Link implements XMLReader {
+    private final int position;
+    private final XMLReader target;
+
+    private Link(final XMLReader target, final int position) {
+      this.target = target;
+      this.position = position;
+    }
+
+    public ContentHandler getContentHandler() {
+      return target.getContentHandler();
+    }
+
+    public DTDHandler getDTDHandler() {
+      return target.getDTDHandler();
+    }
+
+    public EntityResolver getEntityResolver() {
+      return target.getEntityResolver();
+    }
+
+    public ErrorHandler getErrorHandler() {
+      return target.getErrorHandler();
+    }
+
+    public boolean getFeature(final String name)
+        throws SAXNotRecognizedException, SAXNotSupportedException {
+      return target.getFeature(name);
+    }
+
+    public Object getProperty(final String name)
+        throws SAXNotRecognizedException, SAXNotSupportedException {
+      return target.getProperty(name);
+    }
+
+    public void parse(final InputSource input) throws IOException, SAXException {
+      target.parse(input);
+    }
+
+    public void parse(final String systemId) throws IOException, SAXException {
+      target.parse(systemId);
+    }
+
+    public void setContentHandler(final ContentHandler handler) {
+      target.setContentHandler(handler == stages[position] ? entry(position) : handler);
+    }
+
+    public void setDTDHandler(final DTDHandler handler) {
+      target.setDTDHandler(handler);
+    }
+
+    public void setEntityResolver(final EntityResolver resolver) {
+      target.setEntityResolver(resolver);
+    }
+
+    public void setErrorHandler(final ErrorHandler handler) {
+      target.setErrorHandler(handler);
+    }
+
+    public void setFeature(final String name, final boolean value)
+        throws SAXNotRecognizedException, SAXNotSupportedException {
+      target.setFeature(name, value);
+    }
+
+    public void setProperty(final String name, final Object value)
+        throws SAXNotRecognizedException, SAXNotSupportedException {
+      target.setProperty(name, value);
+    }
+  }
+
+  /** Sends each callback to the handler that is registered for it. */
+  private static class Junction implements ContentHandler {
+    private final ContentHandler[] targets;
+
+    private Junction(final ContentHandler[] targets) {
+      this.targets = targets;
+    }
+
+    public void characters(final char[] ch, final int start, final int length)
+        throws SAXException {
+      targets[Callback.CHARACTERS.ordinal()].characters(ch, start, length);
+    }
+
+    public void endDocument() throws SAXException {
+      targets[Callback.END_DOCUMENT.ordinal()].endDocument();
+    }
+
+    public void endElement(final String namespaceURI, final String localName, final String qName)
+        throws SAXException {
+      targets[Callback.END_ELEMENT.ordinal()].endElement(namespaceURI, localName, qName);
+    }
+
+    public void endPrefixMapping(final String prefix) throws SAXException {
+      targets[Callback.END_PREFIX_MAPPING.ordinal()].endPrefixMapping(prefix);
+    }
+
+    public void ignorableWhitespace(final char[] ch, final int start, final int length)
+        throws SAXException {
+      targets[Callback.IGNORABLE_WHITESPACE.ordinal()].ignorableWhitespace(ch, start, length);
+    }
+
+    public void processingInstruction(final String target, final String data)
+        throws SAXException {
+      targets[Callback.PROCESSING_INSTRUCTION.ordinal()].processingInstruction(target, data);
+    }
+
+    public void setDocumentLocator(final Locator locator) {
+      targets[Callback.SET_DOCUMENT_LOCATOR.ordinal()].setDocumentLocator(locator);
+    }
+
+    public void skippedEntity(final String name) throws SAXException {
+      targets[Callback.SKIPPED_ENTITY.ordinal()].skippedEntity(name);
+    }
+
+    public void startDocument() throws SAXException {
+      targets[Callback.START_DOCUMENT.ordinal()].startDocument();
+    }
+
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts)
+        throws SAXException {
+      targets[Callback.START_ELEMENT.ordinal()].startElement(namespaceURI, localName, qName, atts);
+    }
+
+    public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+      targets[Callback.START_PREFIX_MAPPING.ordinal()].startPrefixMapping(prefix, uri);
     }
   }
 }
@@ -1,5 +1,9 @@
 package net.pincette.xml.sax;
 
+import static java.util.Collections.unmodifiableSet;
+
+import java.util.EnumSet;
+import java.util.Set;
 import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.XMLFilterImpl;
@@ -9,7 +13,10 @@ import org.xml.sax.helpers.XMLFilterImpl;
  *
  * @author Werner Donné
  */
-public class GobbleDocumentEvents extends XMLFilterImpl {
+public class GobbleDocumentEvents extends XMLFilterImpl implements SelectiveFilter {
+  private static final Set<Callback> CALLBACKS =
+      unmodifiableSet(EnumSet.of(Callback.END_DOCUMENT, Callback.START_DOCUMENT));
+
   public GobbleDocumentEvents() {}
 
   public GobbleDocumentEvents(final XMLReader parent) {
@@ -21,6 +28,10 @@ public class GobbleDocumentEvents extends XMLFilterImpl {
     // Purpose of the class.
   }
 
+  public Set<Callback> getCallbacks() {
+    return CALLBACKS;
+  }
+
   @Override
   public void startDocument() throws SAXException {
     // Purpose of the class.
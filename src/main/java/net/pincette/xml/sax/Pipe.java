@@ -0,0 +1,184 @@
+package net.pincette.xml.sax;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * This filter passes the events to its content handler on another thread. The events are copied
+ * into batches, which go through a bounded queue. When it is full the parsing thread waits. This
+ * way the filters before and after the pipe can run on different cores. The thread comes from a
+ * shared pool and the batches are recycled.
+ *
+ * <p>The filter waits for the other thread in <code>endDocument</code>, so the whole document has
+ * been handled when parsing is done. An exception on the other thread is thrown there or at the
+ * next batch that is sent. The document locator is not passed, because it is only meaningful on
+ * the parsing thread.
+ *
+ * <p>The content handler is looked up for every event on the other thread. It may therefore be
+ * replaced during a document by the handlers that run on that thread, as {@link Accumulator} does.
+ * Replacing it from the parsing thread during a document is not supported.
+ *
+ * <p>When the parse fails or a fatal error is reported the other thread is stopped. If the filter
+ * is driven by something else than its <code>parse</code> methods and a document can be abandoned,
+ * then <code>reset</code> should be called, otherwise the thread keeps waiting for the rest of the
+ * document.
+ *
+ * @author Werner Donné
+ */
+public class Pipe extends XMLFilterImpl implements Resettable {
+  private static final int BATCH_SIZE = 256;
+  private static final int FREE_BATCHES = 32;
+
+  private final BlockingQueue<EventBatch> free = new ArrayBlockingQueue<>(FREE_BATCHES);
+  private EventBatch current;
+  private BatchWorker worker;
+
+  public Pipe() {}
+
+  public Pipe(final XMLReader parent) {
+    super(parent);
+  }
+
+  private void add() throws SAXException {
+    if (current.isFull()) {
+      send(false);
+    }
+  }
+
+  private EventBatch batch() {
+    final EventBatch batch = free.poll();
+
+    return batch != null ? batch : new EventBatch(BATCH_SIZE);
+  }
+
+  @Override
+  public void characters(final char[] ch, final int start, final int length) throws SAXException {
+    current.characters(ch, start, length);
+    add();
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    current.endDocument();
+    send(true);
+    worker.await();
+  }
+
+  @Override
+  public void endElement(final String namespaceURI, final String localName, final String qName)
+      throws SAXException {
+    current.endElement(namespaceURI, localName, qName);
+    add();
+  }
+
+  @Override
+  public void endPrefixMapping(final String prefix) throws SAXException {
+    current.endPrefixMapping(prefix);
+    add();
+  }
+
+  @Override
+  public void fatalError(final SAXParseException exception) throws SAXException {
+    stop();
+    super.fatalError(exception);
+  }
+
+  @Override
+  public void ignorableWhitespace(final char[] ch, final int start, final int length)
+      throws SAXException {
+    current.ignorableWhitespace(ch, start, length);
+    add();
+  }
+
+  @Override
+  public void parse(final InputSource input) throws IOException, SAXException {
+    try {
+      super.parse(input);
+    } finally {
+      stop();
+    }
+  }
+
+  @Override
+  public void parse(final String systemId) throws IOException, SAXException {
+    try {
+      super.parse(systemId);
+    } finally {
+      stop();
+    }
+  }
+
+  @Override
+  public void processingInstruction(final String target, final String data) throws SAXException {
+    current.processingInstruction(target, data);
+    add();
+  }
+
+  private void release(final EventBatch batch) {
+    batch.clear();
+    free.offer(batch);
+  }
+
+  public void reset() {
+    stop();
+    worker = null;
+    current = null;
+  }
+
+  private void send(final boolean last) throws SAXException {
+    final EventBatch batch = current;
+
+    worker.checkError();
+    current = batch();
+    worker.put(batch, last);
+  }
+
+  @Override
+  public void setDocumentLocator(final Locator locator) {
+    // Not passed.
+  }
+
+  @Override
+  public void skippedEntity(final String name) throws SAXException {
+    current.skippedEntity(name);
+    add();
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    stop();
+    current = batch();
+    worker = new BatchWorker(this::getContentHandler, this::release);
+    current.startDocument();
+    add();
+  }
+
+  @Override
+  public void startElement(
+      final String namespaceURI, final String localName, final String qName, final Attributes atts)
+      throws SAXException {
+    current.startElement(namespaceURI, localName, qName, atts);
+    add();
+  }
+
+  @Override
+  public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+    current.startPrefixMapping(prefix, uri);
+    add();
+  }
+
+  /** Stops the thread of a document that was never completed. */
+  private void stop() {
+    if (worker != null) {
+      worker.stop();
+    }
+  }
+}
@@ -0,0 +1,95 @@
+package net.pincette.xml.sax;
+
+import static java.lang.Integer.MAX_VALUE;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A thread-safe pool of chains that are created with a <code>PipelineTemplate</code>. A chain is
+ * taken for one document and then released. On release it is reset and its parent and content
+ * handler are removed. The filters in the chain that keep state across documents should therefore
+ * implement <code>Resettable</code>. When more than <code>maxIdle</code> chains are released, the
+ * surplus is dropped.
+ *
+ * <p>The <code>maxIdle</code> chains are built when the pool is created, so the first documents
+ * don't pay for it. The number of chains that are taken at the same time can be limited, in which
+ * case <code>take</code> waits for a chain to be released.
+ *
+ * <p>The pool keeps track of the chains that are taken, so a chain can be released only once. When
+ * the reset of a chain fails, it is dropped instead of going back to the idle chains.
+ *
+ * @author Werner Donné
+ */
+public class PipelinePool {
+  private final BlockingQueue<FilterOfFilters> idle;
+  private final Semaphore permits;
+  private final Set<FilterOfFilters> taken = ConcurrentHashMap.newKeySet();
+  private final PipelineTemplate template;
+
+  public PipelinePool(final PipelineTemplate template, final int maxIdle) {
+    this(template, maxIdle, MAX_VALUE);
+  }
+
+  /**
+   * Creates the pool.
+   *
+   * @param template the template for the chains.
+   * @param maxIdle the number of chains that are built up front and kept for reuse.
+   * @param maxChains the number of chains that can be taken at the same time.
+   */
+  public PipelinePool(final PipelineTemplate template, final int maxIdle, final int maxChains) {
+    this.template = template;
+    this.idle = new ArrayBlockingQueue<>(maxIdle);
+    this.permits = new Semaphore(maxChains);
+
+    for (int i = 0; i < maxIdle; ++i) {
+      idle.offer(template.newChain());
+    }
+  }
+
+  /**
+   * Gives the chain back to the pool. It should not be used anymore by the caller.
+   *
+   * @param chain the chain.
+   * @throws IllegalArgumentException when the chain was not taken from this pool or when it was
+   *     already released.
+   */
+  public void release(final FilterOfFilters chain) {
+    if (!taken.remove(chain)) {
+      throw new IllegalArgumentException("The chain is not taken from this pool.");
+    }
+
+    try {
+      chain.reset();
+      chain.setContentHandler(null);
+      chain.setParent(null);
+      idle.offer(chain);
+    } finally {
+      permits.release();
+    }
+  }
+
+  /**
+   * Returns an idle chain or a new one when there is none. When <code>maxChains</code> chains are
+   * taken, it waits until one is released.
+   */
+  public FilterOfFilters take() throws InterruptedException {
+    permits.acquire();
+
+    try {
+      final FilterOfFilters polled = idle.poll();
+      final FilterOfFilters chain = polled != null ? polled : template.newChain();
+
+      taken.add(chain);
+
+      return chain;
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+}
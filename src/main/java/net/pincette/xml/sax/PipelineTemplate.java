@@ -0,0 +1,48 @@
+package net.pincette.xml.sax;
+
+import static java.util.List.copyOf;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.xml.transform.Templates;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import org.xml.sax.XMLFilter;
+
+/**
+ * An immutable description of a chain of filters, from which <code>FilterOfFilters</code>
+ * instances can be created. Each stage is given as a supplier of new filters. Expensive things,
+ * such as compiled stylesheets, should be created once and captured by the suppliers. A template
+ * can be shared by several threads, if the suppliers can.
+ *
+ * @author Werner Donné
+ */
+public class PipelineTemplate {
+  private final int segments;
+  private final List<Supplier<XMLFilter>> stages;
+
+  public PipelineTemplate(final List<Supplier<XMLFilter>> stages) {
+    this(stages, 1);
+  }
+
+  /**
+   * @param segments the number of threads the chains may use. See <code>FilterOfFilters</code>.
+   */
+  public PipelineTemplate(final List<Supplier<XMLFilter>> stages, final int segments) {
+    this.stages = copyOf(stages);
+    this.segments = segments;
+  }
+
+  /** Returns a supplier of filters that transform with <code>templates</code>. */
+  public static Supplier<XMLFilter> stylesheet(
+      final Templates templates,
+      final Map<String, String> parameters,
+      final SAXTransformerFactory factory) {
+    return () -> new TemplatesFilter(templates, parameters, factory);
+  }
+
+  public FilterOfFilters newChain() {
+    return new FilterOfFilters(
+        stages.stream().map(Supplier::get).toArray(XMLFilter[]::new), segments);
+  }
+}
@@ -0,0 +1,80 @@
+package net.pincette.xml.sax;
+
+import static java.util.Arrays.copyOf;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Keeps the prefix mappings that are in scope, so they can be replayed to a handler that only
+ * receives a part of the document.
+ *
+ * @author Werner Donné
+ */
+class PrefixMappings {
+  private final List<String> mappings = new ArrayList<>();
+  private int[] counts = new int[16];
+  private int depth;
+  private int pending;
+
+  void add(final String prefix, final String uri) {
+    mappings.add(prefix);
+    mappings.add(uri);
+    ++pending;
+  }
+
+  void clear() {
+    mappings.clear();
+    depth = 0;
+    pending = 0;
+  }
+
+  /** Reports the end of all mappings in scope to <code>handler</code>. */
+  void endAll(final ContentHandler handler) throws SAXException {
+    for (int i = mappings.size() - 2; i >= 0; i -= 2) {
+      handler.endPrefixMapping(mappings.get(i));
+    }
+  }
+
+  /**
+   * Should be called for each end tag. The mappings of the element go out of scope.
+   *
+   * @return The number of mappings the element had.
+   */
+  int endElement() {
+    final int count = counts[--depth];
+
+    for (int i = count; i > 0; --i) {
+      mappings.remove(mappings.size() - 1);
+      mappings.remove(mappings.size() - 1);
+    }
+
+    return count;
+  }
+
+  /** Reports all mappings in scope to <code>handler</code>. */
+  void startAll(final ContentHandler handler) throws SAXException {
+    for (int i = 0; i < mappings.size(); i += 2) {
+      handler.startPrefixMapping(mappings.get(i), mappings.get(i + 1));
+    }
+  }
+
+  /** Reports the mappings that were added since the last start tag to <code>handler</code>. */
+  void startPending(final ContentHandler handler) throws SAXException {
+    for (int i = mappings.size() - 2 * pending; i < mappings.size(); i += 2) {
+      handler.startPrefixMapping(mappings.get(i), mappings.get(i + 1));
+    }
+  }
+
+  /** Should be called for each start tag. The mappings that were added belong to the element. */
+  void startElement() {
+    if (depth == counts.length) {
+      counts = copyOf(counts, depth * 2);
+    }
+
+    counts[depth++] = pending;
+    pending = 0;
+  }
+}
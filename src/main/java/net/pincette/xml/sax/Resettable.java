@@ -0,0 +1,12 @@
+package net.pincette.xml.sax;
+
+/**
+ * A filter that keeps state for the document it is handling. After a reset it can be used for
+ * another document, also when the previous one was not completed. A filter without state across
+ * documents doesn't have to implement this.
+ *
+ * @author Werner Donné
+ */
+public interface Resettable {
+  void reset();
+}
@@ -0,0 +1,269 @@
+package net.pincette.xml.sax;
+
+import static java.util.Collections.newSetFromMap;
+
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+import javax.xml.namespace.QName;
+import net.pincette.xml.internal.PathRoutes;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Sends the elements that match a path to the handler of that path. All paths are compiled in one
+ * automaton, so an element costs one step, however many routes there are. A routed element
+ * doesn't go through the filter. The other events do. A routed content handler receives the
+ * document events of the filter, the routed elements and the namespace declarations that are in
+ * scope for them. The prefix mappings of a routed element only go to its handler. An <code>
+ * XMLEventWriter</code> can be routed with an <code>EventWriterContentHandler</code>. A <code>
+ * ProcessElement</code> callback receives each routed element in its own small DOM document.
+ *
+ * @author Werner Donné
+ */
+public class RouterFilter extends XMLFilterImpl implements Resettable {
+  private final PrefixMappings mappings = new PrefixMappings();
+  private final PathRoutes<Route> routes = new PathRoutes<>();
+  private Accumulator accumulator;
+  private ContentHandler current;
+  private int level;
+  private Route route;
+  private int routedMappingEnds;
+
+  public RouterFilter() {}
+
+  public RouterFilter(final XMLReader parent) {
+    super(parent);
+  }
+
+  private Set<ContentHandler> handlers() {
+    final Set<ContentHandler> result = newSetFromMap(new IdentityHashMap<>());
+
+    routes.getTargets().stream()
+        .map(Route::handler)
+        .filter(Objects::nonNull)
+        .forEach(result::add);
+
+    return result;
+  }
+
+  @Override
+  public void characters(final char[] ch, final int start, final int length) throws SAXException {
+    if (level > 0) {
+      current.characters(ch, start, length);
+    } else {
+      super.characters(ch, start, length);
+    }
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    super.endDocument();
+
+    for (final ContentHandler handler : handlers()) {
+      handler.endDocument();
+    }
+  }
+
+  @Override
+  public void endElement(final String namespaceURI, final String localName, final String qName)
+      throws SAXException {
+    if (level > 0) {
+      current.endElement(namespaceURI, localName, qName);
+
+      if (--level == 0) {
+        endRoute();
+        routes.pop();
+        routedMappingEnds = mappings.endElement();
+      }
+    } else {
+      routes.pop();
+      mappings.endElement();
+      super.endElement(namespaceURI, localName, qName);
+    }
+  }
+
+  @Override
+  public void endPrefixMapping(final String prefix) throws SAXException {
+    if (level > 0) {
+      current.endPrefixMapping(prefix);
+    } else if (routedMappingEnds > 0) {
+      // The mappings of a routed element were already ended at its handler.
+      --routedMappingEnds;
+    } else {
+      super.endPrefixMapping(prefix);
+    }
+  }
+
+  private void endRoute() throws SAXException {
+    mappings.endAll(current);
+
+    if (accumulator != null) {
+      final Accumulator acc = accumulator;
+
+      accumulator = null;
+      route.process().process(acc.getDocument().getDocumentElement(), this);
+      acc.endDocument();
+    }
+
+    current = null;
+    route = null;
+  }
+
+  @Override
+  public void ignorableWhitespace(final char[] ch, final int start, final int length)
+      throws SAXException {
+    if (level > 0) {
+      current.ignorableWhitespace(ch, start, length);
+    } else {
+      super.ignorableWhitespace(ch, start, length);
+    }
+  }
+
+  @Override
+  public void processingInstruction(final String target, final String data) throws SAXException {
+    if (level > 0) {
+      current.processingInstruction(target, data);
+    } else {
+      super.processingInstruction(target, data);
+    }
+  }
+
+  /**
+   * Adds a route. It should be done before the filter is used.
+   *
+   * @param path the element names from the outer to the inner element.
+   * @param absolute when <code>true</code> the path must start at the document element, otherwise
+   *     it must match the last elements of the current path.
+   * @param handler the handler for matching elements.
+   * @return The filter itself.
+   */
+  public RouterFilter route(
+      final QName[] path, final boolean absolute, final ContentHandler handler) {
+    routes.add(path, absolute, new Route(handler, null));
+
+    return this;
+  }
+
+  /**
+   * Adds a route. It should be done before the filter is used.
+   *
+   * @param path the element names from the outer to the inner element.
+   * @param absolute when <code>true</code> the path must start at the document element, otherwise
+   *     it must match the last elements of the current path.
+   * @param process the callback for matching elements.
+   * @return The filter itself.
+   */
+  public RouterFilter route(
+      final QName[] path, final boolean absolute, final Accumulator.ProcessElement process) {
+    routes.add(path, absolute, new Route(null, process));
+
+    return this;
+  }
+
+  /**
+   * Adds a route for an absolute expression without positions and wildcards.
+   *
+   * @throws IllegalArgumentException when the expression can't be routed.
+   */
+  public RouterFilter route(final CompiledSimpleXPath path, final ContentHandler handler) {
+    routes.add(path.simplePath(), new Route(handler, null));
+
+    return this;
+  }
+
+  /**
+   * Adds a route for an absolute expression without positions and wildcards.
+   *
+   * @throws IllegalArgumentException when the expression can't be routed.
+   */
+  public RouterFilter route(
+      final CompiledSimpleXPath path, final Accumulator.ProcessElement process) {
+    routes.add(path.simplePath(), new Route(null, process));
+
+    return this;
+  }
+
+  public void reset() {
+    routes.reset();
+    mappings.clear();
+    accumulator = null;
+    current = null;
+    level = 0;
+    route = null;
+    routedMappingEnds = 0;
+  }
+
+  @Override
+  public void skippedEntity(final String name) throws SAXException {
+    if (level > 0) {
+      current.skippedEntity(name);
+    } else {
+      super.skippedEntity(name);
+    }
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    reset();
+    super.startDocument();
+
+    for (final ContentHandler handler : handlers()) {
+      handler.startDocument();
+    }
+  }
+
+  @Override
+  public void startElement(
+      final String namespaceURI, final String localName, final String qName, final Attributes atts)
+      throws SAXException {
+    if (level > 0) {
+      ++level;
+      current.startElement(namespaceURI, localName, qName, atts);
+    } else {
+      route = routes.push(namespaceURI, localName);
+      routedMappingEnds = 0;
+
+      if (route == null && getContentHandler() != null) {
+        mappings.startPending(getContentHandler());
+      }
+
+      mappings.startElement();
+
+      if (route != null) {
+        startRoute();
+        current.startElement(namespaceURI, localName, qName, atts);
+      } else {
+        super.startElement(namespaceURI, localName, qName, atts);
+      }
+    }
+  }
+
+  @Override
+  public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+    if (level > 0) {
+      current.startPrefixMapping(prefix, uri);
+    } else {
+      // Passed on in startElement, unless the element is routed.
+      mappings.add(prefix, uri);
+    }
+  }
+
+  private void startRoute() throws SAXException {
+    if (route.process() != null) {
+      accumulator = new Accumulator();
+      accumulator.startDocument();
+      current = accumulator;
+    } else {
+      current = route.handler();
+    }
+
+    level = 1;
+    mappings.startAll(current);
+  }
+
+  private record Route(ContentHandler handler, Accumulator.ProcessElement process) {}
+}
@@ -0,0 +1,30 @@
+package net.pincette.xml.sax;
+
+import java.util.Set;
+
+/**
+ * A filter that acts only on some of the <code>ContentHandler</code> callbacks. It lets the other
+ * ones through unchanged, so <code>FilterOfFilters</code> can route them around it. Such a filter
+ * should not replace its content handler while it is running, because the callbacks that bypass it
+ * would not follow.
+ *
+ * @author Werner Donné
+ */
+public interface SelectiveFilter {
+  /** Returns the callbacks the filter does something with. */
+  Set<Callback> getCallbacks();
+
+  enum Callback {
+    CHARACTERS,
+    END_DOCUMENT,
+    END_ELEMENT,
+    END_PREFIX_MAPPING,
+    IGNORABLE_WHITESPACE,
+    PROCESSING_INSTRUCTION,
+    SET_DOCUMENT_LOCATOR,
+    SKIPPED_ENTITY,
+    START_DOCUMENT,
+    START_ELEMENT,
+    START_PREFIX_MAPPING
+  }
+}
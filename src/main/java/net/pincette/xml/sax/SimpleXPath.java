@@ -1,22 +1,14 @@
 package net.pincette.xml.sax;
 
 import static java.lang.Integer.parseInt;
-import static java.lang.Long.MAX_VALUE;
 import static java.util.Arrays.stream;
-import static java.util.Comparator.comparingInt;
 import static java.util.Optional.ofNullable;
-import static net.pincette.util.Pair.pair;
-import static net.pincette.util.StreamUtil.rangeExclusive;
-import static net.pincette.util.StreamUtil.takeWhile;
-import static net.pincette.util.StreamUtil.zip;
 import static net.pincette.xml.Util.ancestors;
-import static net.pincette.xml.Util.children;
 
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 
@@ -47,41 +39,21 @@ public class SimpleXPath {
             .collect(Collectors.joining("/"));
   }
 
+  /**
+   * The <code>namespacePrefixMap</code> maps prefixes to URIs. The compiled expression is cached.
+   *
+   * @see CompiledSimpleXPath#compile(String, Map)
+   */
   public static Element[] getElementSet(
       final Node contextNode,
       final String expression,
       final Map<String, String> namespacePrefixMap) {
-    return getElementSet(
-        expression.charAt(0) == '/' ? contextNode.getOwnerDocument() : contextNode,
-        getPath(expression, namespacePrefixMap));
+    return CompiledSimpleXPath.compile(expression, namespacePrefixMap).evaluate(contextNode);
   }
 
   /** The <code>path</code> is relative to the <code>contextNode</code>. */
   public static Element[] getElementSet(final Node contextNode, final PathElement[] path) {
-    return takeWhile(
-            pair(
-                0,
-                getMatchingChildren(
-                    ofNullable(contextNode).stream()
-                        .filter(Element.class::isInstance)
-                        .map(n -> (Element) n),
-                    path[0])),
-            pair -> pair(pair.first + 1, getMatchingChildren(pair.second, path[pair.first + 1])),
-            pair -> pair.first < path.length)
-        .max(comparingInt(pair -> pair.first))
-        .map(pair -> pair.second.toArray(Element[]::new))
-        .orElse(new Element[0]);
-  }
-
-  private static Stream<Element> getMatchingChildren(
-      final Stream<Element> nodes, final PathElement element) {
-    return nodes.flatMap(
-        node ->
-            zip(
-                    children(node).filter(n -> nameMatches(n, element)).map(n -> (Element) n),
-                    rangeExclusive(0, MAX_VALUE))
-                .filter(pair -> element.position() == -1 || element.position() == pair.second)
-                .map(pair -> pair.first));
+    return new CompiledSimpleXPath(path, true).evaluate(contextNode);
   }
 
   /**
@@ -134,12 +106,6 @@ public class SimpleXPath {
         .orElse("");
   }
 
-  private static boolean nameMatches(final Node node, final PathElement element) {
-    return ("*".equals(element.localName())
-            || Objects.equals(node.getLocalName(), element.localName()))
-        && Objects.equals(node.getNamespaceURI(), element.namespaceURI());
-  }
-
   public record PathElement(String namespaceURI, String localName, long position) {
 
     /**
@@ -0,0 +1,188 @@
+package net.pincette.xml.sax;
+
+import static java.util.Optional.ofNullable;
+
+import java.util.Map;
+import net.pincette.xml.internal.SimpleXPathMatcher;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Lets only the elements that match a <code>SimpleXPath</code> expression through, without
+ * building a tree of the document. The namespace declarations that are in scope for a matching
+ * element are reported with it. When a <code>ProcessElement</code> callback is given, each
+ * matching element is accumulated in its own small DOM document and handed to it instead. The
+ * callback can write it to the content handler of the filter. Only the matching elements are held
+ * in memory.
+ *
+ * @author Werner Donné
+ */
+public class SimpleXPathFilter extends XMLFilterImpl implements Resettable {
+  private static final ContentHandler NONE = new XMLFilterImpl();
+
+  private final PrefixMappings mappings = new PrefixMappings();
+  private final SimpleXPathMatcher matcher;
+  private final Accumulator.ProcessElement process;
+  private Accumulator accumulator;
+
+  public SimpleXPathFilter(final CompiledSimpleXPath path) {
+    this(path, null, null);
+  }
+
+  public SimpleXPathFilter(final CompiledSimpleXPath path, final XMLReader parent) {
+    this(path, null, parent);
+  }
+
+  public SimpleXPathFilter(
+      final CompiledSimpleXPath path, final Accumulator.ProcessElement process) {
+    this(path, process, null);
+  }
+
+  public SimpleXPathFilter(
+      final CompiledSimpleXPath path,
+      final Accumulator.ProcessElement process,
+      final XMLReader parent) {
+    super(parent);
+    this.matcher = new SimpleXPathMatcher(path.simplePath());
+    this.process = process;
+  }
+
+  /**
+   * The <code>namespacePrefixMap</code> maps prefixes to URIs. The expression is compiled through
+   * the cache of <code>CompiledSimpleXPath</code>.
+   */
+  public SimpleXPathFilter(final String expression, final Map<String, String> namespacePrefixMap) {
+    this(CompiledSimpleXPath.compile(expression, namespacePrefixMap));
+  }
+
+  @Override
+  public void characters(final char[] ch, final int start, final int length) throws SAXException {
+    if (matcher.isInMatch()) {
+      target().characters(ch, start, length);
+    }
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    accumulator = null;
+    super.endDocument();
+  }
+
+  @Override
+  public void endElement(final String namespaceURI, final String localName, final String qName)
+      throws SAXException {
+    final boolean wasInMatch = matcher.isInMatch();
+
+    matcher.endElement();
+
+    if (wasInMatch) {
+      target().endElement(namespaceURI, localName, qName);
+    }
+
+    if (!matcher.isInMatch()) {
+      if (wasInMatch) {
+        endMatch();
+      }
+
+      mappings.endElement();
+    }
+  }
+
+  private void endMatch() throws SAXException {
+    mappings.endAll(target());
+
+    if (accumulator != null) {
+      final Accumulator acc = accumulator;
+
+      accumulator = null;
+      process.process(acc.getDocument().getDocumentElement(), this);
+      acc.endDocument();
+    }
+  }
+
+  @Override
+  public void endPrefixMapping(final String prefix) throws SAXException {
+    if (matcher.isInMatch()) {
+      target().endPrefixMapping(prefix);
+    }
+  }
+
+  @Override
+  public void ignorableWhitespace(final char[] ch, final int start, final int length)
+      throws SAXException {
+    if (matcher.isInMatch()) {
+      target().ignorableWhitespace(ch, start, length);
+    }
+  }
+
+  @Override
+  public void processingInstruction(final String target, final String data) throws SAXException {
+    if (matcher.isInMatch()) {
+      target().processingInstruction(target, data);
+    }
+  }
+
+  public void reset() {
+    matcher.reset();
+    mappings.clear();
+    accumulator = null;
+  }
+
+  @Override
+  public void skippedEntity(final String name) throws SAXException {
+    if (matcher.isInMatch()) {
+      target().skippedEntity(name);
+    }
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    reset();
+    super.startDocument();
+  }
+
+  @Override
+  public void startElement(
+      final String namespaceURI, final String localName, final String qName, final Attributes atts)
+      throws SAXException {
+    final boolean inMatch = matcher.isInMatch();
+    final boolean match = matcher.startElement(namespaceURI, localName);
+
+    if (!inMatch) {
+      mappings.startElement();
+
+      if (match) {
+        startMatch();
+      }
+    }
+
+    if (inMatch || match) {
+      target().startElement(namespaceURI, localName, qName, atts);
+    }
+  }
+
+  private void startMatch() throws SAXException {
+    if (process != null) {
+      accumulator = new Accumulator();
+      accumulator.startDocument();
+    }
+
+    mappings.startAll(target());
+  }
+
+  @Override
+  public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+    if (matcher.isInMatch()) {
+      target().startPrefixMapping(prefix, uri);
+    } else {
+      mappings.add(prefix, uri);
+    }
+  }
+
+  private ContentHandler target() {
+    return accumulator != null ? accumulator : ofNullable(getContentHandler()).orElse(NONE);
+  }
+}
@@ -1,68 +1,63 @@
 package net.pincette.xml.sax;
 
-import static java.util.Optional.ofNullable;
-import static net.pincette.util.StreamUtil.stream;
+import static java.util.Arrays.copyOf;
 
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Deque;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * A helper for XML filters. It can give a <code>SimpleXPath</code> at any position.
+ * A helper for XML filters. It can give a <code>SimpleXPath</code> at any position. Only the open
+ * elements are kept, each with a counter per name for its children, so the memory use depends on
+ * the depth of the document and not on its size.
  *
  * @author Werner Donné
  */
 public class SimpleXPathTracker {
-  private final Deque<Element> elements = new ArrayDeque<>();
+  private int depth;
+  private Level[] levels = new Level[16];
 
   public SimpleXPath.PathElement[] getXPath() {
-    return stream(elements.descendingIterator())
-        .map(
-            element ->
-                new SimpleXPath.PathElement(
-                    element.namespaceURI,
-                    element.localName,
-                    ofNullable(element.parent)
-                        .map(p -> sameSiblings(element, p.children))
-                        .orElse(1L)))
-        .toArray(SimpleXPath.PathElement[]::new);
+    final SimpleXPath.PathElement[] result = new SimpleXPath.PathElement[depth];
+
+    for (int i = 0; i < depth; ++i) {
+      result[i] =
+          new SimpleXPath.PathElement(
+              levels[i].name.namespaceURI(), levels[i].name.localName(), levels[i].position);
+    }
+
+    return result;
   }
 
   public void pop() {
-    elements.pop();
+    levels[--depth].children.clear();
   }
 
   public void push(final String namespaceURI, final String localName) {
-    elements.push(
-        ofNullable(elements.peek())
-            .map(parent -> new Element(namespaceURI, localName, parent))
-            .orElseGet(() -> new Element(namespaceURI, localName, null)));
-  }
+    final Name name = new Name(namespaceURI, localName);
+    final long position = depth > 0 ? levels[depth - 1].next(name) : 1;
 
-  private static long sameSiblings(final Element element, final List<Element> list) {
-    return list.stream()
-        .filter(
-            e ->
-                element.namespaceURI.equals(e.namespaceURI)
-                    && element.localName.equals(e.localName))
-        .count();
-  }
+    if (depth == levels.length) {
+      levels = copyOf(levels, depth * 2);
+    }
 
-  private static class Element {
-    private final List<Element> children = new ArrayList<>();
-    private final String localName;
-    private final String namespaceURI;
-    private final Element parent;
+    if (levels[depth] == null) {
+      levels[depth] = new Level();
+    }
 
-    private Element(final String namespaceURI, final String localName, final Element parent) {
-      this.namespaceURI = namespaceURI;
-      this.localName = localName;
-      this.parent = parent;
+    levels[depth].name = name;
+    levels[depth].position = position;
+    ++depth;
+  }
 
-      if (parent != null) {
-        parent.children.add(this);
-      }
+  private static class Level {
+    private final Map<Name, long[]> children = new HashMap<>();
+    private Name name;
+    private long position;
+
+    private long next(final Name child) {
+      return ++children.computeIfAbsent(child, n -> new long[1])[0];
     }
   }
+
+  private record Name(String namespaceURI, String localName) {}
 }
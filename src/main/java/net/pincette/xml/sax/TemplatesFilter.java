@@ -0,0 +1,134 @@
+package net.pincette.xml.sax;
+
+import static net.pincette.xml.sax.Util.newTemplatesHandler;
+
+import java.util.Map;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+/**
+ * Transforms the stream with a compiled stylesheet. Unlike a filter from <code>
+ * SAXTransformerFactory.newXMLFilter</code> it can be used for several documents, because it
+ * creates a new <code>TransformerHandler</code> for each document.
+ *
+ * @author Werner Donné
+ */
+public class TemplatesFilter extends XMLFilterImpl implements Resettable {
+  private final SAXTransformerFactory factory;
+  private final Map<String, String> parameters;
+  private final Templates templates;
+  private TransformerHandler handler;
+  private Locator locator;
+
+  public TemplatesFilter(
+      final Templates templates,
+      final Map<String, String> parameters,
+      final SAXTransformerFactory factory) {
+    this.templates = templates;
+    this.parameters = parameters;
+    this.factory = factory;
+  }
+
+  public TemplatesFilter(
+      final Templates templates,
+      final Map<String, String> parameters,
+      final SAXTransformerFactory factory,
+      final XMLReader parent) {
+    super(parent);
+    this.templates = templates;
+    this.parameters = parameters;
+    this.factory = factory;
+  }
+
+  @Override
+  public void characters(final char[] ch, final int start, final int length) throws SAXException {
+    handler.characters(ch, start, length);
+  }
+
+  @Override
+  public void endDocument() throws SAXException {
+    try {
+      handler.endDocument();
+    } finally {
+      handler = null;
+    }
+  }
+
+  @Override
+  public void endElement(final String namespaceURI, final String localName, final String qName)
+      throws SAXException {
+    handler.endElement(namespaceURI, localName, qName);
+  }
+
+  @Override
+  public void endPrefixMapping(final String prefix) throws SAXException {
+    handler.endPrefixMapping(prefix);
+  }
+
+  @Override
+  public void ignorableWhitespace(final char[] ch, final int start, final int length)
+      throws SAXException {
+    handler.ignorableWhitespace(ch, start, length);
+  }
+
+  @Override
+  public void processingInstruction(final String target, final String data) throws SAXException {
+    handler.processingInstruction(target, data);
+  }
+
+  public void reset() {
+    handler = null;
+    locator = null;
+  }
+
+  @Override
+  public void setDocumentLocator(final Locator locator) {
+    this.locator = locator;
+
+    if (handler != null) {
+      handler.setDocumentLocator(locator);
+    }
+  }
+
+  @Override
+  public void skippedEntity(final String name) throws SAXException {
+    handler.skippedEntity(name);
+  }
+
+  @Override
+  public void startDocument() throws SAXException {
+    try {
+      handler = newTemplatesHandler(templates, parameters, factory);
+    } catch (TransformerConfigurationException e) {
+      throw new SAXException(e);
+    }
+
+    handler.setResult(new SAXResult(getContentHandler()));
+
+    if (locator != null) {
+      handler.setDocumentLocator(locator);
+    }
+
+    handler.startDocument();
+  }
+
+  @Override
+  public void startElement(
+      final String namespaceURI, final String localName, final String qName, final Attributes atts)
+      throws SAXException {
+    handler.startElement(namespaceURI, localName, qName, atts);
+  }
+
+  @Override
+  public void startPrefixMapping(final String prefix, final String uri) throws SAXException {
+    handler.startPrefixMapping(prefix, uri);
+  }
+}
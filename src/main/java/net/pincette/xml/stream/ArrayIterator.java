@@ -0,0 +1,32 @@
+package net.pincette.xml.stream;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates over the first elements of an array.
+ *
+ * @author Werner Donné
+ */
+class ArrayIterator<T> implements Iterator<T> {
+  private final T[] array;
+  private final int length;
+  private int position;
+
+  ArrayIterator(final T[] array, final int length) {
+    this.array = array;
+    this.length = length;
+  }
+
+  public boolean hasNext() {
+    return position < length;
+  }
+
+  public T next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+
+    return array[position++];
+  }
+}
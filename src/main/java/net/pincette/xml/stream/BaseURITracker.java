@@ -19,6 +19,8 @@ import javax.xml.stream.events.XMLEvent;
  * @author Werner Donné
  */
 public class BaseURITracker {
+  private static final QName BASE = new QName(XML_NS_URI, "base", XML_NS_PREFIX);
+
   private final Deque<String> baseURIs = new ArrayDeque<>();
   private final String baseURI;
 
@@ -37,10 +39,7 @@ public class BaseURITracker {
   public void add(final XMLEvent event) {
     if (event.isStartElement()) {
       baseURIs.push(
-          Optional.ofNullable(
-                  event
-                      .asStartElement()
-                      .getAttributeByName(new QName(XML_NS_URI, "base", XML_NS_PREFIX)))
+          Optional.ofNullable(event.asStartElement().getAttributeByName(BASE))
               .map(Attribute::getValue)
               .map(this::resolveURI)
               .orElse(getBaseURI()));
@@ -1,12 +1,13 @@
 package net.pincette.xml.stream;
 
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
+
 import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Deque;
 import java.util.Optional;
 import java.util.Set;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.EndElement;
@@ -17,7 +18,6 @@ import javax.xml.stream.events.XMLEvent;
  * @author Werner Donné
  */
 public class BeautifierEventWriter extends EventWriterDelegate {
-  private final XMLEventFactory factory;
   private int indent = 0;
   private final Set<QName> inlineElements;
   private final Deque<Boolean> inlineSeen = new ArrayDeque<>();
@@ -28,7 +28,6 @@ public class BeautifierEventWriter extends EventWriterDelegate {
 
   public BeautifierEventWriter(final Set<QName> inlineElements, final XMLEventWriter writer) {
     super(writer);
-    this.factory = XMLEventFactory.newFactory();
     this.inlineElements = inlineElements;
   }
 
@@ -50,7 +49,7 @@ public class BeautifierEventWriter extends EventWriterDelegate {
 
     Arrays.fill(c, ' ');
     c[0] = '\n';
-    super.add(factory.createCharacters(new String(c)));
+    super.add(eventFactory().createCharacters(new String(c)));
   }
 
   private void handleEndElement(final EndElement event) throws XMLStreamException {
@@ -162,15 +162,25 @@ public class ContentHandlerEventWriter implements XMLEventWriter {
   }
 
   private void writeCharacters(final Characters event) throws XMLStreamException {
-    writeCharacters(event.getData());
+    if (event instanceof MutableCharacters characters) {
+      writeCharacters(
+          characters.getTextCharacters(), characters.getTextStart(), characters.getTextLength());
+    } else {
+      writeCharacters(event.getData());
+    }
   }
 
   private void writeCharacters(final String s) throws XMLStreamException {
+    writeCharacters(s.toCharArray(), 0, s.length());
+  }
+
+  private void writeCharacters(final char[] ch, final int start, final int length)
+      throws XMLStreamException {
     try {
       flushPendingElement();
 
       if (!elements.isEmpty()) {
-        handler.characters(s.toCharArray(), 0, s.length());
+        handler.characters(ch, start, length);
       }
     } catch (SAXException e) {
       throw new XMLStreamException(e);
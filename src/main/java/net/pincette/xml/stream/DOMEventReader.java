@@ -5,6 +5,7 @@ import static net.pincette.xml.Util.children;
 import static net.pincette.xml.stream.Util.clearNode;
 import static net.pincette.xml.stream.Util.createEndElement;
 import static net.pincette.xml.stream.Util.createStartElement;
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
 import static org.w3c.dom.Node.CDATA_SECTION_NODE;
 import static org.w3c.dom.Node.COMMENT_NODE;
 import static org.w3c.dom.Node.DOCUMENT_NODE;
@@ -37,7 +38,6 @@ import org.w3c.dom.Text;
  * @author Werner Donné
  */
 public class DOMEventReader implements XMLEventReader {
-  private final XMLEventFactory factory = XMLEventFactory.newInstance();
   private final Node node;
   private final boolean destruct;
   private final Position end;
@@ -193,7 +193,7 @@ public class DOMEventReader implements XMLEventReader {
       clearNode(position.node);
     }
 
-    return createEvent(position, factory);
+    return createEvent(position, eventFactory());
   }
 
   public XMLEvent nextTag() throws XMLStreamException {
@@ -207,7 +207,7 @@ public class DOMEventReader implements XMLEventReader {
       }
 
       if (position.node instanceof Element) {
-        return createEvent(position, factory);
+        return createEvent(position, eventFactory());
       }
     }
 
@@ -216,7 +216,7 @@ public class DOMEventReader implements XMLEventReader {
 
   public XMLEvent peek() {
     return ofNullable(getNextPosition(position, node))
-        .map(p -> createEvent(p, factory))
+        .map(p -> createEvent(p, eventFactory()))
         .orElse(null);
   }
 
@@ -3,7 +3,6 @@ package net.pincette.xml.stream;
 import static net.pincette.util.Util.tryToDoRethrow;
 import static net.pincette.util.Util.tryToGetRethrow;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -14,7 +13,8 @@ import javax.xml.stream.events.XMLEvent;
 /**
  * A reader that is fed of a dynamic list of events. Consumed events are removed from the list and
  * when the list runs out of events, the caller is notified in order for it to replenish the list if
- * desired.
+ * desired. Removing consumed events takes constant time when the list is an <code>EventQueue
+ * </code>, which is the default.
  *
  * @author Werner Donné
  */
@@ -29,7 +29,7 @@ public class DynamicListEventReader implements XMLEventReader {
   }
 
   public DynamicListEventReader(final List<XMLEvent> events, final Notify notify) {
-    this.events = events != null ? events : new ArrayList<>();
+    this.events = events != null ? events : new EventQueue();
     this.notify = notify;
   }
 
@@ -11,7 +11,6 @@ import static javax.xml.stream.XMLStreamConstants.PROCESSING_INSTRUCTION;
 import static javax.xml.stream.XMLStreamConstants.SPACE;
 import static javax.xml.stream.XMLStreamConstants.START_DOCUMENT;
 import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
-import static net.pincette.util.Pair.pair;
 import static net.pincette.util.Util.tryToDoRethrow;
 import static net.pincette.xml.stream.Util.attributes;
 import static net.pincette.xml.stream.Util.escapeText;
@@ -20,10 +19,6 @@ import static net.pincette.xml.stream.Util.namespaces;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.Writer;
-import java.util.ArrayDeque;
-import java.util.ArrayList;
-import java.util.Deque;
-import java.util.List;
 import java.util.Optional;
 import javax.xml.XMLConstants;
 import javax.xml.namespace.NamespaceContext;
@@ -41,8 +36,7 @@ import javax.xml.stream.events.Namespace;
 import javax.xml.stream.events.ProcessingInstruction;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
-import net.pincette.util.Pair;
-import net.pincette.xml.NamespacePrefixMap;
+import net.pincette.xml.internal.NamespaceScope;
 
 /**
  * This writer honours the <code>javax.xml.transform.disable-output-escaping</code> and <code>
@@ -52,8 +46,7 @@ import net.pincette.xml.NamespacePrefixMap;
  */
 public class EscapePIEventWriter implements XMLEventWriter {
   private final String encoding;
-  private final NamespacePrefixMap prefixMap = new NamespacePrefixMap();
-  private final Deque<List<Pair<String, String>>> prefixMappings = new ArrayDeque<>();
+  private final NamespaceScope scope = new NamespaceScope();
   private final BufferedWriter writer;
   private NamespaceContext context;
   private boolean escape = true;
@@ -65,7 +58,6 @@ public class EscapePIEventWriter implements XMLEventWriter {
   public EscapePIEventWriter(final Writer writer, final String encoding) {
     this.writer = new BufferedWriter(writer);
     this.encoding = encoding;
-    prefixMappings.push(new ArrayList<>());
   }
 
   private static String getName(final QName name) {
@@ -99,22 +91,13 @@ public class EscapePIEventWriter implements XMLEventWriter {
             .equals(((ProcessingInstruction) event).getTarget())) {
       escape = true;
     } else if (event.isStartElement()) {
-      Optional.ofNullable(prefixMappings.peek())
-          .ifPresent(
-              list ->
-                  list.forEach(
-                      mapping -> prefixMap.startPrefixMapping(mapping.first, mapping.second)));
-
-      prefixMappings.push(new ArrayList<>());
+      scope.push();
     }
 
     writeEvent(event);
 
-    if (event.isEndElement()) {
-      prefixMappings.pop();
-
-      Optional.ofNullable(prefixMappings.peek())
-          .ifPresent(list -> list.forEach(mapping -> prefixMap.endPrefixMapping(mapping.first)));
+    if (event.isEndElement() && scope.getDepth() > 0) {
+      scope.pop();
     }
 
     if (event.isEndDocument()) {
@@ -155,17 +138,16 @@ public class EscapePIEventWriter implements XMLEventWriter {
   }
 
   public String getPrefix(final String uri) {
-    return Optional.ofNullable(prefixMap.getPrefix(uri))
+    return Optional.ofNullable(scope.getPrefix(uri))
         .orElseGet(() -> context != null ? context.getPrefix(uri) : null);
   }
 
   public void setDefaultNamespace(final String uri) {
-    Optional.ofNullable(prefixMappings.peek())
-        .ifPresent(list -> list.add(pair(DEFAULT_NS_PREFIX, uri)));
+    scope.declare(DEFAULT_NS_PREFIX, uri);
   }
 
   public void setPrefix(final String prefix, final String uri) {
-    Optional.ofNullable(prefixMappings.peek()).ifPresent(list -> list.add(pair(prefix, uri)));
+    scope.declare(prefix, uri);
   }
 
   private void writeAttribute(final Attribute attribute) throws IOException {
@@ -0,0 +1,134 @@
+package net.pincette.xml.stream;
+
+import static java.lang.Integer.highestOneBit;
+import static java.lang.Math.max;
+import static java.util.Objects.checkIndex;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * A list of events on a ring buffer. Adding at the end and removing at the front take constant
+ * time, so it can be used as a FIFO. It is still a list, which makes it possible to hand it to code
+ * that replenishes it.
+ *
+ * @author Werner Donné
+ */
+public class EventQueue extends AbstractList<XMLEvent> implements RandomAccess {
+  private static final int DEFAULT_CAPACITY = 16;
+
+  private XMLEvent[] elements;
+  private int head;
+  private int size;
+
+  public EventQueue() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public EventQueue(final int capacity) {
+    elements = new XMLEvent[max(2, highestOneBit(max(1, capacity - 1)) << 1)];
+  }
+
+  @Override
+  public void add(final int index, final XMLEvent event) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException(index);
+    }
+
+    if (size == elements.length) {
+      grow();
+    }
+
+    if (index == 0) {
+      head = slot(-1);
+      elements[head] = event;
+    } else {
+      for (int i = size; i > index; --i) {
+        elements[slot(i)] = elements[slot(i - 1)];
+      }
+
+      elements[slot(index)] = event;
+    }
+
+    ++size;
+    ++modCount;
+  }
+
+  @Override
+  public void clear() {
+    for (int i = 0; i < size; ++i) {
+      elements[slot(i)] = null;
+    }
+
+    head = 0;
+    size = 0;
+    ++modCount;
+  }
+
+  @Override
+  public XMLEvent get(final int index) {
+    return elements[slot(checkIndex(index, size))];
+  }
+
+  private void grow() {
+    final XMLEvent[] grown = new XMLEvent[elements.length << 1];
+
+    for (int i = 0; i < size; ++i) {
+      grown[i] = elements[slot(i)];
+    }
+
+    elements = grown;
+    head = 0;
+  }
+
+  /** Returns the first event without removing it or <code>null</code> if the queue is empty. */
+  public XMLEvent peek() {
+    return size > 0 ? elements[head] : null;
+  }
+
+  /** Removes and returns the first event or <code>null</code> if the queue is empty. */
+  public XMLEvent poll() {
+    return size > 0 ? remove(0) : null;
+  }
+
+  @Override
+  public XMLEvent remove(final int index) {
+    final XMLEvent result = get(index);
+
+    if (index == 0) {
+      elements[head] = null;
+      head = slot(1);
+    } else {
+      for (int i = index; i < size - 1; ++i) {
+        elements[slot(i)] = elements[slot(i + 1)];
+      }
+
+      elements[slot(size - 1)] = null;
+    }
+
+    --size;
+    ++modCount;
+
+    return result;
+  }
+
+  @Override
+  public XMLEvent set(final int index, final XMLEvent event) {
+    final int slot = slot(checkIndex(index, size));
+    final XMLEvent result = elements[slot];
+
+    elements[slot] = event;
+
+    return result;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  private int slot(final int index) {
+    return (head + index) & (elements.length - 1);
+  }
+}
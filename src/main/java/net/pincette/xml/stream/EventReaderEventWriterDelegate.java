@@ -5,9 +5,7 @@ import static javax.xml.stream.XMLStreamConstants.ENTITY_DECLARATION;
 import static net.pincette.util.StreamUtil.last;
 import static net.pincette.util.StreamUtil.takeWhile;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Objects;
@@ -25,7 +23,7 @@ import javax.xml.stream.util.EventReaderDelegate;
  * @author Werner Donné
  */
 public class EventReaderEventWriterDelegate extends EventWriterDelegate {
-  private final List<XMLEvent> buffer = new ArrayList<>();
+  private final EventQueue buffer = new EventQueue();
   private final Map<String, String> entityDeclarations = new HashMap<>();
   private final EventReaderDelegate reader;
 
@@ -86,7 +84,7 @@ public class EventReaderEventWriterDelegate extends EventWriterDelegate {
     }
 
     public String getElementText() throws XMLStreamException {
-      return Util.getElementText(this, buffer.get(0), entityDeclarations);
+      return Util.getElementText(this, buffer.peek(), entityDeclarations);
     }
 
     public Object getProperty(final String name) {
@@ -106,7 +104,7 @@ public class EventReaderEventWriterDelegate extends EventWriterDelegate {
         throw new NoSuchElementException();
       }
 
-      return buffer.remove(0);
+      return buffer.poll();
     }
 
     public XMLEvent nextTag() throws XMLStreamException {
@@ -114,7 +112,7 @@ public class EventReaderEventWriterDelegate extends EventWriterDelegate {
     }
 
     public XMLEvent peek() {
-      return hasNext() ? buffer.get(0) : null;
+      return hasNext() ? buffer.peek() : null;
     }
 
     @Override
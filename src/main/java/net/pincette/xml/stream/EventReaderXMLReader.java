@@ -1,9 +1,10 @@
 package net.pincette.xml.stream;
 
+import static net.pincette.xml.stream.EventToContentHandler.readerToContentHandler;
+
 import java.util.HashMap;
 import java.util.Map;
 import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLStreamException;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.DTDHandler;
 import org.xml.sax.EntityResolver;
@@ -59,11 +60,7 @@ public class EventReaderXMLReader implements XMLReader {
 
   public void parse(final InputSource input) throws SAXException {
     if (contentHandler != null) {
-      try {
-        new StreamEventWriter(new ContentHandlerStreamWriter(contentHandler)).add(reader);
-      } catch (XMLStreamException e) {
-        throw new SAXException(e);
-      }
+      readerToContentHandler(reader, contentHandler);
     }
   }
 
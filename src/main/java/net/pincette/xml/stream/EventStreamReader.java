@@ -1,18 +1,16 @@
 package net.pincette.xml.stream;
 
 import static java.util.stream.Collectors.toMap;
-import static net.pincette.util.Collections.set;
-import static net.pincette.xml.stream.Util.attributes;
-import static net.pincette.xml.stream.Util.namespaces;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static javax.xml.XMLConstants.XML_NS_PREFIX;
+import static javax.xml.XMLConstants.XML_NS_URI;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
-import java.util.function.Supplier;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.namespace.QName;
 import javax.xml.stream.Location;
@@ -29,54 +27,90 @@ import javax.xml.stream.events.ProcessingInstruction;
 import javax.xml.stream.events.StartDocument;
 import javax.xml.stream.events.XMLEvent;
 import javax.xml.stream.util.EventReaderDelegate;
-import net.pincette.xml.NamespacePrefixMap;
+import net.pincette.xml.internal.NamespaceScope;
 
 /**
- * An XMLStreamReader wrapper around an XMLEventReader.
+ * An XMLStreamReader wrapper around an XMLEventReader. The attributes and namespace declarations
+ * of the current event are kept in arrays that are reused, as is the character array for the text.
+ * Namespace scopes are tracked with the start elements in a <code>NamespaceScope</code>, so end
+ * elements don't need to carry their namespaces and lookups don't depend on the depth.
  *
  * @author Werner Donné
  */
 public class EventStreamReader implements XMLStreamReader {
-  private static final Set<Integer> ATTRIBUTE_TYPES = set(ATTRIBUTE, START_ELEMENT);
-  private static final Set<Integer> DOCUMENT_TYPES = set(START_DOCUMENT);
-  private static final Set<Integer> EVENT_TYPES =
-      set(CDATA, CHARACTERS, COMMENT, DTD, ENTITY_REFERENCE, SPACE);
-  private static final Set<Integer> LOCAL_NAME_TYPES =
-      set(ENTITY_REFERENCE, START_ELEMENT, END_ELEMENT);
-  private static final Set<Integer> NAMESPACE_TYPES = set(NAMESPACE, START_ELEMENT, END_ELEMENT);
-  private static final Set<Integer> NAME_TYPES = set(END_ELEMENT, START_ELEMENT);
-  private static final Set<Integer> PROCESSING_INSTRUCTION_TYPES = set(PROCESSING_INSTRUCTION);
-  private static final Set<Integer> TEXT_CHAR_TYPES = set(CDATA, CHARACTERS, SPACE);
-
-  private Map<String, String> entityDeclarations = new HashMap<>();
-  private List<Namespace> currentNamespaces = new ArrayList<>();
-  private List<Attribute> currentAttributes = new ArrayList<>();
-  private XMLEvent currentEvent;
-  private final NamespacePrefixMap prefixMap = new NamespacePrefixMap();
+  private static final int ATTRIBUTE_TYPES = mask(ATTRIBUTE, START_ELEMENT);
+  private static final int DOCUMENT_TYPES = mask(START_DOCUMENT);
+  private static final int EVENT_TYPES =
+      mask(CDATA, CHARACTERS, COMMENT, DTD, ENTITY_REFERENCE, SPACE);
+  private static final int LOCAL_NAME_TYPES = mask(ENTITY_REFERENCE, START_ELEMENT, END_ELEMENT);
+  private static final int NAMESPACE_TYPES = mask(NAMESPACE, START_ELEMENT, END_ELEMENT);
+  private static final int NAME_TYPES = mask(END_ELEMENT, START_ELEMENT);
+  private static final int PROCESSING_INSTRUCTION_TYPES = mask(PROCESSING_INSTRUCTION);
+  private static final int TEXT_CHAR_TYPES = mask(CDATA, CHARACTERS, SPACE);
+
+  private final NamespaceContext namespaceContext = new ScopeContext();
   private final XMLEventReader reader;
+  private final NamespaceScope scope = new NamespaceScope();
+  private int attributeCount;
+  private Attribute[] attributes = new Attribute[8];
+  private XMLEvent currentEvent;
+  private Map<String, String> entityDeclarations = new HashMap<>();
+  private int namespaceEnd;
+  private int namespaceStart;
+  private boolean popScope;
+  private char[] text = new char[256];
+  private char[] textCharacters;
+  private int textLength;
+  private int textStart;
 
   public EventStreamReader(final XMLEventReader reader) {
     this.reader =
         new EventReaderDelegate(reader) {
           @Override
           public XMLEvent nextEvent() throws XMLStreamException {
-            currentEvent = getParent().nextEvent();
+            final XMLEvent event = getParent().nextEvent();
 
-            return currentEvent;
+            setCurrentEvent(event);
+
+            return event;
           }
         };
   }
 
+  private static int mask(final int... types) {
+    int result = 0;
+
+    for (final int type : types) {
+      result |= 1 << type;
+    }
+
+    return result;
+  }
+
+  private void addAttribute(final Attribute attribute) {
+    if (attributeCount == attributes.length) {
+      attributes = Arrays.copyOf(attributes, 2 * attributes.length);
+    }
+
+    attributes[attributeCount++] = attribute;
+  }
+
   private void checkAttributeState() {
     checkState(ATTRIBUTE_TYPES);
   }
 
+  private void checkIndex(final int index, final int count) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException(index);
+    }
+  }
+
   private void checkNamespaceState() {
     checkState(NAMESPACE_TYPES);
   }
 
-  private void checkState(final Set<Integer> allowedTypes) {
-    if (currentEvent == null || !allowedTypes.contains(currentEvent.getEventType())) {
+  private void checkState(final int allowedTypes) {
+    if (currentEvent == null || (allowedTypes & (1 << currentEvent.getEventType())) == 0) {
       throw new IllegalStateException();
     }
   }
@@ -87,12 +121,6 @@ public class EventStreamReader implements XMLStreamReader {
     }
   }
 
-  private void clearNamespaces() {
-    currentNamespaces.clear();
-
-    namespaces(currentEvent).forEach(n -> prefixMap.endPrefixMapping(n.getPrefix()));
-  }
-
   public void close() throws XMLStreamException {
     reader.close();
   }
@@ -103,13 +131,15 @@ public class EventStreamReader implements XMLStreamReader {
   }
 
   private Attribute getAttribute(final int index) {
-    return currentEvent.isAttribute() ? (Attribute) currentEvent : currentAttributes.get(index);
+    checkIndex(index, attributeCount);
+
+    return attributes[index];
   }
 
   public int getAttributeCount() {
     checkAttributeState();
 
-    return currentEvent.isAttribute() ? 1 : currentAttributes.size();
+    return attributeCount;
   }
 
   public String getAttributeLocalName(final int index) {
@@ -151,21 +181,17 @@ public class EventStreamReader implements XMLStreamReader {
   public String getAttributeValue(final String namespaceURI, final String localName) {
     checkAttributeState();
 
-    final QName name = new QName(namespaceURI == null ? "" : namespaceURI, localName);
-    final Function<Attribute, String> tryAttribute =
-        a -> name.equals(a.getName()) ? a.getValue() : null;
+    final String uri = namespaceURI == null ? "" : namespaceURI;
 
-    return currentEvent.isAttribute()
-        ? tryAttribute.apply((Attribute) currentEvent)
-        : currentAttributes.stream()
-            .filter(a -> name.equals(a.getName()))
-            .map(Attribute::getValue)
-            .findFirst()
-            .orElse(null);
-  }
+    for (int i = 0; i < attributeCount; ++i) {
+      final QName name = attributes[i].getName();
+
+      if (uri.equals(name.getNamespaceURI()) && name.getLocalPart().equals(localName)) {
+        return attributes[i].getValue();
+      }
+    }
 
-  private List<Attribute> getAttributes() {
-    return attributes(currentEvent).toList();
+    return null;
   }
 
   public String getCharacterEncodingScheme() {
@@ -189,15 +215,11 @@ public class EventStreamReader implements XMLStreamReader {
   public String getLocalName() {
     checkState(LOCAL_NAME_TYPES);
 
-    final Supplier<String> tryEndElement =
-        () ->
-            currentEvent.isEndElement()
-                ? currentEvent.asEndElement().getName().getLocalPart()
-                : ((EntityReference) currentEvent).getName();
-
-    return currentEvent.isStartElement()
-        ? currentEvent.asStartElement().getName().getLocalPart()
-        : tryEndElement.get();
+    return switch (currentEvent.getEventType()) {
+      case START_ELEMENT -> currentEvent.asStartElement().getName().getLocalPart();
+      case END_ELEMENT -> currentEvent.asEndElement().getName().getLocalPart();
+      default -> ((EntityReference) currentEvent).getName();
+    };
   }
 
   public Location getLocation() {
@@ -212,24 +234,23 @@ public class EventStreamReader implements XMLStreamReader {
         : currentEvent.asEndElement().getName();
   }
 
-  private Namespace getNamespace(final int index) {
-    return currentEvent.isNamespace() ? (Namespace) currentEvent : currentNamespaces.get(index);
-  }
-
   public NamespaceContext getNamespaceContext() {
-    return new PrefixMapContext();
+    return namespaceContext;
   }
 
   public int getNamespaceCount() {
     checkNamespaceState();
 
-    return currentEvent.isNamespace() ? 1 : currentNamespaces.size();
+    return namespaceEnd - namespaceStart;
   }
 
   public String getNamespacePrefix(final int index) {
     checkNamespaceState();
+    checkIndex(index, namespaceEnd - namespaceStart);
 
-    return getNamespace(index).getPrefix();
+    return scope.getDeclaredPrefix(namespaceStart + index).isEmpty()
+        ? null
+        : scope.getDeclaredPrefix(namespaceStart + index);
   }
 
   public String getNamespaceURI() {
@@ -238,18 +259,13 @@ public class EventStreamReader implements XMLStreamReader {
 
   public String getNamespaceURI(final int index) {
     checkNamespaceState();
+    checkIndex(index, namespaceEnd - namespaceStart);
 
-    return getNamespace(index).getNamespaceURI();
+    return scope.getDeclaredNamespaceURI(namespaceStart + index);
   }
 
   public String getNamespaceURI(final String prefix) {
-    return prefixMap.getNamespacePrefix(prefix);
-  }
-
-  private List<Namespace> getNamespaces() {
-    return namespaces(currentEvent)
-        .peek(n -> prefixMap.startPrefixMapping(n.getPrefix(), n.getNamespaceURI()))
-        .toList();
+    return namespaceContext.getNamespaceURI(prefix);
   }
 
   public String getPIData() {
@@ -289,32 +305,32 @@ public class EventStreamReader implements XMLStreamReader {
   public String getText() {
     checkTextState();
 
-    final Supplier<String> dtdOr =
-        () ->
-            currentEvent.getEventType() == DTD
-                ? ((DTD) currentEvent).getDocumentTypeDeclaration()
-                : ((EntityReference) currentEvent).getDeclaration().getReplacementText();
-    final Supplier<String> commentOr =
-        () ->
-            currentEvent.getEventType() == COMMENT
-                ? ((Comment) currentEvent).getText()
-                : dtdOr.get();
-
-    return currentEvent.isCharacters() ? currentEvent.asCharacters().getData() : commentOr.get();
+    return switch (currentEvent.getEventType()) {
+      case COMMENT -> ((Comment) currentEvent).getText();
+      case DTD -> ((DTD) currentEvent).getDocumentTypeDeclaration();
+      case ENTITY_REFERENCE ->
+          ((EntityReference) currentEvent).getDeclaration().getReplacementText();
+      default -> currentEvent.asCharacters().getData();
+    };
   }
 
+  /**
+   * The returned array is reused for the next events. Only the window given by <code>getTextStart
+   * </code> and <code>getTextLength</code> is valid.
+   */
   public char[] getTextCharacters() {
-    return getText().toCharArray();
+    loadText();
+
+    return textCharacters;
   }
 
   public int getTextCharacters(
       final int sourceStart, final char[] target, final int targetStart, final int length) {
     checkState(TEXT_CHAR_TYPES);
-
-    final char[] chars = getTextCharacters();
+    loadText();
 
     if (sourceStart < 0
-        || sourceStart > chars.length
+        || sourceStart > textLength
         || targetStart < 0
         || targetStart >= target.length
         || length < 0
@@ -322,21 +338,23 @@ public class EventStreamReader implements XMLStreamReader {
       throw new IndexOutOfBoundsException();
     }
 
-    final int result = Math.min(length, chars.length - sourceStart);
+    final int result = Math.min(length, textLength - sourceStart);
 
-    System.arraycopy(chars, sourceStart, target, targetStart, result);
+    System.arraycopy(textCharacters, textStart + sourceStart, target, targetStart, result);
 
     return result;
   }
 
   public int getTextLength() {
-    return getText().length();
+    loadText();
+
+    return textLength;
   }
 
   public int getTextStart() {
-    checkTextState();
+    loadText();
 
-    return 0;
+    return textStart;
   }
 
   public String getVersion() {
@@ -354,7 +372,7 @@ public class EventStreamReader implements XMLStreamReader {
   }
 
   public boolean hasText() {
-    return EVENT_TYPES.contains(currentEvent.getEventType());
+    return (EVENT_TYPES & (1 << currentEvent.getEventType())) != 0;
   }
 
   public boolean isAttributeSpecified(final int index) {
@@ -388,29 +406,38 @@ public class EventStreamReader implements XMLStreamReader {
             || currentEvent.asCharacters().isWhiteSpace());
   }
 
-  public int next() throws XMLStreamException {
-    currentEvent = reader.nextEvent();
+  /** The text is only copied to the character array when it is asked for. */
+  private void loadText() {
+    checkTextState();
+
+    if (textCharacters != null) {
+      return;
+    }
 
-    if (currentEvent.isStartElement() || currentEvent.isEndElement()) {
-      currentNamespaces = getNamespaces();
+    if (currentEvent instanceof MutableCharacters characters) {
+      textCharacters = characters.getTextCharacters();
+      textStart = characters.getTextStart();
+      textLength = characters.getTextLength();
+    } else {
+      final String s = getText();
 
-      if (currentEvent.isStartElement()) {
-        currentAttributes = getAttributes();
-      } else {
-        clearNamespaces();
+      if (s.length() > text.length) {
+        text = new char[Math.max(s.length(), 2 * text.length)];
       }
-    } else if (currentEvent.isNamespace()) {
-      prefixMap.startPrefixMapping(
-          ((Namespace) currentEvent).getPrefix(), ((Namespace) currentEvent).getNamespaceURI());
+
+      s.getChars(0, s.length(), text, 0);
+      textCharacters = text;
+      textStart = 0;
+      textLength = s.length();
     }
+  }
 
-    return currentEvent.getEventType();
+  public int next() throws XMLStreamException {
+    return reader.nextEvent().getEventType();
   }
 
   public int nextTag() throws XMLStreamException {
-    currentEvent = Util.nextTag(reader);
-
-    return currentEvent.getEventType();
+    return Util.nextTag(reader).getEventType();
   }
 
   public void require(final int type, final String namespaceURI, final String localName)
@@ -423,26 +450,77 @@ public class EventStreamReader implements XMLStreamReader {
     }
   }
 
+  private void setCurrentEvent(final XMLEvent event) {
+    if (popScope) {
+      popScope = false;
+      scope.pop();
+    }
+
+    Arrays.fill(attributes, 0, attributeCount, null);
+    attributeCount = 0;
+    currentEvent = event;
+    namespaceStart = scope.getDeclarationCount();
+    namespaceEnd = namespaceStart;
+    textCharacters = null;
+
+    switch (event.getEventType()) {
+      case ATTRIBUTE -> addAttribute((Attribute) event);
+      case END_ELEMENT -> {
+        if (scope.getDepth() > 0) {
+          namespaceStart = scope.getScopeStart();
+          popScope = true;
+        }
+      }
+      case NAMESPACE -> {
+        scope.declare(((Namespace) event).getPrefix(), ((Namespace) event).getNamespaceURI());
+        namespaceEnd = scope.getDeclarationCount();
+      }
+      case START_ELEMENT -> startElement(event);
+      default -> {
+        // Nothing to track.
+      }
+    }
+  }
+
   public boolean standaloneSet() {
     return isStandalone();
   }
 
-  private class PrefixMapContext implements NamespaceContext {
+  private void startElement(final XMLEvent event) {
+    scope.push();
+
+    for (final Iterator<?> i = event.asStartElement().getNamespaces(); i.hasNext(); ) {
+      final Namespace namespace = (Namespace) i.next();
+
+      scope.declare(namespace.getPrefix(), namespace.getNamespaceURI());
+    }
+
+    namespaceEnd = scope.getDeclarationCount();
+
+    for (final Iterator<?> i = event.asStartElement().getAttributes(); i.hasNext(); ) {
+      addAttribute((Attribute) i.next());
+    }
+  }
 
+  private class ScopeContext implements NamespaceContext {
     public String getNamespaceURI(final String prefix) {
-      return prefixMap.getNamespaceURI(prefix);
+      if (XML_NS_PREFIX.equals(prefix)) {
+        return XML_NS_URI;
+      }
+
+      if (XMLNS_ATTRIBUTE.equals(prefix)) {
+        return XMLNS_ATTRIBUTE_NS_URI;
+      }
+
+      return prefix != null ? scope.getNamespaceURI(prefix) : null;
     }
 
     public String getPrefix(final String namespaceURI) {
-      return prefixMap.getNamespacePrefix(namespaceURI);
+      return namespaceURI != null ? scope.getPrefix(namespaceURI) : null;
     }
 
     public Iterator<String> getPrefixes(final String namespaceURI) {
-      return prefixMap.getCurrentPrefixMap().entrySet().stream()
-          .filter(e -> namespaceURI.equals(e.getValue()))
-          .map(Map.Entry::getKey)
-          .toList()
-          .iterator();
+      return scope.getPrefixes(namespaceURI);
     }
   }
 }
@@ -1,12 +1,13 @@
 package net.pincette.xml.stream;
 
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
+
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
 import java.util.List;
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
@@ -14,18 +15,42 @@ import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.Namespace;
 
 /**
- * An XMLStreamWriter wrapper around an XMLEventWriter.
+ * An XMLStreamWriter wrapper around an XMLEventWriter. When events are reused the start element,
+ * end element and characters events are mutable instances that are overwritten for every call. The
+ * characters events then point directly to the array that is passed. This is only correct when the
+ * writer doesn't retain events.
  *
  * @author Werner Donné
  */
 public class EventStreamWriter implements XMLStreamWriter {
+  private final MutableCharacters characters;
+  private final MutableEndElement endElement;
   private final Deque<Element> elements = new ArrayDeque<>();
-  private final XMLEventFactory factory = XMLEventFactory.newFactory();
   private Element pendingElement;
+  private boolean pendingEmpty;
+  private boolean pendingStart;
+  private final boolean reuseEvents;
+  private final ScopeStack scopes;
+  private final MutableStartElement startElement;
   private final XMLEventWriter writer;
 
   public EventStreamWriter(final XMLEventWriter writer) {
+    this(writer, false);
+  }
+
+  /**
+   * Creates the writer.
+   *
+   * @param writer the writer that receives the events.
+   * @param reuseEvents when set, the same event instances are written over and over again.
+   */
+  public EventStreamWriter(final XMLEventWriter writer, final boolean reuseEvents) {
     this.writer = writer;
+    this.reuseEvents = reuseEvents;
+    characters = reuseEvents ? new MutableCharacters() : null;
+    endElement = reuseEvents ? new MutableEndElement() : null;
+    scopes = reuseEvents ? new ScopeStack() : null;
+    startElement = reuseEvents ? new MutableStartElement() : null;
   }
 
   public void close() throws XMLStreamException {
@@ -37,16 +62,25 @@ public class EventStreamWriter implements XMLStreamWriter {
   }
 
   private void flushPendingStartElement() throws XMLStreamException {
-    if (pendingElement != null) {
+    if (pendingStart) {
+      pendingStart = false;
+      writer.add(startElement);
+
+      if (pendingEmpty) {
+        writer.add(scopes.pop(endElement));
+      }
+    } else if (pendingElement != null) {
       writer.add(
-          factory.createStartElement(
-              pendingElement.name,
-              pendingElement.attributes.iterator(),
-              pendingElement.namespaces.iterator()));
+          eventFactory()
+              .createStartElement(
+                  pendingElement.name,
+                  pendingElement.attributes.iterator(),
+                  pendingElement.namespaces.iterator()));
 
       if (pendingElement.empty) {
         writer.add(
-            factory.createEndElement(pendingElement.name, pendingElement.namespaces.iterator()));
+            eventFactory()
+                .createEndElement(pendingElement.name, pendingElement.namespaces.iterator()));
       }
 
       pendingElement = null;
@@ -77,134 +111,172 @@ public class EventStreamWriter implements XMLStreamWriter {
     writer.setPrefix(prefix, uri);
   }
 
+  private void startElement(
+      final String prefix, final String namespaceURI, final String localName, final boolean empty)
+      throws XMLStreamException {
+    flushPendingStartElement();
+
+    if (reuseEvents) {
+      startElement
+          .clear()
+          .setName(prefix, namespaceURI, localName)
+          .setNamespaceContext(scopes.context());
+      scopes.push(startElement.getPrefix(), startElement.getNamespaceURI(), localName);
+      pendingStart = true;
+      pendingEmpty = empty;
+    } else {
+      pendingElement = new Element(new QName(namespaceURI, localName, prefix));
+      pendingElement.empty = empty;
+
+      if (!empty) {
+        elements.push(pendingElement);
+      }
+    }
+  }
+
   public void writeAttribute(final String localName, final String value) {
-    pendingElement.attributes.add(factory.createAttribute(localName, value));
+    if (reuseEvents) {
+      startElement.addAttribute("", "", localName, value);
+    } else {
+      pendingElement.attributes.add(eventFactory().createAttribute(localName, value));
+    }
   }
 
   public void writeAttribute(
       final String namespaceURI, final String localName, final String value) {
-    pendingElement.attributes.add(factory.createAttribute("", namespaceURI, localName, value));
+    writeAttribute("", namespaceURI, localName, value);
   }
 
   public void writeAttribute(
       final String prefix, final String namespaceURI, final String localName, final String value) {
-    pendingElement.attributes.add(factory.createAttribute(prefix, namespaceURI, localName, value));
+    if (reuseEvents) {
+      startElement.addAttribute(prefix, namespaceURI, localName, value);
+    } else {
+      pendingElement.attributes.add(
+          eventFactory().createAttribute(prefix, namespaceURI, localName, value));
+    }
   }
 
   public void writeCData(final String data) throws XMLStreamException {
     flushPendingStartElement();
-    writer.add(factory.createCData(data));
+    writer.add(eventFactory().createCData(data));
   }
 
   public void writeCharacters(final char[] text, final int start, final int len)
       throws XMLStreamException {
     flushPendingStartElement();
-    writer.add(factory.createCharacters(new String(text, start, len)));
+    writer.add(
+        reuseEvents
+            ? characters.set(text, start, len)
+            : eventFactory().createCharacters(new String(text, start, len)));
   }
 
   public void writeCharacters(final String text) throws XMLStreamException {
     flushPendingStartElement();
-    writer.add(factory.createCharacters(text));
+    writer.add(reuseEvents ? characters.set(text) : eventFactory().createCharacters(text));
   }
 
   public void writeComment(final String data) throws XMLStreamException {
     flushPendingStartElement();
-    writer.add(factory.createComment(data));
+    writer.add(eventFactory().createComment(data));
   }
 
   public void writeDefaultNamespace(final String namespaceURI) {
-    pendingElement.namespaces.add(factory.createNamespace(namespaceURI));
+    if (reuseEvents) {
+      writeNamespace("", namespaceURI);
+    } else {
+      pendingElement.namespaces.add(eventFactory().createNamespace(namespaceURI));
+    }
   }
 
   public void writeDTD(final String dtd) throws XMLStreamException {
-    writer.add(factory.createDTD(dtd));
+    writer.add(eventFactory().createDTD(dtd));
   }
 
   public void writeEmptyElement(final String localName) throws XMLStreamException {
-    flushPendingStartElement();
-    pendingElement = new Element(new QName(localName));
-    pendingElement.empty = true;
+    startElement("", "", localName, true);
   }
 
   public void writeEmptyElement(final String namespaceURI, final String localName)
       throws XMLStreamException {
-    flushPendingStartElement();
-    pendingElement = new Element(new QName(namespaceURI, localName));
-    pendingElement.empty = true;
+    startElement("", namespaceURI, localName, true);
   }
 
   public void writeEmptyElement(
       final String prefix, final String localName, final String namespaceURI)
       throws XMLStreamException {
-    flushPendingStartElement();
-    pendingElement = new Element(new QName(namespaceURI, localName, prefix));
-    pendingElement.empty = true;
+    startElement(prefix, namespaceURI, localName, true);
   }
 
   public void writeEndDocument() throws XMLStreamException {
-    writer.add(factory.createEndDocument());
+    writer.add(eventFactory().createEndDocument());
   }
 
   public void writeEndElement() throws XMLStreamException {
     flushPendingStartElement();
 
+    if (reuseEvents) {
+      writer.add(scopes.pop(endElement));
+
+      return;
+    }
+
     final Element element = elements.pop();
 
-    writer.add(factory.createEndElement(element.name, element.namespaces.iterator()));
+    writer.add(eventFactory().createEndElement(element.name, element.namespaces.iterator()));
   }
 
   public void writeEntityRef(final String name) throws XMLStreamException {
     flushPendingStartElement();
-    writer.add(factory.createEntityReference(name, null));
+    writer.add(eventFactory().createEntityReference(name, null));
   }
 
   public void writeNamespace(final String prefix, final String namespaceURI) {
-    pendingElement.namespaces.add(factory.createNamespace(prefix, namespaceURI));
+    if (reuseEvents) {
+      startElement.addNamespace(prefix, namespaceURI);
+      scopes.declare(prefix, namespaceURI);
+    } else {
+      pendingElement.namespaces.add(eventFactory().createNamespace(prefix, namespaceURI));
+    }
   }
 
   public void writeProcessingInstruction(final String target) throws XMLStreamException {
     flushPendingStartElement();
-    writer.add(factory.createProcessingInstruction(target, null));
+    writer.add(eventFactory().createProcessingInstruction(target, null));
   }
 
   public void writeProcessingInstruction(final String target, final String data)
       throws XMLStreamException {
     flushPendingStartElement();
-    writer.add(factory.createProcessingInstruction(target, data));
+    writer.add(eventFactory().createProcessingInstruction(target, data));
   }
 
   public void writeStartDocument() throws XMLStreamException {
-    writer.add(factory.createStartDocument());
+    writer.add(eventFactory().createStartDocument());
   }
 
   public void writeStartDocument(final String version) throws XMLStreamException {
-    writer.add(factory.createStartDocument("UTF-8", version));
+    writer.add(eventFactory().createStartDocument("UTF-8", version));
   }
 
   public void writeStartDocument(final String encoding, final String version)
       throws XMLStreamException {
-    writer.add(factory.createStartDocument(encoding, version));
+    writer.add(eventFactory().createStartDocument(encoding, version));
   }
 
   public void writeStartElement(final String localName) throws XMLStreamException {
-    flushPendingStartElement();
-    pendingElement = new Element(new QName(localName));
-    elements.push(pendingElement);
+    startElement("", "", localName, false);
   }
 
   public void writeStartElement(final String namespaceURI, final String localName)
       throws XMLStreamException {
-    flushPendingStartElement();
-    pendingElement = new Element(new QName(namespaceURI, localName));
-    elements.push(pendingElement);
+    startElement("", namespaceURI, localName, false);
   }
 
   public void writeStartElement(
       final String prefix, final String localName, final String namespaceURI)
       throws XMLStreamException {
-    flushPendingStartElement();
-    pendingElement = new Element(new QName(namespaceURI, localName, prefix));
-    elements.push(pendingElement);
+    startElement(prefix, namespaceURI, localName, false);
   }
 
   private static class Element {
@@ -0,0 +1,187 @@
+package net.pincette.xml.stream;
+
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.EntityReference;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Feeds StAX events directly into a <code>ContentHandler</code>. Namespace declarations are
+ * reported as prefix mappings and as <code>xmlns</code> attributes. One attributes object is
+ * reused for all elements. Comments and character data outside the document element are dropped.
+ *
+ * @author Werner Donné
+ */
+public class EventToContentHandler {
+  private final AttributesImpl attributes = new AttributesImpl();
+  private final ContentHandler handler;
+  private final List<String> prefixes = new ArrayList<>();
+  private final List<Integer> prefixCounts = new ArrayList<>();
+  private final List<String> pendingPrefixMappings = new ArrayList<>();
+  private char[] buffer = new char[256];
+  private int depth;
+  private QName pendingElement;
+
+  public EventToContentHandler(final ContentHandler handler) {
+    this.handler = handler;
+  }
+
+  private static String qName(final QName name) {
+    return name.getPrefix() == null || name.getPrefix().isEmpty()
+        ? name.getLocalPart()
+        : (name.getPrefix() + ":" + name.getLocalPart());
+  }
+
+  /** Runs all the events of <code>reader</code> through <code>handler</code>. */
+  public static void readerToContentHandler(
+      final XMLEventReader reader, final ContentHandler handler) throws SAXException {
+    new EventToContentHandler(handler).add(reader);
+  }
+
+  public void add(final XMLEvent event) throws SAXException {
+    switch (event.getEventType()) {
+      case XMLStreamConstants.ATTRIBUTE -> addAttribute((Attribute) event);
+      case XMLStreamConstants.CDATA, XMLStreamConstants.SPACE, XMLStreamConstants.CHARACTERS ->
+          characters((Characters) event);
+      case XMLStreamConstants.COMMENT -> flushPendingElement();
+      case XMLStreamConstants.END_DOCUMENT -> handler.endDocument();
+      case XMLStreamConstants.END_ELEMENT -> endElement(event.asEndElement().getName());
+      case XMLStreamConstants.ENTITY_REFERENCE ->
+          characters("&" + ((EntityReference) event).getName() + ";");
+      case XMLStreamConstants.NAMESPACE -> addNamespace((Namespace) event);
+      case XMLStreamConstants.PROCESSING_INSTRUCTION -> processingInstruction(event);
+      case XMLStreamConstants.START_DOCUMENT -> handler.startDocument();
+      case XMLStreamConstants.START_ELEMENT -> startElement(event.asStartElement());
+      default -> {
+        // Not reported.
+      }
+    }
+  }
+
+  public void add(final XMLEventReader reader) throws SAXException {
+    try {
+      while (reader.hasNext()) {
+        add(reader.nextEvent());
+      }
+    } catch (XMLStreamException e) {
+      throw new SAXException(e);
+    }
+  }
+
+  private void addAttribute(final Attribute attribute) {
+    if (pendingElement != null) {
+      attributes.addAttribute(
+          attribute.getName().getNamespaceURI(),
+          attribute.getName().getLocalPart(),
+          qName(attribute.getName()),
+          attribute.getDTDType() != null ? attribute.getDTDType() : "CDATA",
+          attribute.getValue());
+    }
+  }
+
+  private void addNamespace(final Namespace namespace) {
+    if (pendingElement != null) {
+      final String prefix = namespace.getPrefix() != null ? namespace.getPrefix() : "";
+      final String uri = namespace.getNamespaceURI() != null ? namespace.getNamespaceURI() : "";
+
+      pendingPrefixMappings.add(prefix);
+      pendingPrefixMappings.add(uri);
+      attributes.addAttribute(
+          XMLNS_ATTRIBUTE_NS_URI,
+          prefix.isEmpty() ? XMLNS_ATTRIBUTE : prefix,
+          prefix.isEmpty() ? XMLNS_ATTRIBUTE : (XMLNS_ATTRIBUTE + ":" + prefix),
+          "CDATA",
+          uri);
+    }
+  }
+
+  private void characters(final Characters event) throws SAXException {
+    flushPendingElement();
+
+    if (depth > 0) {
+      if (event instanceof MutableCharacters characters) {
+        handler.characters(
+            characters.getTextCharacters(), characters.getTextStart(), characters.getTextLength());
+      } else {
+        characters(event.getData());
+      }
+    }
+  }
+
+  private void characters(final String s) throws SAXException {
+    flushPendingElement();
+
+    if (depth > 0) {
+      if (s.length() > buffer.length) {
+        buffer = new char[Math.max(s.length(), 2 * buffer.length)];
+      }
+
+      s.getChars(0, s.length(), buffer, 0);
+      handler.characters(buffer, 0, s.length());
+    }
+  }
+
+  private void endElement(final QName name) throws SAXException {
+    flushPendingElement();
+    handler.endElement(name.getNamespaceURI(), name.getLocalPart(), qName(name));
+    --depth;
+
+    for (int i = prefixCounts.remove(prefixCounts.size() - 1); i > 0; --i) {
+      handler.endPrefixMapping(prefixes.remove(prefixes.size() - 1));
+    }
+  }
+
+  private void flushPendingElement() throws SAXException {
+    if (pendingElement != null) {
+      final QName name = pendingElement;
+
+      pendingElement = null;
+
+      for (int i = 0; i < pendingPrefixMappings.size(); i += 2) {
+        handler.startPrefixMapping(pendingPrefixMappings.get(i), pendingPrefixMappings.get(i + 1));
+        prefixes.add(pendingPrefixMappings.get(i));
+      }
+
+      prefixCounts.add(pendingPrefixMappings.size() / 2);
+      pendingPrefixMappings.clear();
+      handler.startElement(name.getNamespaceURI(), name.getLocalPart(), qName(name), attributes);
+      ++depth;
+    }
+  }
+
+  private void processingInstruction(final XMLEvent event) throws SAXException {
+    flushPendingElement();
+    handler.processingInstruction(
+        ((ProcessingInstruction) event).getTarget(), ((ProcessingInstruction) event).getData());
+  }
+
+  private void startElement(final StartElement event) throws SAXException {
+    flushPendingElement();
+    attributes.clear();
+    pendingElement = event.getName();
+
+    for (final Iterator<?> i = event.getNamespaces(); i.hasNext(); ) {
+      addNamespace((Namespace) i.next());
+    }
+
+    for (final Iterator<?> i = event.getAttributes(); i.hasNext(); ) {
+      addAttribute((Attribute) i.next());
+    }
+  }
+}
@@ -1,62 +1,121 @@
 package net.pincette.xml.stream;
 
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.emptyList;
 import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
-import static net.pincette.util.Util.from;
 import static net.pincette.util.Util.tryToDoRethrow;
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.Namespace;
+import net.pincette.xml.internal.NamespaceScope;
 import org.xml.sax.Attributes;
 import org.xml.sax.ContentHandler;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 
 /**
- * A ContentHandler wrapper around an XMLEventWriter.
+ * A ContentHandler wrapper around an XMLEventWriter. When events are reused the start element, end
+ * element and characters events are mutable instances that are overwritten for every callback. The
+ * characters events then point directly to the array of the parser. This is only correct when the
+ * writer doesn't retain events.
  *
  * @author Werner Donné
  */
 public class EventWriterContentHandler implements ContentHandler {
-  private final XMLEventFactory factory = XMLEventFactory.newFactory();
-  private final Deque<Map<String, Namespace>> namespaces = new ArrayDeque<>();
-  private final List<Namespace> pendingNamespaces = new ArrayList<>();
+  private final MutableCharacters characters;
+  private final MutableEndElement endElement;
+  private final List<String> pendingPrefixMappings = new ArrayList<>();
+  private final boolean reuseEvents;
+  private final ScopeStack scopes;
+  private final MutableStartElement startElement;
   private XMLEventWriter writer;
 
   public EventWriterContentHandler(final XMLEventWriter writer) {
+    this(writer, false);
+  }
+
+  /**
+   * Creates the handler.
+   *
+   * @param writer the writer that receives the events.
+   * @param reuseEvents when set, the same event instances are written over and over again.
+   */
+  public EventWriterContentHandler(final XMLEventWriter writer, final boolean reuseEvents) {
+    this.reuseEvents = reuseEvents;
+    characters = reuseEvents ? new MutableCharacters() : null;
+    endElement = reuseEvents ? new MutableEndElement() : null;
+    scopes = new ScopeStack();
+    startElement = reuseEvents ? new MutableStartElement() : null;
     setWriter(writer);
   }
 
   public void characters(final char[] ch, final int start, final int length) {
-    tryToDoRethrow(() -> writer.add(factory.createCharacters(new String(ch, start, length))));
+    tryToDoRethrow(
+        () ->
+            writer.add(
+                reuseEvents
+                    ? characters.set(ch, start, length)
+                    : eventFactory().createCharacters(new String(ch, start, length))));
   }
 
   public void endDocument() {
     tryToDoRethrow(
         () -> {
-          writer.add(factory.createEndDocument());
+          writer.add(eventFactory().createEndDocument());
           writer.flush();
           writer.close();
         });
   }
 
+  /** Declares the namespace of an xmlns attribute, unless a prefix mapping already did. */
+  private void declareAttribute(final String qName, final String value) {
+    final String prefix = qName.indexOf(':') != -1 ? qName.substring(qName.indexOf(':') + 1) : "";
+
+    if (!scopes.declares(prefix)) {
+      scopes.declare(prefix, value);
+    }
+  }
+
+  private Iterator<Namespace> declaredNamespaces() {
+    final NamespaceScope namespaces = scopes.namespaces();
+
+    if (namespaces.getScopeStart() == namespaces.getDeclarationCount()) {
+      return emptyIterator();
+    }
+
+    final List<Namespace> result = new ArrayList<>();
+
+    for (int i = namespaces.getScopeStart(); i < namespaces.getDeclarationCount(); ++i) {
+      result.add(
+          "".equals(namespaces.getDeclaredPrefix(i))
+              ? eventFactory().createNamespace(namespaces.getDeclaredNamespaceURI(i))
+              : eventFactory()
+                  .createNamespace(
+                      namespaces.getDeclaredPrefix(i), namespaces.getDeclaredNamespaceURI(i)));
+    }
+
+    return result.iterator();
+  }
+
   public void endElement(final String namespaceURI, final String localName, final String qName) {
     tryToDoRethrow(
-        () ->
+        () -> {
+          if (reuseEvents) {
+            writer.add(scopes.pop(endElement));
+          } else {
             writer.add(
-                factory.createEndElement(
-                    qName.indexOf(':') != -1 ? qName.substring(0, qName.indexOf(':')) : "",
-                    namespaceURI,
-                    localName,
-                    namespaces.pop().values().iterator())));
+                eventFactory()
+                    .createEndElement(
+                        prefix(qName), namespaceURI, localName, declaredNamespaces()));
+            scopes.pop();
+          }
+        });
   }
 
   public void endPrefixMapping(final String prefix) {
@@ -72,11 +131,20 @@ public class EventWriterContentHandler implements ContentHandler {
   }
 
   public void ignorableWhitespace(final char[] ch, final int start, final int length) {
-    tryToDoRethrow(() -> writer.add(factory.createIgnorableSpace(new String(ch, start, length))));
+    tryToDoRethrow(
+        () ->
+            writer.add(
+                reuseEvents
+                    ? characters.set(ch, start, length).setIgnorableWhiteSpace(true)
+                    : eventFactory().createIgnorableSpace(new String(ch, start, length))));
+  }
+
+  private static String prefix(final String qName) {
+    return qName.indexOf(':') != -1 ? qName.substring(0, qName.indexOf(':')) : "";
   }
 
   public void processingInstruction(final String target, final String data) {
-    tryToDoRethrow(() -> writer.add(factory.createProcessingInstruction(target, data)));
+    tryToDoRethrow(() -> writer.add(eventFactory().createProcessingInstruction(target, data)));
   }
 
   public void setDocumentLocator(final Locator locator) {
@@ -88,53 +156,102 @@ public class EventWriterContentHandler implements ContentHandler {
   }
 
   public void startDocument() {
-    tryToDoRethrow(() -> writer.add(factory.createStartDocument()));
+    scopes.clear();
+    pendingPrefixMappings.clear();
+    tryToDoRethrow(() -> writer.add(eventFactory().createStartDocument()));
   }
 
   public void startElement(
       final String namespaceURI, final String localName, final String qName, final Attributes atts)
       throws SAXException {
+    if (reuseEvents) {
+      startReusedElement(namespaceURI, localName, qName, atts);
+    } else {
+      startNewElement(namespaceURI, localName, qName, atts);
+    }
+  }
+
+  private void startNewElement(
+      final String namespaceURI, final String localName, final String qName, final Attributes atts)
+      throws SAXException {
     try {
-      final List<Attribute> attributes = new ArrayList<>();
-      final Map<String, Namespace> inScope = new HashMap<>();
+      final List<Attribute> attributes =
+          atts.getLength() > 0 ? new ArrayList<>(atts.getLength()) : emptyList();
 
-      namespaces.push(inScope);
+      startScope(prefix(qName), namespaceURI, localName);
 
       for (int i = 0; i < atts.getLength(); ++i) {
         final String name = atts.getQName(i);
 
         if (XMLNS_ATTRIBUTE_NS_URI.equals(atts.getURI(i))) {
-          from(name.indexOf(':') != -1
-                  ? factory.createNamespace(name.substring(name.indexOf(':') + 1), atts.getValue(i))
-                  : factory.createNamespace(atts.getValue(i)))
-              .accept(n -> inScope.put(n.getPrefix(), n));
+          declareAttribute(name, atts.getValue(i));
         } else {
           attributes.add(
-              factory.createAttribute(
-                  name.indexOf(':') != -1 ? name.substring(0, name.indexOf(':')) : "",
-                  atts.getURI(i),
-                  atts.getLocalName(i),
-                  atts.getValue(i)));
+              eventFactory()
+                  .createAttribute(
+                      prefix(name), atts.getURI(i), atts.getLocalName(i), atts.getValue(i)));
         }
       }
 
-      pendingNamespaces.forEach(n -> inScope.put(n.getPrefix(), n));
-      pendingNamespaces.clear();
-
       writer.add(
-          factory.createStartElement(
-              qName.indexOf(':') != -1 ? qName.substring(0, qName.indexOf(':')) : "",
-              namespaceURI,
-              localName,
-              attributes.iterator(),
-              inScope.values().iterator()));
+          eventFactory()
+              .createStartElement(
+                  prefix(qName),
+                  namespaceURI,
+                  localName,
+                  attributes.iterator(),
+                  declaredNamespaces()));
     } catch (XMLStreamException e) {
       throw new SAXException(e);
     }
   }
 
   public void startPrefixMapping(final String prefix, final String uri) {
-    pendingNamespaces.add(
-        "".equals(prefix) ? factory.createNamespace(uri) : factory.createNamespace(prefix, uri));
+    pendingPrefixMappings.add(prefix);
+    pendingPrefixMappings.add(uri);
+  }
+
+  private void startReusedElement(
+      final String namespaceURI, final String localName, final String qName, final Attributes atts)
+      throws SAXException {
+    startElement
+        .clear()
+        .setName(prefix(qName), namespaceURI, localName)
+        .setNamespaceContext(scopes.context());
+    startScope(startElement.getPrefix(), namespaceURI, localName);
+
+    for (int i = 0; i < atts.getLength(); ++i) {
+      final String name = atts.getQName(i);
+
+      if (XMLNS_ATTRIBUTE_NS_URI.equals(atts.getURI(i))) {
+        declareAttribute(name, atts.getValue(i));
+      } else {
+        startElement.addAttribute(
+            prefix(name), atts.getURI(i), atts.getLocalName(i), atts.getValue(i));
+      }
+    }
+
+    final NamespaceScope namespaces = scopes.namespaces();
+
+    for (int i = namespaces.getScopeStart(); i < namespaces.getDeclarationCount(); ++i) {
+      startElement.addNamespace(
+          namespaces.getDeclaredPrefix(i), namespaces.getDeclaredNamespaceURI(i));
+    }
+
+    try {
+      writer.add(startElement);
+    } catch (XMLStreamException e) {
+      throw new SAXException(e);
+    }
+  }
+
+  private void startScope(final String prefix, final String namespaceURI, final String localName) {
+    scopes.push(prefix, namespaceURI, localName);
+
+    for (int i = 0; i < pendingPrefixMappings.size(); i += 2) {
+      scopes.declare(pendingPrefixMappings.get(i), pendingPrefixMappings.get(i + 1));
+    }
+
+    pendingPrefixMappings.clear();
   }
 }
@@ -2,8 +2,6 @@ package net.pincette.xml.stream;
 
 import static net.pincette.util.Util.tryToGetRethrow;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.NoSuchElementException;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
@@ -16,7 +14,7 @@ import javax.xml.stream.events.XMLEvent;
  * @author Werner Donné
  */
 public class EventWriterEventReaderDelegate extends EventReaderDelegateBase {
-  private final List<XMLEvent> buffer = new ArrayList<>();
+  private final EventQueue buffer = new EventQueue();
   private final EventWriterDelegate writer;
 
   public EventWriterEventReaderDelegate(final EventWriterDelegate writer) {
@@ -48,7 +46,7 @@ public class EventWriterEventReaderDelegate extends EventReaderDelegateBase {
       throw new NoSuchElementException();
     }
 
-    final XMLEvent event = buffer.remove(0);
+    final XMLEvent event = buffer.poll();
 
     setCurrentEvent(event);
 
@@ -57,7 +55,7 @@ public class EventWriterEventReaderDelegate extends EventReaderDelegateBase {
 
   @Override
   public XMLEvent peek() throws XMLStreamException {
-    return !hasNext() ? null : buffer.get(0);
+    return !hasNext() ? null : buffer.peek();
   }
 
   private boolean readNext() throws XMLStreamException {
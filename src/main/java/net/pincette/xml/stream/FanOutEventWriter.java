@@ -0,0 +1,108 @@
+package net.pincette.xml.stream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Serializes the events once and writes the resulting bytes to several output streams or
+ * channels. The serialization is done by an <code>EscapePIEventWriter</code>. The bytes are
+ * collected in one buffer, which is reused for the whole document. Closing the writer flushes the
+ * outputs, but doesn't close them.
+ *
+ * @author Werner Donné
+ */
+public class FanOutEventWriter extends EventWriterDelegate {
+  private static final int BUFFER_SIZE = 0x10000;
+
+  public FanOutEventWriter(final OutputStream[] outputs) throws UnsupportedEncodingException {
+    this(outputs, "UTF-8");
+  }
+
+  public FanOutEventWriter(final OutputStream[] outputs, final String encoding)
+      throws UnsupportedEncodingException {
+    this(new FanOutStream(outputs, null), encoding);
+  }
+
+  public FanOutEventWriter(final WritableByteChannel[] channels)
+      throws UnsupportedEncodingException {
+    this(channels, "UTF-8");
+  }
+
+  public FanOutEventWriter(final WritableByteChannel[] channels, final String encoding)
+      throws UnsupportedEncodingException {
+    this(new FanOutStream(null, channels), encoding);
+  }
+
+  private FanOutEventWriter(final FanOutStream out, final String encoding)
+      throws UnsupportedEncodingException {
+    super(new EscapePIEventWriter(new OutputStreamWriter(out, encoding), encoding));
+  }
+
+  private static class FanOutStream extends OutputStream {
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final WritableByteChannel[] channels;
+    private int count;
+    private final OutputStream[] outputs;
+    private final ByteBuffer view = ByteBuffer.wrap(buffer);
+
+    private FanOutStream(final OutputStream[] outputs, final WritableByteChannel[] channels) {
+      this.outputs = outputs != null ? outputs : new OutputStream[0];
+      this.channels = channels != null ? channels : new WritableByteChannel[0];
+    }
+
+    private void drain() throws IOException {
+      if (count > 0) {
+        for (final OutputStream output : outputs) {
+          output.write(buffer, 0, count);
+        }
+
+        for (final WritableByteChannel channel : channels) {
+          view.clear().limit(count);
+
+          while (view.hasRemaining()) {
+            channel.write(view);
+          }
+        }
+
+        count = 0;
+      }
+    }
+
+    @Override
+    public void flush() throws IOException {
+      drain();
+
+      for (final OutputStream output : outputs) {
+        output.flush();
+      }
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      if (count == buffer.length) {
+        drain();
+      }
+
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      for (int written = 0; written < len; ) {
+        if (count == buffer.length) {
+          drain();
+        }
+
+        final int n = Math.min(len - written, buffer.length - count);
+
+        System.arraycopy(b, off + written, buffer, count, n);
+        count += n;
+        written += n;
+      }
+    }
+  }
+}
@@ -0,0 +1,86 @@
+package net.pincette.xml.stream;
+
+import static javax.xml.stream.XMLStreamConstants.ATTRIBUTE;
+import static net.pincette.xml.stream.Util.escapeText;
+
+import java.io.IOException;
+import java.io.Writer;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+
+/**
+ * An attribute slot of a mutable start element.
+ *
+ * @author Werner Donné
+ */
+class MutableAttribute extends XMLEventBase implements Attribute {
+  private final QNameCache names;
+  String localName;
+  private QName name;
+  String namespaceURI;
+  String prefix;
+  String value;
+
+  MutableAttribute(final QNameCache names) {
+    this.names = names;
+  }
+
+  public String getDTDType() {
+    return "CDATA";
+  }
+
+  @Override
+  public int getEventType() {
+    return ATTRIBUTE;
+  }
+
+  public QName getName() {
+    if (name == null) {
+      name = names.get(prefix, namespaceURI, localName);
+    }
+
+    return name;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  @Override
+  public boolean isAttribute() {
+    return true;
+  }
+
+  public boolean isSpecified() {
+    return true;
+  }
+
+  MutableAttribute set(
+      final String prefix, final String namespaceURI, final String localName, final String value) {
+    this.prefix = prefix != null ? prefix : "";
+    this.namespaceURI = namespaceURI != null ? namespaceURI : "";
+    this.localName = localName;
+    this.value = value;
+    name = null;
+
+    return this;
+  }
+
+  @Override
+  public void writeAsEncodedUnicode(final Writer writer) throws XMLStreamException {
+    try {
+      if (!prefix.isEmpty()) {
+        writer.write(prefix);
+        writer.write(':');
+      }
+
+      writer.write(localName);
+      writer.write("=\"");
+      writer.write(escapeText(value).replace("\"", "&quot;"));
+      writer.write('"');
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package net.pincette.xml.stream;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static net.pincette.xml.stream.Util.escapeText;
+
+import java.io.IOException;
+import java.io.Writer;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Characters;
+
+/**
+ * A characters event that can be reused. It is a window on a character array, which is not copied.
+ * The string is only created when it is asked for. Consumers that know this class can use the
+ * window directly. An instance is only valid until its producer moves to the next event, so it
+ * must not be retained.
+ *
+ * @author Werner Donné
+ * @see MutableStartElement
+ */
+public class MutableCharacters extends XMLEventBase implements Characters {
+  private boolean cdata;
+  private char[] characters;
+  private String data;
+  private boolean ignorableWhiteSpace;
+  private int length;
+  private int start;
+
+  @Override
+  public Characters asCharacters() {
+    return this;
+  }
+
+  public String getData() {
+    if (data == null) {
+      data = new String(characters, start, length);
+    }
+
+    return data;
+  }
+
+  @Override
+  public int getEventType() {
+    if (cdata) {
+      return CDATA;
+    }
+
+    return ignorableWhiteSpace ? SPACE : CHARACTERS;
+  }
+
+  public char[] getTextCharacters() {
+    if (characters == null) {
+      characters = data.toCharArray();
+    }
+
+    return characters;
+  }
+
+  public int getTextLength() {
+    return length;
+  }
+
+  public int getTextStart() {
+    return start;
+  }
+
+  public boolean isCData() {
+    return cdata;
+  }
+
+  @Override
+  public boolean isCharacters() {
+    return true;
+  }
+
+  public boolean isIgnorableWhiteSpace() {
+    return ignorableWhiteSpace;
+  }
+
+  public boolean isWhiteSpace() {
+    if (characters == null) {
+      return data.isBlank();
+    }
+
+    for (int i = start; i < start + length; ++i) {
+      if (!Character.isWhitespace(characters[i])) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Makes the event a window on <code>characters</code>, without copying it. The CDATA and
+   * ignorable whitespace flags are reset.
+   */
+  public MutableCharacters set(final char[] characters, final int start, final int length) {
+    this.characters = characters;
+    this.start = start;
+    this.length = length;
+    data = null;
+    cdata = false;
+    ignorableWhiteSpace = false;
+
+    return this;
+  }
+
+  /** Sets the text. The CDATA and ignorable whitespace flags are reset. */
+  public MutableCharacters set(final String data) {
+    this.data = data;
+    characters = null;
+    start = 0;
+    length = data.length();
+    cdata = false;
+    ignorableWhiteSpace = false;
+
+    return this;
+  }
+
+  public MutableCharacters setCData(final boolean cdata) {
+    this.cdata = cdata;
+
+    return this;
+  }
+
+  public MutableCharacters setIgnorableWhiteSpace(final boolean ignorableWhiteSpace) {
+    this.ignorableWhiteSpace = ignorableWhiteSpace;
+
+    return this;
+  }
+
+  @Override
+  public void writeAsEncodedUnicode(final Writer writer) throws XMLStreamException {
+    try {
+      if (cdata) {
+        writer.write("<![CDATA[");
+        writer.write(getData());
+        writer.write("]]>");
+      } else {
+        writer.write(escapeText(getData()));
+      }
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package net.pincette.xml.stream;
+
+import static java.util.Arrays.copyOf;
+import static javax.xml.XMLConstants.NULL_NS_URI;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.EndElement;
+import javax.xml.stream.events.Namespace;
+
+/**
+ * An end element event that can be reused. The namespace declarations that go out of scope are
+ * kept in reusable slots. An instance is only valid until its producer moves to the next event, so
+ * it must not be retained.
+ *
+ * @author Werner Donné
+ * @see MutableStartElement
+ */
+public class MutableEndElement extends XMLEventBase implements EndElement {
+  private final QNameCache names = new QNameCache();
+  private String localName;
+  private QName name;
+  private String namespaceURI;
+  private int namespaceCount;
+  private MutableNamespace[] namespaces = new MutableNamespace[4];
+  private String prefix;
+
+  public MutableEndElement addNamespace(final String prefix, final String namespaceURI) {
+    if (namespaceCount == namespaces.length) {
+      namespaces = copyOf(namespaces, namespaceCount * 2);
+    }
+
+    if (namespaces[namespaceCount] == null) {
+      namespaces[namespaceCount] = new MutableNamespace(names);
+    }
+
+    namespaces[namespaceCount++].set(prefix, namespaceURI);
+
+    return this;
+  }
+
+  @Override
+  public EndElement asEndElement() {
+    return this;
+  }
+
+  /** Removes the namespace declarations. */
+  public MutableEndElement clear() {
+    namespaceCount = 0;
+
+    return this;
+  }
+
+  @Override
+  public int getEventType() {
+    return END_ELEMENT;
+  }
+
+  public String getLocalName() {
+    return localName;
+  }
+
+  public QName getName() {
+    if (name == null) {
+      name = names.get(prefix, namespaceURI, localName);
+    }
+
+    return name;
+  }
+
+  public int getNamespaceCount() {
+    return namespaceCount;
+  }
+
+  public String getNamespacePrefix(final int index) {
+    return namespaces[index].prefix;
+  }
+
+  /** Returns the namespace URI of the element name. */
+  public String getNamespaceURI() {
+    return namespaceURI;
+  }
+
+  public String getNamespaceURI(final int index) {
+    return namespaces[index].namespaceURI;
+  }
+
+  public Iterator<Namespace> getNamespaces() {
+    return new ArrayIterator<>(namespaces, namespaceCount);
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  @Override
+  public boolean isEndElement() {
+    return true;
+  }
+
+  public MutableEndElement setName(final QName name) {
+    return setName(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart());
+  }
+
+  public MutableEndElement setName(
+      final String prefix, final String namespaceURI, final String localName) {
+    this.prefix = prefix != null ? prefix : "";
+    this.namespaceURI = namespaceURI != null ? namespaceURI : NULL_NS_URI;
+    this.localName = localName;
+    name = null;
+
+    return this;
+  }
+
+  @Override
+  public void writeAsEncodedUnicode(final Writer writer) throws XMLStreamException {
+    try {
+      writer.write("</");
+
+      if (!prefix.isEmpty()) {
+        writer.write(prefix);
+        writer.write(':');
+      }
+
+      writer.write(localName);
+      writer.write('>');
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+}
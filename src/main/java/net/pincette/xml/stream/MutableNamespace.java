@@ -0,0 +1,98 @@
+package net.pincette.xml.stream;
+
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static javax.xml.stream.XMLStreamConstants.NAMESPACE;
+
+import java.io.IOException;
+import java.io.Writer;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Namespace;
+
+/**
+ * A namespace declaration slot of a mutable start or end element.
+ *
+ * @author Werner Donné
+ */
+class MutableNamespace extends XMLEventBase implements Namespace {
+  private final QNameCache names;
+  private QName name;
+  String namespaceURI;
+  String prefix;
+
+  MutableNamespace(final QNameCache names) {
+    this.names = names;
+  }
+
+  public String getDTDType() {
+    return "CDATA";
+  }
+
+  @Override
+  public int getEventType() {
+    return NAMESPACE;
+  }
+
+  public QName getName() {
+    if (name == null) {
+      name =
+          isDefaultNamespaceDeclaration()
+              ? names.get("", XMLNS_ATTRIBUTE_NS_URI, XMLNS_ATTRIBUTE)
+              : names.get(XMLNS_ATTRIBUTE, XMLNS_ATTRIBUTE_NS_URI, prefix);
+    }
+
+    return name;
+  }
+
+  public String getNamespaceURI() {
+    return namespaceURI;
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  public String getValue() {
+    return namespaceURI;
+  }
+
+  public boolean isDefaultNamespaceDeclaration() {
+    return prefix.isEmpty();
+  }
+
+  @Override
+  public boolean isNamespace() {
+    return true;
+  }
+
+  public boolean isSpecified() {
+    return true;
+  }
+
+  MutableNamespace set(final String prefix, final String namespaceURI) {
+    this.prefix = prefix != null ? prefix : "";
+    this.namespaceURI = namespaceURI != null ? namespaceURI : "";
+    name = null;
+
+    return this;
+  }
+
+  @Override
+  public void writeAsEncodedUnicode(final Writer writer) throws XMLStreamException {
+    try {
+      writer.write(XMLNS_ATTRIBUTE);
+
+      if (!prefix.isEmpty()) {
+        writer.write(':');
+        writer.write(prefix);
+      }
+
+      writer.write("=\"");
+      writer.write(namespaceURI.replace("\"", "&quot;"));
+      writer.write('"');
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+}
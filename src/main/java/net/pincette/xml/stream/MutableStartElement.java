@@ -0,0 +1,385 @@
+package net.pincette.xml.stream;
+
+import static java.util.Arrays.copyOf;
+import static javax.xml.XMLConstants.NULL_NS_URI;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static javax.xml.XMLConstants.XML_NS_PREFIX;
+import static javax.xml.XMLConstants.XML_NS_URI;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+
+/**
+ * A start element event that can be reused. The attributes and namespace declarations are kept in
+ * slots that are reused as well. Consumers that know this class can get at the names and values
+ * without creating qualified names. An instance is only valid until its producer moves to the next
+ * event, so it must not be retained.
+ *
+ * <p>The producers in this package set a namespace context that sees all the declarations in
+ * scope. Without an explicit namespace context the element resolves prefixes with its own
+ * declarations only, so prefixes that are declared on ancestors don't resolve then.
+ *
+ * @author Werner Donné
+ * @see MutableCharacters
+ * @see MutableEndElement
+ */
+public class MutableStartElement extends XMLEventBase implements StartElement {
+  private final QNameCache names = new QNameCache();
+  private final NamespaceContext ownContext = new OwnContext();
+  private int attributeCount;
+  private MutableAttribute[] attributes = new MutableAttribute[8];
+  private String localName;
+  private QName name;
+  private NamespaceContext namespaceContext;
+  private String namespaceURI;
+  private int namespaceCount;
+  private MutableNamespace[] namespaces = new MutableNamespace[4];
+  private String prefix;
+
+  public MutableStartElement addAttribute(
+      final String prefix, final String namespaceURI, final String localName, final String value) {
+    if (attributeCount == attributes.length) {
+      attributes = copyOf(attributes, attributeCount * 2);
+    }
+
+    if (attributes[attributeCount] == null) {
+      attributes[attributeCount] = new MutableAttribute(names);
+    }
+
+    attributes[attributeCount++].set(prefix, namespaceURI, localName, value);
+
+    return this;
+  }
+
+  public MutableStartElement addNamespace(final String prefix, final String namespaceURI) {
+    if (namespaceCount == namespaces.length) {
+      namespaces = copyOf(namespaces, namespaceCount * 2);
+    }
+
+    if (namespaces[namespaceCount] == null) {
+      namespaces[namespaceCount] = new MutableNamespace(names);
+    }
+
+    namespaces[namespaceCount++].set(prefix, namespaceURI);
+
+    return this;
+  }
+
+  @Override
+  public StartElement asStartElement() {
+    return this;
+  }
+
+  /** Removes the attributes, the namespace declarations and the namespace context. */
+  public MutableStartElement clear() {
+    attributeCount = 0;
+    namespaceCount = 0;
+    namespaceContext = null;
+
+    return this;
+  }
+
+  private int findAttribute(final String namespaceURI, final String localName) {
+    for (int i = 0; i < attributeCount; ++i) {
+      if (attributes[i].localName.equals(localName)
+          && attributes[i].namespaceURI.equals(namespaceURI != null ? namespaceURI : "")) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  private int findNamespace(final String prefix) {
+    for (int i = 0; i < namespaceCount; ++i) {
+      if (namespaces[i].prefix.equals(prefix != null ? prefix : "")) {
+        return i;
+      }
+    }
+
+    return -1;
+  }
+
+  public Attribute getAttribute(final int index) {
+    return attributes[index];
+  }
+
+  public Attribute getAttributeByName(final QName name) {
+    final int index = findAttribute(name.getNamespaceURI(), name.getLocalPart());
+
+    return index != -1 ? attributes[index] : null;
+  }
+
+  public int getAttributeCount() {
+    return attributeCount;
+  }
+
+  public String getAttributeLocalName(final int index) {
+    return attributes[index].localName;
+  }
+
+  public String getAttributeNamespace(final int index) {
+    return attributes[index].namespaceURI;
+  }
+
+  public String getAttributePrefix(final int index) {
+    return attributes[index].prefix;
+  }
+
+  public String getAttributeValue(final int index) {
+    return attributes[index].value;
+  }
+
+  public Iterator<Attribute> getAttributes() {
+    return new ArrayIterator<>(attributes, attributeCount);
+  }
+
+  @Override
+  public int getEventType() {
+    return START_ELEMENT;
+  }
+
+  public String getLocalName() {
+    return localName;
+  }
+
+  public QName getName() {
+    if (name == null) {
+      name = names.get(prefix, namespaceURI, localName);
+    }
+
+    return name;
+  }
+
+  public NamespaceContext getNamespaceContext() {
+    return namespaceContext != null ? namespaceContext : ownContext;
+  }
+
+  public int getNamespaceCount() {
+    return namespaceCount;
+  }
+
+  public String getNamespacePrefix(final int index) {
+    return namespaces[index].prefix;
+  }
+
+  /** Returns the namespace URI of the element name. */
+  public String getNamespaceURI() {
+    return namespaceURI;
+  }
+
+  public String getNamespaceURI(final int index) {
+    return namespaces[index].namespaceURI;
+  }
+
+  public String getNamespaceURI(final String prefix) {
+    return namespaceContext != null
+        ? namespaceContext.getNamespaceURI(prefix)
+        : lookupNamespaceURI(prefix);
+  }
+
+  public Iterator<Namespace> getNamespaces() {
+    return new ArrayIterator<>(namespaces, namespaceCount);
+  }
+
+  public String getPrefix() {
+    return prefix;
+  }
+
+  @Override
+  public boolean isStartElement() {
+    return true;
+  }
+
+  private String lookupNamespaceURI(final String prefix) {
+    if (XML_NS_PREFIX.equals(prefix)) {
+      return XML_NS_URI;
+    }
+
+    if (XMLNS_ATTRIBUTE.equals(prefix)) {
+      return XMLNS_ATTRIBUTE_NS_URI;
+    }
+
+    for (int i = namespaceCount - 1; i >= 0; --i) {
+      if (namespaces[i].prefix.equals(prefix)) {
+        return namespaces[i].namespaceURI;
+      }
+    }
+
+    return null;
+  }
+
+  private String lookupPrefix(final String namespaceURI) {
+    for (int i = namespaceCount - 1; i >= 0; --i) {
+      if (namespaces[i].namespaceURI.equals(namespaceURI)) {
+        return namespaces[i].prefix;
+      }
+    }
+
+    return null;
+  }
+
+  /** Removes the attribute if it is present. The slot is kept for reuse. */
+  public MutableStartElement removeAttribute(final QName name) {
+    final int index = findAttribute(name.getNamespaceURI(), name.getLocalPart());
+
+    if (index != -1) {
+      final MutableAttribute removed = attributes[index];
+
+      System.arraycopy(attributes, index + 1, attributes, index, attributeCount - index - 1);
+      attributes[--attributeCount] = removed;
+    }
+
+    return this;
+  }
+
+  /** Removes the namespace declaration for the prefix if it is present. */
+  public MutableStartElement removeNamespace(final String prefix) {
+    final int index = findNamespace(prefix);
+
+    if (index != -1) {
+      final MutableNamespace removed = namespaces[index];
+
+      System.arraycopy(namespaces, index + 1, namespaces, index, namespaceCount - index - 1);
+      namespaces[--namespaceCount] = removed;
+    }
+
+    return this;
+  }
+
+  /** Replaces the value of the attribute if it is present, otherwise the attribute is added. */
+  public MutableStartElement setAttribute(
+      final String prefix, final String namespaceURI, final String localName, final String value) {
+    final int index = findAttribute(namespaceURI, localName);
+
+    if (index != -1) {
+      attributes[index].set(prefix, namespaceURI, localName, value);
+
+      return this;
+    }
+
+    return addAttribute(prefix, namespaceURI, localName, value);
+  }
+
+  public MutableStartElement setName(final QName name) {
+    return setName(name.getPrefix(), name.getNamespaceURI(), name.getLocalPart());
+  }
+
+  public MutableStartElement setName(
+      final String prefix, final String namespaceURI, final String localName) {
+    this.prefix = prefix != null ? prefix : "";
+    this.namespaceURI = namespaceURI != null ? namespaceURI : NULL_NS_URI;
+    this.localName = localName;
+    name = null;
+
+    return this;
+  }
+
+  /** Replaces the namespace declaration for the prefix if it is present, otherwise it is added. */
+  public MutableStartElement setNamespace(final String prefix, final String namespaceURI) {
+    final int index = findNamespace(prefix);
+
+    if (index != -1) {
+      namespaces[index].set(prefix, namespaceURI);
+
+      return this;
+    }
+
+    return addNamespace(prefix, namespaceURI);
+  }
+
+  public MutableStartElement setNamespaceContext(final NamespaceContext namespaceContext) {
+    this.namespaceContext = namespaceContext;
+
+    return this;
+  }
+
+  @Override
+  public void writeAsEncodedUnicode(final Writer writer) throws XMLStreamException {
+    try {
+      writer.write('<');
+
+      if (!prefix.isEmpty()) {
+        writer.write(prefix);
+        writer.write(':');
+      }
+
+      writer.write(localName);
+
+      for (int i = 0; i < namespaceCount; ++i) {
+        writer.write(' ');
+        namespaces[i].writeAsEncodedUnicode(writer);
+      }
+
+      for (int i = 0; i < attributeCount; ++i) {
+        writer.write(' ');
+        attributes[i].writeAsEncodedUnicode(writer);
+      }
+
+      writer.write('>');
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+
+  private class OwnContext implements NamespaceContext {
+    public String getNamespaceURI(final String prefix) {
+      return lookupNamespaceURI(prefix);
+    }
+
+    public String getPrefix(final String namespaceURI) {
+      return lookupPrefix(namespaceURI);
+    }
+
+    public Iterator<String> getPrefixes(final String namespaceURI) {
+      return new PrefixIterator(namespaceURI);
+    }
+  }
+
+  /** Walks over the declarations of the element, without copying them. */
+  private class PrefixIterator implements Iterator<String> {
+    private final String namespaceURI;
+    private int index;
+
+    private PrefixIterator(final String namespaceURI) {
+      this.namespaceURI = namespaceURI;
+      index = nextMatch(namespaceCount - 1);
+    }
+
+    public boolean hasNext() {
+      return index >= 0;
+    }
+
+    public String next() {
+      if (index < 0) {
+        throw new NoSuchElementException();
+      }
+
+      final String result = namespaces[index].prefix;
+
+      index = nextMatch(index - 1);
+
+      return result;
+    }
+
+    private int nextMatch(final int from) {
+      int i = from;
+
+      while (i >= 0 && !namespaces[i].namespaceURI.equals(namespaceURI)) {
+        --i;
+      }
+
+      return i;
+    }
+  }
+}
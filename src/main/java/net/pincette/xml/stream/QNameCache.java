@@ -0,0 +1,40 @@
+package net.pincette.xml.stream;
+
+import javax.xml.namespace.QName;
+
+/**
+ * A small direct-mapped cache of qualified names, so that the mutable events don't create a new
+ * one for every element with the same name.
+ *
+ * @author Werner Donné
+ */
+class QNameCache {
+  private static final int SIZE = 64;
+
+  private final QName[] names = new QName[SIZE];
+
+  private static boolean same(
+      final QName name, final String localName, final String namespaceURI, final String prefix) {
+    return name != null
+        && name.getLocalPart().equals(localName)
+        && name.getNamespaceURI().equals(namespaceURI)
+        && name.getPrefix().equals(prefix);
+  }
+
+  QName get(final String prefix, final String namespaceURI, final String localName) {
+    final String p = prefix != null ? prefix : "";
+    final String uri = namespaceURI != null ? namespaceURI : "";
+    final int index = (localName.hashCode() ^ uri.hashCode()) & (SIZE - 1);
+    final QName name = names[index];
+
+    if (same(name, localName, uri, p)) {
+      return name;
+    }
+
+    final QName result = new QName(uri, localName, p);
+
+    names[index] = result;
+
+    return result;
+  }
+}
@@ -14,7 +14,10 @@ import javax.xml.stream.events.XMLEvent;
  * @author Werner Donné
  */
 public class RemoveBaseURIEventReader extends EventReaderDelegateBase {
+  private static final QName BASE = new QName(XML_NS_URI, "base");
+
   private final String baseURI;
+  private final StartElementEditor editor = new StartElementEditor().removeAttribute(BASE);
   private XMLEvent peeked;
 
   public RemoveBaseURIEventReader(final String baseURI) {
@@ -55,11 +58,10 @@ public class RemoveBaseURIEventReader extends EventReaderDelegateBase {
 
   private XMLEvent process(final XMLEvent event) {
     if (baseURI != null && event.isStartElement()) {
-      final Attribute attribute =
-          event.asStartElement().getAttributeByName(new QName(XML_NS_URI, "base"));
+      final Attribute attribute = event.asStartElement().getAttributeByName(BASE);
 
       if (attribute != null && baseURI.equals(attribute.getValue())) {
-        return Util.removeAttribute(event.asStartElement(), new QName(XML_NS_URI, "base"));
+        return editor.apply(event.asStartElement());
       }
     }
 
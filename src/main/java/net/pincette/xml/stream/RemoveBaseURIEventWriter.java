@@ -1,10 +1,8 @@
 package net.pincette.xml.stream;
 
 import static javax.xml.XMLConstants.XML_NS_URI;
-import static net.pincette.xml.stream.Util.attributes;
 
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.Attribute;
@@ -16,8 +14,10 @@ import javax.xml.stream.events.XMLEvent;
  * @author Werner Donn
  */
 public class RemoveBaseURIEventWriter extends EventWriterDelegate {
+  private static final QName BASE = new QName(XML_NS_URI, "base");
+
   private final String baseURI;
-  private final XMLEventFactory factory = XMLEventFactory.newFactory();
+  private final StartElementEditor editor = new StartElementEditor().removeAttribute(BASE);
 
   public RemoveBaseURIEventWriter(final String baseURI) {
     this(baseURI, null);
@@ -29,8 +29,7 @@ public class RemoveBaseURIEventWriter extends EventWriterDelegate {
   }
 
   private static boolean shouldRemove(final Attribute event, final String baseURI) {
-    return event.getName().equals(new QName(XML_NS_URI, "base"))
-        && baseURI.equals(event.getValue());
+    return event.getName().equals(BASE) && baseURI.equals(event.getValue());
   }
 
   @Override
@@ -38,12 +37,13 @@ public class RemoveBaseURIEventWriter extends EventWriterDelegate {
     if (baseURI == null) {
       getParent().add(event);
     } else if (event.isStartElement()) {
+      final Attribute attribute = event.asStartElement().getAttributeByName(BASE);
+
       getParent()
           .add(
-              factory.createStartElement(
-                  event.asStartElement().getName(),
-                  attributes(event).filter(a -> !shouldRemove(a, baseURI)).iterator(),
-                  event.asStartElement().getNamespaces()));
+              attribute != null && shouldRemove(attribute, baseURI)
+                  ? editor.apply(event.asStartElement())
+                  : event);
     } else if (!event.isAttribute() || !shouldRemove((Attribute) event, baseURI)) {
       getParent().add(event);
     }
@@ -2,14 +2,15 @@ package net.pincette.xml.stream;
 
 import static net.pincette.util.Util.replaceParameters;
 import static net.pincette.xml.stream.Util.attributes;
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
 
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Supplier;
-import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Characters;
 import javax.xml.stream.events.StartElement;
 import javax.xml.stream.events.XMLEvent;
 
@@ -19,7 +20,7 @@ import javax.xml.stream.events.XMLEvent;
  * @author Werner Donné
  */
 public class ReplaceParametersEventReader extends EventReaderDelegateBase {
-  private final XMLEventFactory factory = XMLEventFactory.newInstance();
+  private final StartElementEditor editor = new StartElementEditor();
   private final Set<String> leave;
   private final Map<String, String> parameters;
 
@@ -51,21 +52,35 @@ public class ReplaceParametersEventReader extends EventReaderDelegateBase {
     final Supplier<XMLEvent> startElementOr =
         () -> event.isStartElement() ? replaceAttributes(event.asStartElement()) : event;
 
-    return event.isCharacters()
-        ? factory.createCharacters(
-            replaceParameters(event.asCharacters().getData(), parameters, leave))
-        : startElementOr.get();
+    return event.isCharacters() ? replaceCharacters(event.asCharacters()) : startElementOr.get();
   }
 
   private StartElement replaceAttributes(final StartElement event) {
-    return factory.createStartElement(
-        event.getName(),
-        attributes(event)
-            .map(
-                a ->
-                    factory.createAttribute(
-                        a.getName(), replaceParameters(a.getValue(), parameters, leave)))
-            .iterator(),
-        event.getNamespaces());
+    editor.clear();
+
+    attributes(event)
+        .forEach(
+            a -> {
+              final String value = replaceParameters(a.getValue(), parameters, leave);
+
+              if (!value.equals(a.getValue())) {
+                editor.setAttribute(a.getName(), value);
+              }
+            });
+
+    return editor.apply(event);
+  }
+
+  private Characters replaceCharacters(final Characters event) {
+    final String data = event.getData();
+    final String replaced = replaceParameters(data, parameters, leave);
+
+    if (replaced.equals(data)) {
+      return event;
+    }
+
+    return event.isCData()
+        ? eventFactory().createCData(replaced)
+        : eventFactory().createCharacters(replaced);
   }
 }
@@ -0,0 +1,343 @@
+package net.pincette.xml.stream;
+
+import static java.util.Collections.newSetFromMap;
+import static net.pincette.util.Util.tryToGetRethrow;
+import static net.pincette.xml.stream.Util.accumulate;
+import static net.pincette.xml.stream.Util.addElement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import net.pincette.function.ConsumerWithException;
+import net.pincette.xml.internal.PathRoutes;
+import net.pincette.xml.internal.SimplePath;
+import org.w3c.dom.Element;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+/**
+ * Sends the elements that match a path to the target of that path. All paths are compiled in one
+ * automaton, so an element costs one step, however many routes there are. A routed element is
+ * consumed by the reader and doesn't come out of it. The other events do. The namespace
+ * declarations that are in scope for a routed element are added to its start tag. Event writers
+ * and content handlers receive the document events of the reader. A callback receives each routed
+ * element in its own small DOM document.
+ *
+ * @author Werner Donné
+ */
+public class RouterEventReader extends EventReaderDelegateBase {
+  private final StartElementEditor editor = new StartElementEditor();
+  private final Map<ContentHandler, EventToContentHandler> handlers = new IdentityHashMap<>();
+  private final List<Namespace> namespaces = new ArrayList<>();
+  private final PathRoutes<Route> routes = new PathRoutes<>();
+  private int[] counts = new int[16];
+  private int depth;
+  private XMLEvent pending;
+
+  public RouterEventReader() {}
+
+  public RouterEventReader(final XMLEventReader reader) {
+    super(reader);
+  }
+
+  private static boolean declares(final StartElement event, final String prefix) {
+    for (final Iterator<?> i = event.getNamespaces(); i.hasNext(); ) {
+      if (Objects.equals(((Namespace) i.next()).getPrefix(), prefix)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private XMLEvent advance() throws XMLStreamException {
+    while (getParent().hasNext()) {
+      final XMLEvent event = getParent().nextEvent();
+
+      if (!routed(event)) {
+        return event;
+      }
+    }
+
+    return null;
+  }
+
+  private void endElement() {
+    for (int i = counts[--depth]; i > 0; --i) {
+      namespaces.remove(namespaces.size() - 1);
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return tryToGetRethrow(this::peek).isPresent();
+  }
+
+  @Override
+  public Object next() {
+    return tryToGetRethrow(this::nextEvent).orElse(null);
+  }
+
+  @Override
+  public XMLEvent nextEvent() throws XMLStreamException {
+    final XMLEvent event = peek();
+
+    if (event == null) {
+      throw new NoSuchElementException();
+    }
+
+    pending = null;
+    setCurrentEvent(event);
+
+    return event;
+  }
+
+  @Override
+  public XMLEvent peek() throws XMLStreamException {
+    if (pending == null) {
+      pending = advance();
+    }
+
+    return pending;
+  }
+
+  private EventToContentHandler handler(final ContentHandler handler) {
+    return handlers.computeIfAbsent(handler, EventToContentHandler::new);
+  }
+
+  /**
+   * Adds a route for an absolute <code>SimpleXPath</code> expression without positions and
+   * wildcards. It should be done before the reader is used.
+   *
+   * @param expression the expression.
+   * @param namespacePrefixMap maps prefixes to URIs. It may be <code>null</code>. The key of the
+   *     default namespace is the empty string.
+   * @param writer the writer for matching elements.
+   * @return The reader itself.
+   * @throws IllegalArgumentException when the expression can't be routed.
+   */
+  public RouterEventReader route(
+      final String expression,
+      final Map<String, String> namespacePrefixMap,
+      final XMLEventWriter writer) {
+    routes.add(SimplePath.parse(expression, namespacePrefixMap), new Route(writer, null, null));
+
+    return this;
+  }
+
+  /**
+   * Adds a route for an absolute <code>SimpleXPath</code> expression without positions and
+   * wildcards. It should be done before the reader is used.
+   *
+   * @param expression the expression.
+   * @param namespacePrefixMap maps prefixes to URIs. It may be <code>null</code>. The key of the
+   *     default namespace is the empty string.
+   * @param handler the handler for matching elements.
+   * @return The reader itself.
+   * @throws IllegalArgumentException when the expression can't be routed.
+   */
+  public RouterEventReader route(
+      final String expression,
+      final Map<String, String> namespacePrefixMap,
+      final ContentHandler handler) {
+    routes.add(
+        SimplePath.parse(expression, namespacePrefixMap), new Route(null, handler(handler), null));
+
+    return this;
+  }
+
+  /**
+   * Adds a route for an absolute <code>SimpleXPath</code> expression without positions and
+   * wildcards. It should be done before the reader is used.
+   *
+   * @param expression the expression.
+   * @param namespacePrefixMap maps prefixes to URIs. It may be <code>null</code>. The key of the
+   *     default namespace is the empty string.
+   * @param process the callback for matching elements.
+   * @return The reader itself.
+   * @throws IllegalArgumentException when the expression can't be routed.
+   */
+  public RouterEventReader route(
+      final String expression,
+      final Map<String, String> namespacePrefixMap,
+      final ConsumerWithException<Element> process) {
+    routes.add(SimplePath.parse(expression, namespacePrefixMap), new Route(null, null, process));
+
+    return this;
+  }
+
+  /**
+   * Adds a route. It should be done before the reader is used.
+   *
+   * @param path the element names from the outer to the inner element.
+   * @param absolute when <code>true</code> the path must start at the document element, otherwise
+   *     it must match the last elements of the current path.
+   * @param writer the writer for matching elements.
+   * @return The reader itself.
+   */
+  public RouterEventReader route(
+      final QName[] path, final boolean absolute, final XMLEventWriter writer) {
+    routes.add(path, absolute, new Route(writer, null, null));
+
+    return this;
+  }
+
+  /**
+   * Adds a route. It should be done before the reader is used.
+   *
+   * @param path the element names from the outer to the inner element.
+   * @param absolute when <code>true</code> the path must start at the document element, otherwise
+   *     it must match the last elements of the current path.
+   * @param handler the handler for matching elements.
+   * @return The reader itself.
+   */
+  public RouterEventReader route(
+      final QName[] path, final boolean absolute, final ContentHandler handler) {
+    routes.add(path, absolute, new Route(null, handler(handler), null));
+
+    return this;
+  }
+
+  /**
+   * Adds a route. It should be done before the reader is used.
+   *
+   * @param path the element names from the outer to the inner element.
+   * @param absolute when <code>true</code> the path must start at the document element, otherwise
+   *     it must match the last elements of the current path.
+   * @param process the callback for matching elements.
+   * @return The reader itself.
+   */
+  public RouterEventReader route(
+      final QName[] path, final boolean absolute, final ConsumerWithException<Element> process) {
+    routes.add(path, absolute, new Route(null, null, process));
+
+    return this;
+  }
+
+  /** Returns <code>true</code> when the event was consumed by a route. */
+  private boolean routed(final XMLEvent event) throws XMLStreamException {
+    if (event.isStartDocument()) {
+      startDocument();
+      toAll(event);
+    } else if (event.isEndDocument()) {
+      toAll(event);
+    } else if (event.isStartElement()) {
+      final Route route = routes.push(event.asStartElement().getName());
+
+      if (route != null) {
+        send(route, withNamespaces(event.asStartElement()));
+        routes.pop();
+
+        return true;
+      }
+
+      startElement(event.asStartElement());
+    } else if (event.isEndElement()) {
+      routes.pop();
+      endElement();
+    }
+
+    return false;
+  }
+
+  private void send(final Route route, final StartElement event) throws XMLStreamException {
+    if (route.writer() != null) {
+      addElement(getParent(), route.writer(), event);
+    } else if (route.handler() != null) {
+      addElement(getParent(), new HandlerWriter(route.handler()), event);
+    } else {
+      final Element element = accumulate(getParent(), event);
+
+      try {
+        route.process().accept(element);
+      } catch (XMLStreamException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new XMLStreamException(e);
+      }
+    }
+  }
+
+  private void startDocument() {
+    routes.reset();
+    namespaces.clear();
+    depth = 0;
+  }
+
+  private void startElement(final StartElement event) {
+    int count = 0;
+
+    for (final Iterator<?> i = event.getNamespaces(); i.hasNext(); ++count) {
+      namespaces.add((Namespace) i.next());
+    }
+
+    if (depth == counts.length) {
+      counts = Arrays.copyOf(counts, depth * 2);
+    }
+
+    counts[depth++] = count;
+  }
+
+  private void toAll(final XMLEvent event) throws XMLStreamException {
+    final Set<Object> done = newSetFromMap(new IdentityHashMap<>());
+
+    try {
+      for (final Route route : routes.getTargets()) {
+        if (route.writer() != null && done.add(route.writer())) {
+          route.writer().add(event);
+        } else if (route.handler() != null && done.add(route.handler())) {
+          route.handler().add(event);
+        }
+      }
+    } catch (SAXException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+
+  private StartElement withNamespaces(final StartElement event) {
+    editor.clear();
+
+    for (final Namespace namespace : namespaces) {
+      if (!declares(event, namespace.getPrefix())) {
+        editor.setNamespace(namespace);
+      }
+    }
+
+    return editor.apply(event);
+  }
+
+  private static class HandlerWriter extends DevNullEventWriter {
+    private final EventToContentHandler handler;
+
+    private HandlerWriter(final EventToContentHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public void add(final XMLEvent event) throws XMLStreamException {
+      try {
+        handler.add(event);
+      } catch (SAXException e) {
+        throw new XMLStreamException(e);
+      }
+    }
+  }
+
+  private record Route(
+      XMLEventWriter writer,
+      EventToContentHandler handler,
+      ConsumerWithException<Element> process) {}
+}
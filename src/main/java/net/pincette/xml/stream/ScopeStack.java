@@ -0,0 +1,103 @@
+package net.pincette.xml.stream;
+
+import static java.util.Arrays.copyOf;
+import static java.util.Collections.emptyIterator;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+import static javax.xml.XMLConstants.XML_NS_PREFIX;
+import static javax.xml.XMLConstants.XML_NS_URI;
+
+import java.util.Iterator;
+import javax.xml.namespace.NamespaceContext;
+import net.pincette.xml.internal.NamespaceScope;
+
+/**
+ * Keeps the names of the open elements in a flat array and the namespaces they declare in a
+ * <code>NamespaceScope</code>, so that nothing is allocated per element. It fills the reusable end
+ * element events and gives the reusable start element events a namespace context with all the
+ * declarations in scope.
+ *
+ * @author Werner Donné
+ */
+class ScopeStack {
+  private final NamespaceContext context = new ScopeContext();
+  private final NamespaceScope namespaces = new NamespaceScope();
+  private String[] names = new String[48];
+
+  void clear() {
+    namespaces.clear();
+  }
+
+  /** Returns a context that always reflects the current scope. */
+  NamespaceContext context() {
+    return context;
+  }
+
+  void declare(final String prefix, final String namespaceURI) {
+    namespaces.declare(prefix, namespaceURI);
+  }
+
+  /** Tells if the innermost element already declares <code>prefix</code>. */
+  boolean declares(final String prefix) {
+    return namespaces.declares(prefix);
+  }
+
+  NamespaceScope namespaces() {
+    return namespaces;
+  }
+
+  /** Removes the innermost element. */
+  void pop() {
+    namespaces.pop();
+  }
+
+  /** Fills <code>event</code> with the innermost element and removes it. */
+  MutableEndElement pop(final MutableEndElement event) {
+    final int depth = namespaces.getDepth() - 1;
+
+    event.clear().setName(names[depth * 3], names[depth * 3 + 1], names[depth * 3 + 2]);
+
+    for (int i = namespaces.getScopeStart(); i < namespaces.getDeclarationCount(); ++i) {
+      event.addNamespace(namespaces.getDeclaredPrefix(i), namespaces.getDeclaredNamespaceURI(i));
+    }
+
+    namespaces.pop();
+
+    return event;
+  }
+
+  void push(final String prefix, final String namespaceURI, final String localName) {
+    final int depth = namespaces.getDepth();
+
+    if (depth * 3 == names.length) {
+      names = copyOf(names, names.length * 2);
+    }
+
+    names[depth * 3] = prefix;
+    names[depth * 3 + 1] = namespaceURI;
+    names[depth * 3 + 2] = localName;
+    namespaces.push();
+  }
+
+  private class ScopeContext implements NamespaceContext {
+    public String getNamespaceURI(final String prefix) {
+      if (XML_NS_PREFIX.equals(prefix)) {
+        return XML_NS_URI;
+      }
+
+      if (XMLNS_ATTRIBUTE.equals(prefix)) {
+        return XMLNS_ATTRIBUTE_NS_URI;
+      }
+
+      return prefix != null ? namespaces.getNamespaceURI(prefix) : null;
+    }
+
+    public String getPrefix(final String namespaceURI) {
+      return namespaceURI != null ? namespaces.getPrefix(namespaceURI) : null;
+    }
+
+    public Iterator<String> getPrefixes(final String namespaceURI) {
+      return namespaceURI != null ? namespaces.getPrefixes(namespaceURI) : emptyIterator();
+    }
+  }
+}
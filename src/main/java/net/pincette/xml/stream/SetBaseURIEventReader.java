@@ -1,6 +1,8 @@
 package net.pincette.xml.stream;
 
-import javax.xml.XMLConstants;
+import static javax.xml.XMLConstants.XML_NS_PREFIX;
+import static javax.xml.XMLConstants.XML_NS_URI;
+
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
@@ -13,7 +15,10 @@ import javax.xml.stream.events.XMLEvent;
  * @author Werner Donné
  */
 public class SetBaseURIEventReader extends EventReaderDelegateBase {
+  private static final QName BASE = new QName(XML_NS_URI, "base", XML_NS_PREFIX);
+
   private final String baseURI;
+  private final StartElementEditor editor;
   private boolean firstSeen;
   private XMLEvent peeked;
 
@@ -24,6 +29,10 @@ public class SetBaseURIEventReader extends EventReaderDelegateBase {
   public SetBaseURIEventReader(final String baseURI, final XMLEventReader reader) {
     super(reader);
     this.baseURI = baseURI;
+    editor =
+        baseURI != null
+            ? new StartElementEditor().setAttribute(BASE, baseURI)
+            : new StartElementEditor();
   }
 
   @Override
@@ -58,10 +67,7 @@ public class SetBaseURIEventReader extends EventReaderDelegateBase {
       firstSeen = true;
 
       if (baseURI != null) {
-        return Util.setAttribute(
-            event.asStartElement(),
-            new QName(XMLConstants.XML_NS_URI, "base", XMLConstants.XML_NS_PREFIX),
-            baseURI);
+        return editor.apply(event.asStartElement());
       }
     }
 
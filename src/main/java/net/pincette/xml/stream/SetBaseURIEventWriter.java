@@ -3,7 +3,7 @@ package net.pincette.xml.stream;
 import static javax.xml.XMLConstants.XML_NS_PREFIX;
 import static javax.xml.XMLConstants.XML_NS_URI;
 
-import javax.xml.stream.XMLEventFactory;
+import javax.xml.namespace.QName;
 import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.XMLEvent;
@@ -15,8 +15,10 @@ import javax.xml.stream.events.XMLEvent;
  * @author Werner Donné
  */
 public class SetBaseURIEventWriter extends EventWriterDelegate {
+  private static final QName BASE = new QName(XML_NS_URI, "base", XML_NS_PREFIX);
+
   private final String baseURI;
-  private final XMLEventFactory factory = XMLEventFactory.newFactory();
+  private final StartElementEditor editor;
   private boolean firstSeen;
 
   public SetBaseURIEventWriter(final String baseURI) {
@@ -26,6 +28,10 @@ public class SetBaseURIEventWriter extends EventWriterDelegate {
   public SetBaseURIEventWriter(final String baseURI, final XMLEventWriter writer) {
     super(writer);
     this.baseURI = baseURI;
+    editor =
+        baseURI != null
+            ? new StartElementEditor().setAttribute(BASE, baseURI)
+            : new StartElementEditor();
   }
 
   @Override
@@ -33,12 +39,7 @@ public class SetBaseURIEventWriter extends EventWriterDelegate {
     if (event.isStartElement() && !firstSeen) {
       firstSeen = true;
 
-      super.add(
-          baseURI != null
-              ? Util.setAttribute(
-                  event.asStartElement(),
-                  factory.createAttribute(XML_NS_PREFIX, XML_NS_URI, "base", baseURI))
-              : event);
+      super.add(baseURI != null ? editor.apply(event.asStartElement()) : event);
     } else {
       super.add(event);
     }
@@ -1,7 +1,8 @@
 package net.pincette.xml.stream;
 
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
+
 import java.util.Optional;
-import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.EndElement;
@@ -15,7 +16,6 @@ import javax.xml.stream.util.EventReaderDelegate;
  * @author Werner Donné
  */
 public class SetNamespaceEventReaderDelegate extends EventReaderDelegate {
-  private final XMLEventFactory factory = XMLEventFactory.newFactory();
   private final String namespaceURI;
 
   public SetNamespaceEventReaderDelegate(final String namespaceURI, final XMLEventReader parent) {
@@ -46,12 +46,13 @@ public class SetNamespaceEventReaderDelegate extends EventReaderDelegate {
           .filter(name -> name.getNamespaceURI() == null || name.getNamespaceURI().isEmpty())
           .map(
               name ->
-                  factory.createStartElement(
-                      name.getPrefix(),
-                      namespaceURI,
-                      name.getLocalPart(),
-                      start.getAttributes(),
-                      start.getNamespaces()))
+                  eventFactory()
+                      .createStartElement(
+                          name.getPrefix(),
+                          namespaceURI,
+                          name.getLocalPart(),
+                          start.getAttributes(),
+                          start.getNamespaces()))
           .orElse(start);
     }
 
@@ -62,8 +63,9 @@ public class SetNamespaceEventReaderDelegate extends EventReaderDelegate {
           .filter(name -> name.getNamespaceURI() == null || name.getNamespaceURI().isEmpty())
           .map(
               name ->
-                  factory.createEndElement(
-                      name.getPrefix(), namespaceURI, name.getLocalPart(), end.getNamespaces()))
+                  eventFactory()
+                      .createEndElement(
+                          name.getPrefix(), namespaceURI, name.getLocalPart(), end.getNamespaces()))
           .orElse(end);
     }
 
@@ -0,0 +1,189 @@
+package net.pincette.xml.stream;
+
+import static net.pincette.util.Util.tryToGetRethrow;
+import static net.pincette.xml.stream.Util.accumulate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import net.pincette.xml.internal.SimplePath;
+import net.pincette.xml.internal.SimpleXPathMatcher;
+import org.w3c.dom.Element;
+
+/**
+ * Selects the elements that match a <code>SimpleXPath</code> expression from an event reader,
+ * without building a tree of the document. Each match is returned as a reader over its subtree or
+ * as a DOM element. Only one match is materialized at a time, so the memory use doesn't depend on
+ * the size of the document.
+ *
+ * @author Werner Donné
+ */
+public class SimpleXPathSelector {
+  private final SimpleXPathMatcher matcher;
+  private final XMLEventReader reader;
+  private SubtreeReader current;
+
+  /**
+   * Creates the selector.
+   *
+   * @param reader the reader the elements are selected from.
+   * @param expression the expression, which is parsed once for the selector.
+   * @param namespacePrefixMap maps prefixes to URIs. It may be <code>null</code>. The key of the
+   *     default namespace is the empty string.
+   */
+  public SimpleXPathSelector(
+      final XMLEventReader reader,
+      final String expression,
+      final Map<String, String> namespacePrefixMap) {
+    this.reader = reader;
+    this.matcher = new SimpleXPathMatcher(SimplePath.parse(expression, namespacePrefixMap));
+  }
+
+  /** Returns the remaining matching elements as DOM elements. */
+  public Stream<Element> elements() {
+    return Stream.iterate(
+        tryToGetRethrow(this::nextElement).orElse(null),
+        Objects::nonNull,
+        e -> tryToGetRethrow(this::nextElement).orElse(null));
+  }
+
+  /**
+   * Returns the next matching element as a DOM element in its own document or <code>null</code>
+   * when there are no more matches.
+   */
+  public Element nextElement() throws XMLStreamException {
+    final StartElement start = nextStart();
+
+    if (start == null) {
+      return null;
+    }
+
+    final Element element = accumulate(reader, start);
+
+    matcher.endElement();
+
+    return element;
+  }
+
+  /**
+   * Returns a reader over the events of the next matching element or <code>null</code> when there
+   * are no more matches. The reader starts with the start tag of the element and stops after its
+   * end tag. The events that were not read of the previous match are skipped.
+   */
+  public XMLEventReader nextMatch() throws XMLStreamException {
+    final StartElement start = nextStart();
+
+    if (start == null) {
+      return null;
+    }
+
+    current = new SubtreeReader(start);
+
+    return current;
+  }
+
+  private StartElement nextStart() throws XMLStreamException {
+    if (current != null) {
+      current.skip();
+      current = null;
+    }
+
+    while (reader.hasNext()) {
+      final XMLEvent event = reader.nextEvent();
+
+      if (event.isStartElement()) {
+        final StartElement start = event.asStartElement();
+
+        if (matcher.startElement(
+            start.getName().getNamespaceURI(), start.getName().getLocalPart())) {
+          return start;
+        }
+      } else if (event.isEndElement()) {
+        matcher.endElement();
+      }
+    }
+
+    return null;
+  }
+
+  private class SubtreeReader implements XMLEventReader {
+    private XMLEvent currentEvent;
+    private boolean done;
+    private int level;
+    private XMLEvent start;
+
+    private SubtreeReader(final StartElement start) {
+      this.start = start;
+    }
+
+    public void close() throws XMLStreamException {
+      skip();
+    }
+
+    public String getElementText() throws XMLStreamException {
+      return Util.getElementText(this, currentEvent, new HashMap<>());
+    }
+
+    public Object getProperty(final String name) {
+      return reader.getProperty(name);
+    }
+
+    public boolean hasNext() {
+      return !done && (start != null || reader.hasNext());
+    }
+
+    public Object next() {
+      return tryToGetRethrow(this::nextEvent).orElse(null);
+    }
+
+    public XMLEvent nextEvent() throws XMLStreamException {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      final XMLEvent event = start != null ? start : reader.nextEvent();
+
+      start = null;
+
+      if (event.isStartElement()) {
+        ++level;
+      } else if (event.isEndElement() && --level == 0) {
+        done = true;
+        matcher.endElement();
+      }
+
+      currentEvent = event;
+
+      return event;
+    }
+
+    public XMLEvent nextTag() throws XMLStreamException {
+      return Util.nextTag(this);
+    }
+
+    public XMLEvent peek() throws XMLStreamException {
+      if (done) {
+        return null;
+      }
+
+      return start != null ? start : reader.peek();
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    private void skip() throws XMLStreamException {
+      while (hasNext()) {
+        nextEvent();
+      }
+    }
+  }
+}
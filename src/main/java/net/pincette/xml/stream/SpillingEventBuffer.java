@@ -0,0 +1,508 @@
+package net.pincette.xml.stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.deleteIfExists;
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.COMMENT;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.PROCESSING_INSTRUCTION;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static net.pincette.util.StreamUtil.stream;
+import static net.pincette.util.Util.tryToDoRethrow;
+import static net.pincette.util.Util.tryToDoSilent;
+import static net.pincette.util.Util.tryToGetRethrow;
+import static net.pincette.xml.stream.Util.attributes;
+import static net.pincette.xml.stream.Util.namespaces;
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Characters;
+import javax.xml.stream.events.Comment;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.ProcessingInstruction;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.XMLEvent;
+import org.xml.sax.ext.LexicalHandler;
+
+/**
+ * Collects events in memory until their estimated size exceeds a threshold. From then on all events
+ * are written to a temporary file in a compact binary format. Names and namespace URIs are written
+ * only once. The events that are read back from the file carry the same information as the
+ * originals, including the namespaces that go out of scope at an end element and the properties of
+ * the start document. Only the events that come out of a SAX pipeline are supported. Comments can
+ * be captured by using the buffer as a lexical handler.
+ *
+ * <p>The temporary file belongs to the buffer until <code>reader</code> is called and to the reader
+ * after that. When the events are not needed anymore before that, <code>discard</code> should be
+ * called. A reader that is not closed deletes the file when it is collected.
+ *
+ * @author Werner Donné
+ */
+class SpillingEventBuffer extends DevNullEventWriter implements LexicalHandler {
+  private static final Cleaner CLEANER = Cleaner.create();
+  private static final int ENCODING_SET = 1;
+  private static final int REFERENCE_OFFSET = 2;
+  private static final int STANDALONE = 4;
+  private static final int STANDALONE_SET = 2;
+
+  private final List<XMLEvent> events = new ArrayList<>();
+  private final Map<String, Integer> names = new HashMap<>();
+  private final long threshold;
+  private File file;
+  private DataOutputStream out;
+  private long size;
+
+  SpillingEventBuffer(final long threshold) {
+    this.threshold = threshold;
+  }
+
+  private static long estimate(final XMLEvent event) {
+    return switch (event.getEventType()) {
+      case CDATA, CHARACTERS, SPACE -> 2L * event.asCharacters().getData().length() + 16;
+      case COMMENT -> 2L * ((Comment) event).getText().length() + 16;
+      case START_ELEMENT ->
+          64L
+              + attributes(event).mapToLong(a -> 48L + 2L * a.getValue().length()).sum()
+              + namespaces(event).count() * 32;
+      default -> 32;
+    };
+  }
+
+  private static boolean spillable(final XMLEvent event) {
+    return switch (event.getEventType()) {
+      case CDATA,
+              CHARACTERS,
+              COMMENT,
+              END_DOCUMENT,
+              END_ELEMENT,
+              PROCESSING_INSTRUCTION,
+              SPACE,
+              START_DOCUMENT,
+              START_ELEMENT ->
+          true;
+      default -> false;
+    };
+  }
+
+  @Override
+  public void add(final XMLEvent event) throws XMLStreamException {
+    if (!spillable(event)) {
+      throw new XMLStreamException("Unsupported event type " + event.getEventType() + ".");
+    }
+
+    try {
+      if (out != null) {
+        write(event);
+      } else {
+        events.add(event);
+        size += estimate(event);
+
+        if (size > threshold) {
+          spill();
+        }
+      }
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+
+  @Override
+  public void close() throws XMLStreamException {
+    flush();
+  }
+
+  public void comment(final char[] ch, final int start, final int length) {
+    tryToDoRethrow(() -> add(eventFactory().createComment(new String(ch, start, length))));
+  }
+
+  /** Drops the events and deletes the temporary file, if any. */
+  void discard() {
+    events.clear();
+
+    if (out != null) {
+      new Cleanup(file, out).run();
+      out = null;
+    }
+  }
+
+  public void endCDATA() {
+    // Nothing to do.
+  }
+
+  public void endDTD() {
+    // Nothing to do.
+  }
+
+  public void endEntity(final String name) {
+    // Nothing to do.
+  }
+
+  @Override
+  public void flush() throws XMLStreamException {
+    if (out != null) {
+      try {
+        out.flush();
+      } catch (IOException e) {
+        throw new XMLStreamException(e);
+      }
+    }
+  }
+
+  /**
+   * Returns a reader over the collected events. The temporary file, if any, is deleted when the
+   * reader is closed.
+   *
+   * @return The reader.
+   * @throws XMLStreamException when the temporary file can't be opened.
+   */
+  XMLEventReader reader() throws XMLStreamException {
+    if (out == null) {
+      return new ListEventReader(events);
+    }
+
+    try {
+      out.close();
+      out = null;
+
+      return new SpilledEventReader(file);
+    } catch (IOException e) {
+      discard();
+      throw new XMLStreamException(e);
+    }
+  }
+
+  private void spill() throws IOException {
+    file = File.createTempFile("SpillingEventBuffer.", ".bin");
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+    for (final XMLEvent event : events) {
+      write(event);
+    }
+
+    events.clear();
+  }
+
+  public void startCDATA() {
+    // Nothing to do.
+  }
+
+  public void startDTD(final String name, final String publicId, final String systemId) {
+    // Nothing to do.
+  }
+
+  public void startEntity(final String name) {
+    // Nothing to do.
+  }
+
+  private void write(final XMLEvent event) throws IOException {
+    if (event.isCharacters()) {
+      writeCharacters(event.asCharacters());
+    } else {
+      out.writeByte(event.getEventType());
+
+      switch (event.getEventType()) {
+        case COMMENT -> writeText(((Comment) event).getText());
+        case END_ELEMENT -> {
+          writeName(event.asEndElement().getName());
+          writeNamespaces(stream(event.asEndElement().getNamespaces()).toList());
+        }
+        case PROCESSING_INSTRUCTION -> {
+          writeString(((ProcessingInstruction) event).getTarget());
+          writeText(((ProcessingInstruction) event).getData());
+        }
+        case START_DOCUMENT -> writeStartDocument((StartDocument) event);
+        case START_ELEMENT -> writeStartElement(event);
+        default -> {
+          // Only the type.
+        }
+      }
+    }
+  }
+
+  private void writeCharacters(final Characters event) throws IOException {
+    final int type;
+
+    if (event.isCData()) {
+      type = CDATA;
+    } else {
+      type = event.isIgnorableWhiteSpace() ? SPACE : CHARACTERS;
+    }
+
+    out.writeByte(type);
+    writeText(event.getData());
+  }
+
+  private void writeName(final QName name) throws IOException {
+    writeString(name.getPrefix());
+    writeString(name.getNamespaceURI());
+    writeString(name.getLocalPart());
+  }
+
+  private void writeNamespaces(final List<Namespace> namespaces) throws IOException {
+    out.writeInt(namespaces.size());
+
+    for (final Namespace n : namespaces) {
+      writeString(n.getPrefix());
+      writeString(n.getNamespaceURI());
+    }
+  }
+
+  private void writeStartDocument(final StartDocument event) throws IOException {
+    out.writeByte(
+        (event.encodingSet() ? ENCODING_SET : 0)
+            | (event.standaloneSet() ? STANDALONE_SET : 0)
+            | (event.isStandalone() ? STANDALONE : 0));
+    writeString(event.getCharacterEncodingScheme());
+    writeString(event.getVersion());
+  }
+
+  private void writeStartElement(final XMLEvent event) throws IOException {
+    final List<Attribute> atts = attributes(event).toList();
+
+    writeName(event.asStartElement().getName());
+    writeNamespaces(namespaces(event).toList());
+    out.writeInt(atts.size());
+
+    for (final Attribute a : atts) {
+      writeName(a.getName());
+      writeText(a.getValue());
+    }
+  }
+
+  /** Strings that are likely to be repeated are written only once and referenced afterwards. */
+  private void writeString(final String s) throws IOException {
+    if (s == null) {
+      out.writeInt(0);
+    } else {
+      final Integer index = names.get(s);
+
+      if (index != null) {
+        out.writeInt(index + REFERENCE_OFFSET);
+      } else {
+        names.put(s, names.size());
+        out.writeInt(1);
+        writeText(s);
+      }
+    }
+  }
+
+  private void writeText(final String s) throws IOException {
+    final byte[] bytes = s.getBytes(UTF_8);
+
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Closes the stream and deletes the file. It doesn't refer to the reader, so it can run after the
+   * reader was collected.
+   */
+  private record Cleanup(File file, Closeable stream) implements Runnable {
+    public void run() {
+      tryToDoSilent(stream::close);
+      tryToDoSilent(() -> deleteIfExists(file.toPath()));
+    }
+  }
+
+  private static class SpilledEventReader implements XMLEventReader {
+    private final Cleanable cleanable;
+    private final DataInputStream in;
+    private final List<String> names = new ArrayList<>();
+    private boolean closed;
+    private XMLEvent currentEvent;
+    private XMLEvent peeked;
+
+    private SpilledEventReader(final File file) throws IOException {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      cleanable = CLEANER.register(this, new Cleanup(file, in));
+    }
+
+    public void close() throws XMLStreamException {
+      if (!closed) {
+        closed = true;
+        peeked = null;
+        cleanable.clean();
+      }
+    }
+
+    public String getElementText() throws XMLStreamException {
+      return Util.getElementText(this, currentEvent, new HashMap<>());
+    }
+
+    public Object getProperty(final String name) {
+      return null;
+    }
+
+    public boolean hasNext() {
+      return tryToGetRethrow(this::peek).isPresent();
+    }
+
+    public Object next() {
+      return tryToGetRethrow(this::nextEvent).orElse(null);
+    }
+
+    public XMLEvent nextEvent() throws XMLStreamException {
+      final XMLEvent event = peek();
+
+      if (event == null) {
+        throw new NoSuchElementException();
+      }
+
+      peeked = null;
+      currentEvent = event;
+
+      return event;
+    }
+
+    public XMLEvent nextTag() throws XMLStreamException {
+      return Util.nextTag(this);
+    }
+
+    public XMLEvent peek() throws XMLStreamException {
+      if (peeked == null && !closed) {
+        try {
+          peeked = read();
+        } catch (IOException e) {
+          throw new XMLStreamException(e);
+        }
+      }
+
+      return peeked;
+    }
+
+    private XMLEvent read() throws IOException {
+      final int type = in.read();
+
+      return switch (type) {
+        case -1 -> null;
+        case CDATA -> eventFactory().createCData(readText());
+        case CHARACTERS -> eventFactory().createCharacters(readText());
+        case COMMENT -> eventFactory().createComment(readText());
+        case END_DOCUMENT -> eventFactory().createEndDocument();
+        case END_ELEMENT -> readEndElement();
+        case PROCESSING_INSTRUCTION ->
+            eventFactory().createProcessingInstruction(readString(), readText());
+        case SPACE -> eventFactory().createIgnorableSpace(readText());
+        case START_DOCUMENT -> readStartDocument();
+        case START_ELEMENT -> readStartElement();
+        default -> throw new IOException("Corrupt event buffer.");
+      };
+    }
+
+    /**
+     * The namespaces are set on a mutable event, because the event factory of the JDK drops those
+     * of an end element.
+     */
+    private XMLEvent readEndElement() throws IOException {
+      final MutableEndElement event =
+          new MutableEndElement().setName(readString(), readString(), readString());
+
+      for (int i = in.readInt(); i > 0; --i) {
+        event.addNamespace(readString(), readString());
+      }
+
+      return event;
+    }
+
+    private Iterator<Namespace> readNamespaces() throws IOException {
+      final List<Namespace> namespaces = new ArrayList<>();
+
+      for (int i = in.readInt(); i > 0; --i) {
+        final String p = readString();
+        final String uri = readString();
+
+        namespaces.add(
+            p == null || p.isEmpty()
+                ? eventFactory().createNamespace(uri)
+                : eventFactory().createNamespace(p, uri));
+      }
+
+      return namespaces.iterator();
+    }
+
+    private XMLEvent readStartDocument() throws IOException {
+      final int flags = in.readByte();
+      final String encoding = readString();
+      final String version = readString();
+
+      if ((flags & STANDALONE_SET) != 0) {
+        return eventFactory().createStartDocument(encoding, version, (flags & STANDALONE) != 0);
+      }
+
+      return (flags & ENCODING_SET) != 0 || !"1.0".equals(version)
+          ? eventFactory().createStartDocument(encoding, version)
+          : eventFactory().createStartDocument();
+    }
+
+    private XMLEvent readStartElement() throws IOException {
+      final String prefix = readString();
+      final String namespaceURI = readString();
+      final String localName = readString();
+      final Iterator<Namespace> namespaces = readNamespaces();
+      final List<Attribute> attributes = new ArrayList<>();
+
+      for (int i = in.readInt(); i > 0; --i) {
+        attributes.add(
+            eventFactory().createAttribute(readString(), readString(), readString(), readText()));
+      }
+
+      return eventFactory()
+          .createStartElement(prefix, namespaceURI, localName, attributes.iterator(), namespaces);
+    }
+
+    private String readString() throws IOException {
+      final int tag = in.readInt();
+
+      if (tag == 0) {
+        return null;
+      }
+
+      if (tag == 1) {
+        final String s = readText();
+
+        names.add(s);
+
+        return s;
+      }
+
+      return names.get(tag - REFERENCE_OFFSET);
+    }
+
+    private String readText() throws IOException {
+      final byte[] bytes = new byte[in.readInt()];
+
+      in.readFully(bytes);
+
+      return new String(bytes, UTF_8);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
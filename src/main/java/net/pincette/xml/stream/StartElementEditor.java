@@ -0,0 +1,250 @@
+package net.pincette.xml.stream;
+
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.xml.namespace.QName;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+
+/**
+ * Collects attribute and namespace edits and applies them to a start element in one go. A
+ * <code>MutableStartElement</code> is edited in place, unless {@link #applyToCopy} is used. For
+ * other events one new event is created, which keeps the namespace context of the original. When
+ * there are no edits the event is returned as is.
+ *
+ * <p>An editor can be applied to any number of events, so readers that always make the same
+ * changes create it only once. It is not thread-safe.
+ *
+ * <p>An attribute that is set replaces the value of an existing attribute with the same name. A
+ * namespace declaration that is set replaces an existing one with the same prefix. Removals are
+ * applied before additions.
+ *
+ * @author Werner Donné
+ */
+public class StartElementEditor {
+  private final List<Attribute> attributes = new ArrayList<>();
+  private final List<Namespace> namespaces = new ArrayList<>();
+  private final List<QName> removedAttributes = new ArrayList<>();
+  private final List<String> removedNamespaces = new ArrayList<>();
+  private final List<Attribute> scratchAttributes = new ArrayList<>();
+  private final List<Namespace> scratchNamespaces = new ArrayList<>();
+
+  private static boolean hasAttribute(final List<Attribute> attributes, final QName name) {
+    for (Attribute attribute : attributes) {
+      if (sameName(attribute.getName(), name)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static boolean hasNamespace(final List<Namespace> namespaces, final String prefix) {
+    for (Namespace namespace : namespaces) {
+      if (prefix(namespace).equals(prefix)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  private static String prefix(final Namespace namespace) {
+    return namespace.getPrefix() != null ? namespace.getPrefix() : "";
+  }
+
+  private static boolean sameName(final QName name1, final QName name2) {
+    return name1.getLocalPart().equals(name2.getLocalPart())
+        && name1.getNamespaceURI().equals(name2.getNamespaceURI());
+  }
+
+  /**
+   * Applies the edits to <code>event</code>.
+   *
+   * @param event the start element event.
+   * @return The edited event, which is <code>event</code> itself if it is a <code>
+   *     MutableStartElement</code> or if there are no edits.
+   */
+  public StartElement apply(final StartElement event) {
+    if (isEmpty()) {
+      return event;
+    }
+
+    return event instanceof MutableStartElement mutable ? applyInPlace(mutable) : applyNew(event);
+  }
+
+  private StartElement applyInPlace(final MutableStartElement event) {
+    removedAttributes.forEach(event::removeAttribute);
+    removedNamespaces.forEach(event::removeNamespace);
+
+    for (Attribute attribute : attributes) {
+      event.setAttribute(
+          attribute.getName().getPrefix(),
+          attribute.getName().getNamespaceURI(),
+          attribute.getName().getLocalPart(),
+          attribute.getValue());
+    }
+
+    for (Namespace namespace : namespaces) {
+      event.setNamespace(prefix(namespace), namespace.getNamespaceURI());
+    }
+
+    return event;
+  }
+
+  private StartElement applyNew(final StartElement event) {
+    try {
+      for (Iterator<Attribute> i = event.getAttributes(); i.hasNext(); ) {
+        final Attribute attribute = i.next();
+
+        if (!isRemovedAttribute(attribute.getName())) {
+          scratchAttributes.add(replacement(attribute));
+        }
+      }
+
+      for (Attribute attribute : attributes) {
+        if (!hasAttribute(scratchAttributes, attribute.getName())) {
+          scratchAttributes.add(attribute);
+        }
+      }
+
+      for (Iterator<Namespace> i = event.getNamespaces(); i.hasNext(); ) {
+        final Namespace namespace = i.next();
+
+        if (!removedNamespaces.contains(prefix(namespace))) {
+          scratchNamespaces.add(replacement(namespace));
+        }
+      }
+
+      for (Namespace namespace : namespaces) {
+        if (!hasNamespace(scratchNamespaces, prefix(namespace))) {
+          scratchNamespaces.add(namespace);
+        }
+      }
+
+      return eventFactory()
+          .createStartElement(
+              event.getName().getPrefix(),
+              event.getName().getNamespaceURI(),
+              event.getName().getLocalPart(),
+              scratchAttributes.iterator(),
+              scratchNamespaces.iterator(),
+              event.getNamespaceContext());
+    } finally {
+      scratchAttributes.clear();
+      scratchNamespaces.clear();
+    }
+  }
+
+  /**
+   * Applies the edits to a new event, also when <code>event</code> is a <code>MutableStartElement
+   * </code>, which is then left as it is.
+   *
+   * @param event the start element event.
+   * @return The new event, or <code>event</code> itself if there are no edits.
+   */
+  public StartElement applyToCopy(final StartElement event) {
+    return isEmpty() ? event : applyNew(event);
+  }
+
+  /** Removes all edits. */
+  public StartElementEditor clear() {
+    attributes.clear();
+    namespaces.clear();
+    removedAttributes.clear();
+    removedNamespaces.clear();
+
+    return this;
+  }
+
+  public boolean isEmpty() {
+    return attributes.isEmpty()
+        && namespaces.isEmpty()
+        && removedAttributes.isEmpty()
+        && removedNamespaces.isEmpty();
+  }
+
+  private boolean isRemovedAttribute(final QName name) {
+    for (QName removed : removedAttributes) {
+      if (sameName(removed, name)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  public StartElementEditor removeAttribute(final QName name) {
+    removedAttributes.add(name);
+
+    return this;
+  }
+
+  /**
+   * Removes the declaration of a namespace prefix.
+   *
+   * @param prefix the prefix. The empty string or <code>null</code> mean the default namespace.
+   * @return The editor.
+   */
+  public StartElementEditor removeNamespace(final String prefix) {
+    removedNamespaces.add(prefix != null ? prefix : "");
+
+    return this;
+  }
+
+  private Attribute replacement(final Attribute attribute) {
+    for (Attribute a : attributes) {
+      if (sameName(a.getName(), attribute.getName())) {
+        return a;
+      }
+    }
+
+    return attribute;
+  }
+
+  private Namespace replacement(final Namespace namespace) {
+    for (Namespace n : namespaces) {
+      if (prefix(n).equals(prefix(namespace))) {
+        return n;
+      }
+    }
+
+    return namespace;
+  }
+
+  public StartElementEditor setAttribute(final Attribute attribute) {
+    attributes.removeIf(a -> sameName(a.getName(), attribute.getName()));
+    attributes.add(attribute);
+
+    return this;
+  }
+
+  public StartElementEditor setAttribute(final QName name, final String value) {
+    return setAttribute(eventFactory().createAttribute(name, value));
+  }
+
+  public StartElementEditor setNamespace(final Namespace namespace) {
+    namespaces.removeIf(n -> prefix(n).equals(prefix(namespace)));
+    namespaces.add(namespace);
+
+    return this;
+  }
+
+  /**
+   * Declares a namespace prefix.
+   *
+   * @param prefix the prefix. The empty string or <code>null</code> mean the default namespace.
+   * @param namespaceURI the namespace URI.
+   * @return The editor.
+   */
+  public StartElementEditor setNamespace(final String prefix, final String namespaceURI) {
+    return setNamespace(
+        prefix == null || prefix.isEmpty()
+            ? eventFactory().createNamespace(namespaceURI)
+            : eventFactory().createNamespace(prefix, namespaceURI));
+  }
+}
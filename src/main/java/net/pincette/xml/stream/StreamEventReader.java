@@ -1,7 +1,9 @@
 package net.pincette.xml.stream;
 
+import static java.util.Arrays.copyOf;
 import static net.pincette.util.StreamUtil.rangeExclusive;
 import static net.pincette.util.Util.tryToGetRethrow;
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -9,7 +11,6 @@ import java.util.Deque;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
-import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
@@ -18,18 +19,41 @@ import javax.xml.stream.events.Namespace;
 import javax.xml.stream.events.XMLEvent;
 
 /**
- * An XMLEventReader wrapper around an XMLStreamReader.
+ * An XMLEventReader wrapper around an XMLStreamReader. When events are reused the start element,
+ * end element, attribute and characters events are mutable instances that are overwritten as the
+ * reader advances. The characters events then point directly to the text array of the stream
+ * reader. This is only correct when the consumer doesn't retain events.
  *
  * @author Werner Donné
  */
 public class StreamEventReader implements XMLEventReader {
-  private final List<XMLEvent> buffer = new ArrayList<>();
-  private final XMLEventFactory factory = XMLEventFactory.newFactory();
+  private final EventQueue buffer = new EventQueue();
+  private final MutableCharacters characters;
+  private final MutableEndElement endElement;
+  private final QNameCache names;
   private final Deque<List<Namespace>> namespaces = new ArrayDeque<>();
   private final XMLStreamReader reader;
+  private final boolean reuseEvents;
+  private final MutableStartElement startElement;
+  private MutableAttribute[] attributes = new MutableAttribute[8];
 
   public StreamEventReader(final XMLStreamReader reader) {
+    this(reader, false);
+  }
+
+  /**
+   * Creates the reader.
+   *
+   * @param reader the stream reader that is wrapped.
+   * @param reuseEvents when set, the same event instances are returned over and over again.
+   */
+  public StreamEventReader(final XMLStreamReader reader, final boolean reuseEvents) {
     this.reader = reader;
+    this.reuseEvents = reuseEvents;
+    characters = reuseEvents ? new MutableCharacters() : null;
+    endElement = reuseEvents ? new MutableEndElement() : null;
+    names = reuseEvents ? new QNameCache() : null;
+    startElement = reuseEvents ? new MutableStartElement() : null;
   }
 
   public void close() throws XMLStreamException {
@@ -37,43 +61,70 @@ public class StreamEventReader implements XMLEventReader {
   }
 
   private void createAttribute() {
+    if (reuseEvents) {
+      for (int i = 0; i < reader.getAttributeCount(); ++i) {
+        buffer.add(
+            reusedAttribute(i)
+                .set(
+                    reader.getAttributePrefix(i),
+                    reader.getAttributeNamespace(i),
+                    reader.getAttributeLocalName(i),
+                    reader.getAttributeValue(i)));
+      }
+
+      return;
+    }
+
     rangeExclusive(0, reader.getAttributeCount())
         .forEach(
             i ->
                 buffer.add(
-                    factory.createAttribute(
-                        reader.getAttributeName(i), reader.getAttributeValue(i))));
+                    eventFactory()
+                        .createAttribute(reader.getAttributeName(i), reader.getAttributeValue(i))));
   }
 
   private void createCData() {
-    buffer.add(factory.createCData(reader.getText()));
+    buffer.add(
+        reuseEvents
+            ? reusedCharacters().setCData(true)
+            : eventFactory().createCData(reader.getText()));
   }
 
   private void createCharacters() {
-    buffer.add(factory.createCharacters(reader.getText()));
+    buffer.add(
+        reuseEvents ? reusedCharacters() : eventFactory().createCharacters(reader.getText()));
   }
 
   private void createComment() {
-    buffer.add(factory.createComment(reader.getText()));
+    buffer.add(eventFactory().createComment(reader.getText()));
   }
 
   private void createDTD() {
-    buffer.add(factory.createDTD(reader.getText()));
+    buffer.add(eventFactory().createDTD(reader.getText()));
   }
 
   private void createEndDocument() {
-    buffer.add(factory.createEndDocument());
+    buffer.add(eventFactory().createEndDocument());
   }
 
   private void createEndElement() {
-    buffer.add(factory.createEndElement(reader.getName(), namespaces.pop().iterator()));
+    if (reuseEvents) {
+      endElement
+          .clear()
+          .setName(reader.getPrefix(), reader.getNamespaceURI(), reader.getLocalName());
+      namespaces.pop().forEach(n -> endElement.addNamespace(n.getPrefix(), n.getNamespaceURI()));
+      buffer.add(endElement);
+    } else {
+      buffer.add(eventFactory().createEndElement(reader.getName(), namespaces.pop().iterator()));
+    }
   }
 
   private void createEntityReference() {
     buffer.add(
-        factory.createEntityReference(
-            reader.getLocalName(),
-            new InternalEntityDeclaration(reader.getLocalName(), reader.getText())));
+        eventFactory()
+            .createEntityReference(
+                reader.getLocalName(),
+                new InternalEntityDeclaration(reader.getLocalName(), reader.getText())));
   }
 
   private void createEvent(final int type) {
@@ -122,6 +173,12 @@ public class StreamEventReader implements XMLEventReader {
     }
   }
 
+  private Namespace createNamespace(final String prefix, final String uri) {
+    return prefix == null || prefix.isEmpty()
+        ? eventFactory().createNamespace(uri)
+        : eventFactory().createNamespace(prefix, uri);
+  }
+
   private void createNamespace() {
     Optional.ofNullable(namespaces.peek())
         .ifPresent(
@@ -129,7 +186,7 @@ public class StreamEventReader implements XMLEventReader {
                 rangeExclusive(0, reader.getNamespaceCount())
                     .map(
                         i ->
-                            factory.createNamespace(
+                            createNamespace(
                                 reader.getNamespacePrefix(i), reader.getNamespaceURI(i)))
                     .forEach(
                         n -> {
@@ -139,21 +196,31 @@ public class StreamEventReader implements XMLEventReader {
   }
 
   private void createProcessingInstruction() {
-    buffer.add(factory.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+    buffer.add(
+        eventFactory().createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
   }
 
   private void createSpace() {
-    buffer.add(factory.createSpace(reader.getText()));
+    buffer.add(
+        reuseEvents
+            ? reusedCharacters().setIgnorableWhiteSpace(true)
+            : eventFactory().createSpace(reader.getText()));
   }
 
   private void createStartDocument() {
     buffer.add(
-        factory.createStartDocument(
-            reader.getEncoding(), reader.getVersion(), reader.isStandalone()));
+        eventFactory()
+            .createStartDocument(reader.getEncoding(), reader.getVersion(), reader.isStandalone()));
   }
 
   private void createStartElement() {
-    buffer.add(factory.createStartElement(reader.getName(), null, null));
+    buffer.add(
+        reuseEvents
+            ? startElement
+                .clear()
+                .setName(reader.getPrefix(), reader.getNamespaceURI(), reader.getLocalName())
+                .setNamespaceContext(reader.getNamespaceContext())
+            : eventFactory().createStartElement(reader.getName(), null, null));
     namespaces.push(new ArrayList<>());
     createAttribute();
     createNamespace();
@@ -182,7 +249,7 @@ public class StreamEventReader implements XMLEventReader {
   public XMLEvent nextEvent() throws XMLStreamException {
     final XMLEvent result = peek();
 
-    buffer.remove(0);
+    buffer.poll();
 
     return result;
   }
@@ -196,11 +263,56 @@ public class StreamEventReader implements XMLEventReader {
       createEvent(reader.next());
     }
 
-    return buffer.get(0);
+    return buffer.peek();
   }
 
   @Override
   public void remove() {
     throw new UnsupportedOperationException();
   }
+
+  private MutableAttribute reusedAttribute(final int index) {
+    if (index == attributes.length) {
+      attributes = copyOf(attributes, index * 2);
+    }
+
+    if (attributes[index] == null) {
+      attributes[index] = new MutableAttribute(names);
+    }
+
+    return attributes[index];
+  }
+
+  private MutableCharacters reusedCharacters() {
+    return characters.set(
+        reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+  }
+
+  /**
+   * Skips the rest of the element of which the start element was the last returned event, including
+   * its end element. The stream reader is moved forward without creating events for the skipped
+   * part.
+   */
+  public void skipElement() throws XMLStreamException {
+    int depth = 1;
+
+    while (depth > 0 && !buffer.isEmpty()) {
+      final XMLEvent event = buffer.poll();
+
+      if (event.isStartElement()) {
+        ++depth;
+      } else if (event.isEndElement()) {
+        --depth;
+      }
+    }
+
+    if (depth > 0) {
+      Util.skipElement(reader, depth);
+
+      // Each element that is still open has pushed its namespaces.
+      for (int i = 0; i < depth; ++i) {
+        namespaces.pop();
+      }
+    }
+  }
 }
@@ -1,32 +1,31 @@
 package net.pincette.xml.stream;
 
-import static java.nio.file.Files.delete;
 import static net.pincette.util.Util.tryToDoRethrow;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.util.NoSuchElementException;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLEventWriter;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.XMLEvent;
 import javax.xml.stream.util.EventReaderDelegate;
+import javax.xml.transform.sax.SAXResult;
 import javax.xml.transform.sax.TransformerHandler;
-import javax.xml.transform.stream.StreamResult;
 
 /**
- * An XMLEventReader wrapper around a TransformerHandler.
+ * An XMLEventReader wrapper around a TransformerHandler. The result of the transformation is kept
+ * in memory as events. When it grows beyond the threshold it is moved to a temporary file in a
+ * binary format.
  *
  * @author Werner Donné
  */
 public class TransformerHandlerEventReaderDelegate extends EventReaderDelegate {
-  private final XMLInputFactory factory = XMLInputFactory.newFactory();
+  /** The default threshold in bytes. */
+  public static final long DEFAULT_THRESHOLD = 1024L * 1024L;
+
   private final TransformerHandler handler;
+  private final long threshold;
   private boolean closed;
-  private FileInputStream in;
   private boolean initialized;
-  private File tmpFile;
   private XMLEventReader reader;
 
   public TransformerHandlerEventReaderDelegate(final TransformerHandler handler) {
@@ -35,20 +34,30 @@ public class TransformerHandlerEventReaderDelegate extends EventReaderDelegate {
 
   public TransformerHandlerEventReaderDelegate(
       final TransformerHandler handler, final XMLEventReader reader) {
+    this(handler, reader, DEFAULT_THRESHOLD);
+  }
+
+  /**
+   * Creates the delegate.
+   *
+   * @param handler the transformer handler.
+   * @param reader the reader that provides the input of the transformation.
+   * @param threshold the estimated size of the result in bytes beyond which it is moved to a
+   *     temporary file.
+   */
+  public TransformerHandlerEventReaderDelegate(
+      final TransformerHandler handler, final XMLEventReader reader, final long threshold) {
     super(reader);
     this.handler = handler;
+    this.threshold = threshold;
   }
 
   @Override
   public void close() throws XMLStreamException {
     if (!closed) {
-      reader.close();
-
-      tryToDoRethrow(
-          () -> {
-            in.close();
-            delete(tmpFile.toPath());
-          });
+      if (reader != null) {
+        reader.close();
+      }
 
       closed = true;
     }
@@ -64,17 +73,22 @@ public class TransformerHandlerEventReaderDelegate extends EventReaderDelegate {
     if (!initialized) {
       tryToDoRethrow(
           () -> {
+            final SpillingEventBuffer buffer = new SpillingEventBuffer(threshold);
+            final SAXResult result = new SAXResult(new EventWriterContentHandler(buffer));
             final XMLEventWriter writer = new ContentHandlerEventWriter(handler);
 
-            tmpFile = File.createTempFile("TransformerHandlerEventReaderDelegate.", ".xml");
-            tmpFile.deleteOnExit();
-            handler.setResult(new StreamResult(tmpFile));
-            writer.add(getParent());
-            writer.flush();
-            writer.close();
+            try {
+              result.setLexicalHandler(buffer);
+              handler.setResult(result);
+              writer.add(getParent());
+              writer.flush();
+              writer.close();
+              reader = buffer.reader();
+            } catch (Exception e) {
+              buffer.discard();
+              throw e;
+            }
 
-            in = new FileInputStream(tmpFile);
-            reader = factory.createXMLEventReader(in);
             initialized = true;
           });
     }
@@ -98,6 +112,6 @@ public class TransformerHandlerEventReaderDelegate extends EventReaderDelegate {
 
   @Override
   public XMLEvent peek() throws XMLStreamException {
-    return reader.peek();
+    return hasNext() ? reader.peek() : null;
   }
 }
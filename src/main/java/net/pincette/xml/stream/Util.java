@@ -2,8 +2,6 @@ package net.pincette.xml.stream;
 
 import static java.lang.System.arraycopy;
 import static java.util.Optional.ofNullable;
-import static java.util.stream.Stream.concat;
-import static java.util.stream.Stream.of;
 import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
 import static javax.xml.stream.XMLInputFactory.IS_NAMESPACE_AWARE;
 import static javax.xml.stream.XMLInputFactory.IS_REPLACING_ENTITY_REFERENCES;
@@ -17,6 +15,7 @@ import static net.pincette.util.Util.tryToDoRethrow;
 import static net.pincette.util.Util.tryToGetRethrow;
 import static net.pincette.util.Util.tryToGetWithRethrow;
 import static net.pincette.xml.Util.stream;
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
 
 import java.io.InputStream;
 import java.util.ArrayDeque;
@@ -39,6 +38,7 @@ import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.Attribute;
 import javax.xml.stream.events.EndElement;
 import javax.xml.stream.events.EntityReference;
@@ -74,7 +74,7 @@ public class Util {
   private static Document accumulate(
       final Document document, final XMLEventReader reader, final StartElement currentEvent)
       throws XMLStreamException {
-    final XMLEventFactory factory = XMLEventFactory.newFactory();
+    final XMLEventFactory factory = eventFactory();
     final DOMEventWriter writer = new DOMEventWriter(document);
 
     writer.add(factory.createStartDocument());
@@ -121,7 +121,7 @@ public class Util {
 
   public static void addEmptyElement(final QName name, final XMLEventWriter writer)
       throws XMLStreamException {
-    final XMLEventFactory factory = XMLEventFactory.newFactory();
+    final XMLEventFactory factory = eventFactory();
 
     writer.add(factory.createStartElement(name, null, null));
     writer.add(factory.createEndElement(name, null));
@@ -129,7 +129,7 @@ public class Util {
 
   public static void addTextElement(
       final QName name, final String text, final XMLEventWriter writer) throws XMLStreamException {
-    final XMLEventFactory factory = XMLEventFactory.newFactory();
+    final XMLEventFactory factory = eventFactory();
 
     writer.add(factory.createStartElement(name, null, null));
     writer.add(factory.createCharacters(text));
@@ -147,16 +147,16 @@ public class Util {
 
   public static StartElement changeAttributes(
       final StartElement event, final Function<StartElement, Stream<Attribute>> newAttributes) {
-    return XMLEventFactory.newFactory()
+    return eventFactory()
         .createStartElement(
             event.getName(), newAttributes.apply(event).toList().iterator(), event.getNamespaces());
   }
 
   public static StartElement changeNamespaces(
       final StartElement event, final Function<StartElement, Stream<Namespace>> newNamespaces) {
-    return XMLEventFactory.newFactory()
+    return eventFactory()
         .createStartElement(
-            event.getName(), event.getNamespaces(), newNamespaces.apply(event).toList().iterator());
+            event.getName(), event.getAttributes(), newNamespaces.apply(event).toList().iterator());
   }
 
   static Node clearNode(final Node node) {
@@ -204,7 +204,7 @@ public class Util {
   }
 
   public static Attribute createAttribute(final Attr attribute) {
-    return createAttribute(attribute, XMLEventFactory.newFactory());
+    return createAttribute(attribute, eventFactory());
   }
 
   public static Attribute createAttribute(final Attr attribute, final XMLEventFactory factory) {
@@ -212,7 +212,7 @@ public class Util {
   }
 
   public static EndElement createEndElement(final Element element) {
-    return createEndElement(element, XMLEventFactory.newFactory());
+    return createEndElement(element, eventFactory());
   }
 
   public static EndElement createEndElement(final Element element, final XMLEventFactory factory) {
@@ -226,7 +226,7 @@ public class Util {
   }
 
   public static EntityReference createEntityReference(final org.w3c.dom.EntityReference ref) {
-    return createEntityReference(ref, XMLEventFactory.newFactory());
+    return createEntityReference(ref, eventFactory());
   }
 
   public static EntityReference createEntityReference(
@@ -243,7 +243,7 @@ public class Util {
   }
 
   public static Namespace createNamespace(final Attr attribute) {
-    return createNamespace(attribute, XMLEventFactory.newFactory());
+    return createNamespace(attribute, eventFactory());
   }
 
   public static Namespace createNamespace(final Attr attribute, final XMLEventFactory factory) {
@@ -254,7 +254,7 @@ public class Util {
   }
 
   public static StartElement createStartElement(final Element element) {
-    return createStartElement(element, XMLEventFactory.newFactory());
+    return createStartElement(element, eventFactory());
   }
 
   public static StartElement createStartElement(
@@ -277,9 +277,25 @@ public class Util {
         getQName(element), split.first.build().iterator(), split.second.build().iterator());
   }
 
+  /**
+   * Skips the rest of the element that started with <code>currentEvent</code>. When <code>reader
+   * </code> is a <code>StreamEventReader</code> no events are created for it.
+   */
   public static void discardElement(final XMLEventReader reader, final StartElement currentEvent)
       throws XMLStreamException {
-    addElement(reader, new DevNullEventWriter(), currentEvent);
+    if (reader instanceof StreamEventReader r) {
+      r.skipElement();
+    } else {
+      for (int depth = 1; depth > 0 && reader.hasNext(); ) {
+        final XMLEvent event = reader.nextEvent();
+
+        if (event.isStartElement()) {
+          ++depth;
+        } else if (event.isEndElement()) {
+          --depth;
+        }
+      }
+    }
   }
 
   static String escapeText(final String value) {
@@ -364,6 +380,7 @@ public class Util {
 
     return coalesceText(
         events(reader)
+            .takeWhile(e -> !e.isEndElement())
             .map(
                 event ->
                     must(
@@ -467,38 +484,57 @@ public class Util {
 
   public static XMLEvent nextTag(final XMLEventReader reader) throws XMLStreamException {
     return events(reader)
-        .filter(Util::ignorable)
+        .filter(e -> !ignorable(e))
         .map(event -> must(event, e -> e.isStartElement() || e.isEndElement()))
         .findFirst()
         .orElseThrow(() -> new XMLStreamException(UNEXPECTED));
   }
 
   public static StartElement removeAttribute(final StartElement event, final QName name) {
-    return changeAttributes(event, e -> withoutAttribute(e, name));
+    return new StartElementEditor().removeAttribute(name).applyToCopy(event);
   }
 
   public static StartElement setAttribute(
       final StartElement event, final QName name, final String value) {
-    return setAttribute(event, XMLEventFactory.newFactory().createAttribute(name, value));
+    return new StartElementEditor().setAttribute(name, value).applyToCopy(event);
   }
 
   public static StartElement setAttribute(final StartElement event, final Attribute attribute) {
-    return changeAttributes(
-        event, e -> concat(withoutAttribute(e, attribute.getName()), of(attribute)));
+    return new StartElementEditor().setAttribute(attribute).applyToCopy(event);
   }
 
   public static StartElement setNamespace(
       final StartElement event, final String prefix, final String namespaceURI) {
-    return setNamespace(
-        event,
-        prefix == null
-            ? XMLEventFactory.newFactory().createNamespace(namespaceURI)
-            : XMLEventFactory.newFactory().createNamespace(prefix, namespaceURI));
+    return new StartElementEditor().setNamespace(prefix, namespaceURI).applyToCopy(event);
   }
 
   public static StartElement setNamespace(final StartElement event, final Namespace namespace) {
-    return changeNamespaces(
-        event, e -> concat(withoutNamespace(e, namespace.getName()), of(namespace)));
+    return new StartElementEditor().setNamespace(namespace).applyToCopy(event);
+  }
+
+  /**
+   * Moves <code>reader</code>, which is positioned on a start element, to the corresponding end
+   * element. Only the depth is tracked, so the skipped part is not materialized.
+   */
+  public static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+    skipElement(reader, 1);
+  }
+
+  /**
+   * Moves <code>reader</code> forward until <code>depth</code> elements have been closed.
+   */
+  static void skipElement(final XMLStreamReader reader, final int depth)
+      throws XMLStreamException {
+    for (int d = depth; d > 0; ) {
+      switch (reader.next()) {
+        case XMLStreamConstants.START_ELEMENT -> ++d;
+        case XMLStreamConstants.END_ELEMENT -> --d;
+        case XMLStreamConstants.END_DOCUMENT -> d = 0;
+        default -> {
+          // Skipped.
+        }
+      }
+    }
   }
 
   public static Stream<Attribute> withoutAttribute(final StartElement event, final QName name) {
@@ -506,9 +542,6 @@ public class Util {
   }
 
   public static Stream<Namespace> withoutNamespace(final StartElement event, final QName name) {
-    return attributes(event)
-        .filter(Namespace.class::isInstance)
-        .filter(a -> !name.equals(a.getName()))
-        .map(a -> (Namespace) a);
+    return namespaces(event).filter(n -> !name.equals(n.getName()));
   }
 }
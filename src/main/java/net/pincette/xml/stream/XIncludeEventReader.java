@@ -14,6 +14,7 @@ import static net.pincette.xml.Util.isXml;
 import static net.pincette.xml.Util.stream;
 import static net.pincette.xml.stream.Util.accumulate;
 import static net.pincette.xml.stream.Util.addElement;
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -29,7 +30,6 @@ import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventFactory;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
@@ -52,7 +52,6 @@ public class XIncludeEventReader extends EventReaderDelegate {
   private static final Pattern PI_ENCODING = compile("encoding=[\"']([^\"']+)[\"']");
   private static final String XINCLUDE = "http://www.w3.org/2001/XInclude";
 
-  private final XMLEventFactory eventFactory = XMLEventFactory.newFactory();
   private final XMLInputFactory factory;
   private final Set<String> included;
   private final BaseURITracker tracker;
@@ -212,9 +211,10 @@ public class XIncludeEventReader extends EventReaderDelegate {
                 pair ->
                     new ListEventReader(
                         list(
-                            eventFactory.createCharacters(
-                                tryToGetRethrow(() -> new String(pair.first, pair.second))
-                                    .orElse("")))));
+                            eventFactory()
+                                .createCharacters(
+                                    tryToGetRethrow(() -> new String(pair.first, pair.second))
+                                        .orElse("")))));
   }
 
   private Optional<Pair<byte[], String>> openUrlStream(
@@ -304,12 +304,15 @@ public class XIncludeEventReader extends EventReaderDelegate {
   }
 
   private static class SetXIncludeSourceReader extends EventReaderDelegateBase {
-    private final String href;
+    private final StartElementEditor editor;
     private boolean seen;
 
     private SetXIncludeSourceReader(final String href, final XMLEventReader parent) {
       super(parent);
-      this.href = href;
+      editor =
+          new StartElementEditor()
+              .setAttribute(new QName(XINCLUDE, "xinclude-href", "xi"), href)
+              .setNamespace("xi", XINCLUDE);
     }
 
     @Override
@@ -319,11 +322,7 @@ public class XIncludeEventReader extends EventReaderDelegate {
       if (!seen && event.isStartElement()) {
         seen = true;
 
-        return Util.setNamespace(
-            Util.setAttribute(
-                event.asStartElement(), new QName(XINCLUDE, "xinclude-href", "xi"), href),
-            "xi",
-            XINCLUDE);
+        return editor.apply(event.asStartElement());
       }
 
       return event;
@@ -0,0 +1,59 @@
+package net.pincette.xml.stream;
+
+import static java.util.Objects.requireNonNull;
+import static net.pincette.util.Pair.pair;
+
+import java.util.function.Supplier;
+import javax.xml.stream.XMLEventFactory;
+import net.pincette.util.Pair;
+
+/**
+ * Provides the event factory that is used in this package, so that it isn't looked up for every
+ * event. Event factories are not guaranteed to be thread-safe, which is why every thread gets its
+ * own one. The default factory comes from <code>XMLEventFactory.newFactory()</code>. Another
+ * implementation can be plugged in with {@link #setSupplier(Supplier)}.
+ *
+ * <p>The factory should be fetched at the point where it is used and not be kept in a field,
+ * because readers, writers and handlers may be driven by another thread than the one that created
+ * them, for example behind a <code>Pipe</code> or an <code>AsyncTee</code>.
+ *
+ * @author Werner Donné
+ */
+public class XMLEventFactoryProvider {
+  private static final ThreadLocal<Pair<Supplier<XMLEventFactory>, XMLEventFactory>> factories =
+      new ThreadLocal<>();
+  private static volatile Supplier<XMLEventFactory> supplier = XMLEventFactory::newFactory;
+
+  private XMLEventFactoryProvider() {}
+
+  /**
+   * Returns the event factory of the calling thread. A new one is created when the supplier has
+   * changed.
+   *
+   * @return the event factory.
+   */
+  public static XMLEventFactory eventFactory() {
+    final Supplier<XMLEventFactory> current = supplier;
+    final Pair<Supplier<XMLEventFactory>, XMLEventFactory> factory = factories.get();
+
+    if (factory != null && factory.first == current) {
+      return factory.second;
+    }
+
+    final XMLEventFactory result = current.get();
+
+    factories.set(pair(current, result));
+
+    return result;
+  }
+
+  /**
+   * Replaces the way event factories are created. Each thread gets a new factory from the supplier
+   * on its next call of {@link #eventFactory()}.
+   *
+   * @param supplier the function that creates event factories. It is called once per thread.
+   */
+  public static void setSupplier(final Supplier<XMLEventFactory> supplier) {
+    XMLEventFactoryProvider.supplier = requireNonNull(supplier);
+  }
+}
@@ -3,8 +3,6 @@ package net.pincette.xml.stream;
 import static net.pincette.util.Util.tryToDoRethrow;
 import static net.pincette.util.Util.tryToGetRethrow;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.NoSuchElementException;
 import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLEventWriter;
@@ -22,7 +20,7 @@ import org.xml.sax.helpers.XMLFilterImpl;
  * @author Werner Donné
  */
 public class XMLFilterEventReaderDelegate extends EventReaderDelegate {
-  private final List<XMLEvent> buffer = new ArrayList<>();
+  private final EventQueue buffer = new EventQueue();
   private final XMLEventWriter filterWriter;
   private final XMLReader nop =
       new XMLFilterImpl() {
@@ -71,7 +69,7 @@ public class XMLFilterEventReaderDelegate extends EventReaderDelegate {
 
   @Override
   public String getElementText() throws XMLStreamException {
-    return Util.getElementText(this, buffer.get(0), null);
+    return Util.getElementText(this, buffer.peek(), null);
   }
 
   @Override
@@ -85,7 +83,7 @@ public class XMLFilterEventReaderDelegate extends EventReaderDelegate {
       throw new NoSuchElementException();
     }
 
-    return buffer.remove(0);
+    return buffer.poll();
   }
 
   @Override
@@ -95,7 +93,7 @@ public class XMLFilterEventReaderDelegate extends EventReaderDelegate {
 
   @Override
   public XMLEvent peek() throws XMLStreamException {
-    return !hasNext() ? null : buffer.get(0);
+    return !hasNext() ? null : buffer.peek();
   }
 
   private boolean readNext() throws XMLStreamException {
@@ -1,35 +1,59 @@
 package net.pincette.xml.stream;
 
-import static java.io.File.createTempFile;
 import static net.pincette.util.Util.tryToDoRethrow;
 import static net.pincette.util.Util.tryToGetRethrow;
-import static net.pincette.xml.Util.secureTransformerFactory;
+import static net.pincette.xml.stream.XMLEventFactoryProvider.eventFactory;
 
-import java.io.File;
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.events.XMLEvent;
-import javax.xml.transform.sax.SAXSource;
-import javax.xml.transform.stream.StreamResult;
-import net.pincette.io.DeleteFileInputStream;
-import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
+import org.xml.sax.ext.LexicalHandler;
 
 /**
- * An XMLEventReader wrapper around an XMLReader.
+ * An XMLEventReader wrapper around an XMLReader. The parser runs on a separate daemon thread, which
+ * hands the events over in batches through a bounded queue. So the document is never buffered
+ * completely.
+ *
+ * <p>The reader should be closed when it is not read until the end, because that stops the parser
+ * thread, which otherwise waits for the queue to have room. The thread doesn't refer to the
+ * reader, so when a reader that was not closed becomes unreachable the thread is still stopped,
+ * but only after the garbage collector has noticed it.
+ *
+ * <p>A parse exception is thrown by <code>nextEvent</code> and <code>peek</code> after the events
+ * that came before it. An error on the parser thread, such as a stack overflow, is rethrown there
+ * as it is.
  *
  * @author Werner Donné
  */
 public class XMLReaderEventReader implements XMLEventReader {
+  private static final int BATCH_SIZE = 256;
+  private static final Cleaner CLEANER = Cleaner.create();
+  private static final String CLOSED = "The reader was closed.";
+  private static final String LEXICAL_HANDLER = "http://xml.org/sax/properties/lexical-handler";
+  private static final int QUEUE_SIZE = 4;
+
   private final XMLReader parser;
+  private List<XMLEvent> batch;
+  private Cleanable cleanable;
   private boolean closed;
+  private XMLEvent currentEvent;
+  private boolean ended;
+  private Throwable error;
   private boolean initialized;
   private InputSource input;
-  private XMLEventReader reader;
+  private int position;
+  private Producer producer;
   private String systemId;
 
   public XMLReaderEventReader(final XMLReader reader, final InputSource input) {
@@ -42,99 +66,52 @@ public class XMLReaderEventReader implements XMLEventReader {
     this.systemId = systemId;
   }
 
-  private static File copy(final XMLReader parser, final InputSource input, final String systemId) {
-    return tryToGetRethrow(
-            () -> {
-              final File tmpFile = createTempFile("XMLReaderEventReader.", ".xml");
-
-              tmpFile.deleteOnExit();
-
-              secureTransformerFactory()
-                  .newTransformer()
-                  .transform(getSource(parser, input, systemId), new StreamResult(tmpFile));
-
-              return tmpFile;
-            })
-        .orElse(null);
-  }
-
-  private static XMLInputFactory getInputFactory(final XMLReader parser) {
-    return parser.getEntityResolver() != null
-        ? withResolver(parser.getEntityResolver())
-        : XMLInputFactory.newFactory();
-  }
-
-  private static XMLEventReader getReader(
-      final XMLReader parser, final InputSource input, final String systemId) {
-    return tryToGetRethrow(() -> new DeleteFileInputStream(copy(parser, input, systemId)))
-        .flatMap(
-            in ->
-                tryToGetRethrow(
-                    () ->
-                        Util.getCloseInputStreamEventReader(
-                            getInputFactory(parser).createXMLEventReader(in), in)))
-        .orElse(null);
-  }
-
-  private static SAXSource getSource(
-      final XMLReader parser, final InputSource input, final String systemId) {
-    final SAXSource source = new SAXSource();
-
-    if (input != null) {
-      source.setInputSource(input);
-    }
-
-    if (systemId != null) {
-      source.setSystemId(systemId);
-    } else {
-      Optional.ofNullable(input).map(InputSource::getSystemId).ifPresent(source::setSystemId);
+  /** An error of the parser thread is thrown as such, so it isn't mistaken for a parse error. */
+  private XMLStreamException fail() {
+    if (error instanceof Error e) {
+      throw e;
     }
 
-    source.setXMLReader(parser);
-
-    return source;
-  }
-
-  private static XMLInputFactory withResolver(final EntityResolver resolver) {
-    final XMLInputFactory factory = Util.newInputFactory(false, true);
-
-    factory.setXMLResolver(new EntityResolverWrapper(resolver));
-
-    return factory;
+    return error instanceof XMLStreamException s ? s : new XMLStreamException(error);
   }
 
   public void close() throws XMLStreamException {
     if (!closed) {
-      reader.close();
       closed = true;
+      batch = null;
+
+      if (cleanable != null) {
+        cleanable.clean();
+      }
     }
   }
 
   public String getElementText() throws XMLStreamException {
-    return reader.getElementText();
+    return Util.getElementText(this, currentEvent, new HashMap<>());
   }
 
   public Object getProperty(final String name) {
-    return reader.getProperty(name);
+    return null;
   }
 
   public boolean hasNext() {
     initialize();
 
-    return reader.hasNext();
+    return !closed && ((batch != null && position < batch.size()) || nextBatch());
   }
 
   /** Should be called lazily because the parser may be modified before parsing begins. */
   private void initialize() {
     if (!initialized) {
-      tryToDoRethrow(
-          () -> {
-            reader =
-                input != null || systemId != null
-                    ? getReader(parser, input, systemId)
-                    : new DevNullEventReader();
-            initialized = true;
-          });
+      initialized = true;
+
+      if (input != null || systemId != null) {
+        producer = new Producer(parser, input, systemId);
+        cleanable = CLEANER.register(this, producer::stop);
+        producer.start();
+      } else {
+        ended = true;
+      }
     }
   }
 
@@ -146,28 +123,209 @@ public class XMLReaderEventReader implements XMLEventReader {
     return tryToGetRethrow(this::nextEvent).orElse(null);
   }
 
+  private boolean nextBatch() {
+    recycle();
+
+    while (!ended && error == null) {
+      final Batch next = take();
+
+      ended = next.last;
+      error = next.error;
+
+      if (next.events != null && !next.events.isEmpty()) {
+        batch = next.events;
+        position = 0;
+
+        return true;
+      }
+    }
+
+    return error != null;
+  }
+
   public XMLEvent nextEvent() throws XMLStreamException {
     if (!hasNext()) {
       throw new NoSuchElementException();
     }
 
-    return reader.nextEvent();
+    if (batch == null) {
+      throw fail();
+    }
+
+    currentEvent = batch.get(position++);
+
+    return currentEvent;
   }
 
   public XMLEvent nextTag() throws XMLStreamException {
-    initialize();
-
-    return reader.nextTag();
+    return Util.nextTag(this);
   }
 
   public XMLEvent peek() throws XMLStreamException {
-    initialize();
+    if (!hasNext()) {
+      return null;
+    }
+
+    if (batch == null) {
+      throw fail();
+    }
+
+    return batch.get(position);
+  }
 
-    return reader.peek();
+  private void recycle() {
+    if (batch != null) {
+      batch.clear();
+      producer.free.offer(batch);
+      batch = null;
+    }
   }
 
   @Override
   public void remove() {
     throw new UnsupportedOperationException();
   }
+
+  private Batch take() {
+    try {
+      return producer.queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+
+      return new Batch(null, e, true);
+    }
+  }
+
+  private record Batch(List<XMLEvent> events, Throwable error, boolean last) {}
+
+  /**
+   * Runs the parser. It doesn't refer to the reader, so that an abandoned reader can be collected
+   * and its cleaner can stop the parser.
+   */
+  private static class Producer implements Runnable {
+    private final BlockingQueue<List<XMLEvent>> free = new ArrayBlockingQueue<>(QUEUE_SIZE + 2);
+    private final InputSource input;
+    private final XMLReader parser;
+    private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private final String systemId;
+    private final Thread thread;
+    private volatile boolean stopped;
+
+    private Producer(final XMLReader parser, final InputSource input, final String systemId) {
+      this.parser = parser;
+      this.input = input;
+      this.systemId = systemId;
+      thread = new Thread(this, "XMLReaderEventReader");
+      thread.setDaemon(true);
+    }
+
+    private boolean put(final Batch batch) {
+      if (stopped) {
+        return false;
+      }
+
+      try {
+        queue.put(batch);
+
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+
+        return false;
+      }
+    }
+
+    public void run() {
+      final BatchWriter writer = new BatchWriter();
+
+      try {
+        parser.setContentHandler(new EventWriterContentHandler(writer));
+        setLexicalHandler(writer);
+
+        if (input != null) {
+          parser.parse(input);
+        } else {
+          parser.parse(systemId);
+        }
+
+        put(new Batch(writer.events, null, true));
+      } catch (Throwable e) {
+        // Also errors, because the reader would otherwise wait forever for the last batch.
+        put(new Batch(writer.events, e, true));
+      }
+    }
+
+    private void setLexicalHandler(final LexicalHandler handler) {
+      try {
+        parser.setProperty(LEXICAL_HANDLER, handler);
+      } catch (SAXException e) {
+        // Comments are not reported then.
+      }
+    }
+
+    private void start() {
+      thread.start();
+    }
+
+    private void stop() {
+      stopped = true;
+      thread.interrupt();
+      queue.clear();
+    }
+
+    private class BatchWriter extends DevNullEventWriter implements LexicalHandler {
+      private List<XMLEvent> events = newBatch();
+
+      @Override
+      public void add(final XMLEvent event) throws XMLStreamException {
+        if (stopped) {
+          throw new XMLStreamException(CLOSED);
+        }
+
+        events.add(event);
+
+        if (events.size() == BATCH_SIZE) {
+          if (!put(new Batch(events, null, false))) {
+            throw new XMLStreamException(CLOSED);
+          }
+
+          events = newBatch();
+        }
+      }
+
+      public void comment(final char[] ch, final int start, final int length) {
+        tryToDoRethrow(() -> add(eventFactory().createComment(new String(ch, start, length))));
+      }
+
+      public void endCDATA() {
+        // Nothing to do.
+      }
+
+      public void endDTD() {
+        // Nothing to do.
+      }
+
+      public void endEntity(final String name) {
+        // Nothing to do.
+      }
+
+      private List<XMLEvent> newBatch() {
+        final List<XMLEvent> list = free.poll();
+
+        return list != null ? list : new ArrayList<>(BATCH_SIZE);
+      }
+
+      public void startCDATA() {
+        // Nothing to do.
+      }
+
+      public void startDTD(final String name, final String publicId, final String systemId) {
+        // Nothing to do.
+      }
+
+      public void startEntity(final String name) {
+        // Nothing to do.
+      }
+    }
+  }
 }
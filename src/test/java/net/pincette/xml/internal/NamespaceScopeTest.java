@@ -0,0 +1,93 @@
+package net.pincette.xml.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class NamespaceScopeTest {
+  private static List<String> prefixes(final NamespaceScope scope, final String namespaceURI) {
+    final List<String> result = new ArrayList<>();
+
+    scope.getPrefixes(namespaceURI).forEachRemaining(result::add);
+
+    return result;
+  }
+
+  @Test
+  void declares() {
+    final NamespaceScope scope = new NamespaceScope();
+
+    scope.push();
+    scope.declare("a", "urn:a");
+    assertTrue(scope.declares("a"));
+    scope.push();
+    assertFalse(scope.declares("a"));
+    assertEquals("urn:a", scope.getNamespaceURI("a"));
+    assertEquals(1, scope.getScopeStart());
+    assertEquals(1, scope.getDeclarationCount());
+  }
+
+  @Test
+  void defaultNamespaceUndeclared() {
+    final NamespaceScope scope = new NamespaceScope();
+
+    scope.push();
+    scope.declare(null, "urn:d");
+    assertEquals("urn:d", scope.getNamespaceURI(""));
+    assertEquals("", scope.getPrefix("urn:d"));
+    scope.push();
+    scope.declare("", "");
+    assertEquals("", scope.getNamespaceURI(null));
+    assertNull(scope.getPrefix("urn:d"));
+    scope.pop();
+    assertEquals("urn:d", scope.getNamespaceURI(""));
+    assertEquals("", scope.getPrefix("urn:d"));
+  }
+
+  @Test
+  void popRestores() {
+    final NamespaceScope scope = new NamespaceScope();
+
+    scope.push();
+    scope.declare("a", "urn:a");
+    scope.push();
+    scope.declare("a", "urn:b");
+    scope.declare("b", "urn:a");
+    assertEquals(2, scope.getDepth());
+    scope.pop();
+    assertEquals(1, scope.getDepth());
+    assertEquals(1, scope.getDeclarationCount());
+    assertEquals("urn:a", scope.getNamespaceURI("a"));
+    assertNull(scope.getNamespaceURI("b"));
+    assertNull(scope.getPrefix("urn:b"));
+    assertEquals(List.of("a"), prefixes(scope, "urn:a"));
+    scope.pop();
+    assertNull(scope.getNamespaceURI("a"));
+    assertThrows(IllegalStateException.class, scope::pop);
+  }
+
+  @Test
+  void shadowedPrefix() {
+    final NamespaceScope scope = new NamespaceScope();
+
+    scope.push();
+    scope.declare("a", "urn:a");
+    scope.declare("b", "urn:a");
+    scope.push();
+    scope.declare("b", "urn:b");
+    assertEquals("urn:b", scope.getNamespaceURI("b"));
+    assertEquals("a", scope.getPrefix("urn:a"));
+    assertEquals(List.of("a"), prefixes(scope, "urn:a"));
+    assertEquals(List.of("b"), prefixes(scope, "urn:b"));
+    scope.push();
+    scope.declare("a", "urn:c");
+    assertNull(scope.getPrefix("urn:a"));
+    assertEquals(List.of(), prefixes(scope, "urn:a"));
+  }
+}
@@ -0,0 +1,231 @@
+package net.pincette.xml.sax;
+
+import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+import javax.xml.parsers.SAXParserFactory;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+class AsyncTeeTest {
+  private static final String XML = "<r>" + "<a x='1'>text</a><b/>".repeat(5000) + "</r>";
+
+  private static InputSource input() {
+    return new InputSource(new StringReader(XML));
+  }
+
+  private static XMLReader parser() throws Exception {
+    final SAXParserFactory factory = SAXParserFactory.newInstance();
+
+    factory.setNamespaceAware(true);
+
+    return factory.newSAXParser().getXMLReader();
+  }
+
+  @Test
+  void abandonedDocument() throws Exception {
+    final Blocking blocking = new Blocking();
+    final AsyncTee tee = new AsyncTee(new ContentHandler[] {blocking});
+
+    tee.setContentHandler(new DefaultHandler());
+    tee.startDocument();
+
+    for (int i = 0; i < 1000; ++i) {
+      tee.startElement("", "a", "a", new AttributesImpl());
+    }
+
+    assertTrue(blocking.entered.await(10, SECONDS));
+    tee.reset();
+    assertTrue(blocking.interrupted.await(10, SECONDS));
+  }
+
+  @Test
+  void block() throws Exception {
+    final Recorder main = new Recorder();
+    final Recorder fast = new Recorder();
+    final Recorder slow = new Slow();
+    final AsyncTee tee =
+        new AsyncTee(new ContentHandler[] {fast, slow}, AsyncTee.Backpressure.BLOCK, parser());
+
+    tee.setContentHandler(main);
+
+    for (int i = 0; i < 2; ++i) {
+      tee.parse(input());
+      assertEquals(main.text(), fast.text());
+      assertEquals(main.text(), slow.text());
+      assertEquals(0, tee.getDropped()[1]);
+    }
+  }
+
+  @Test
+  void drop() throws Exception {
+    final Blocking blocking = new Blocking();
+    final AsyncTee tee =
+        new AsyncTee(new ContentHandler[] {blocking}, AsyncTee.Backpressure.DROP, parser());
+
+    // The blocked tube is let go when the parser is done, so the parser itself never waited.
+    tee.setContentHandler(
+        new DefaultHandler() {
+          @Override
+          public void endDocument() {
+            blocking.release.countDown();
+          }
+        });
+    assertTimeoutPreemptively(ofSeconds(10), () -> tee.parse(input()));
+    assertTrue(tee.getDropped()[0] > 0);
+    assertEquals(0, blocking.ended);
+  }
+
+  @Test
+  void failingTube() throws Exception {
+    final Recorder main = new Recorder();
+    final Recorder other = new Recorder();
+    final AsyncTee tee =
+        new AsyncTee(
+            new ContentHandler[] {new Failing(new SAXException("fail")), other},
+            AsyncTee.Backpressure.BLOCK,
+            parser());
+
+    tee.setContentHandler(main);
+
+    final SAXException exception = assertThrows(SAXException.class, () -> tee.parse(input()));
+
+    assertEquals("fail", exception.getMessage());
+    assertEquals(main.text(), other.text());
+  }
+
+  @Test
+  void tubeError() throws Exception {
+    final StackOverflowError error = new StackOverflowError();
+    final AsyncTee tee =
+        new AsyncTee(
+            new ContentHandler[] {new Failing(error)}, AsyncTee.Backpressure.BLOCK, parser());
+
+    tee.setContentHandler(new DefaultHandler());
+    assertTimeoutPreemptively(
+        ofSeconds(10),
+        () -> assertSame(error, assertThrows(StackOverflowError.class, () -> tee.parse(input()))));
+  }
+
+  /** Blocks in the first element until it is released or interrupted. */
+  private static class Blocking extends DefaultHandler {
+    private final CountDownLatch entered = new CountDownLatch(1);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile int ended;
+
+    @Override
+    public void endDocument() {
+      ++ended;
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts) {
+      entered.countDown();
+
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static class Failing extends DefaultHandler {
+    private final Throwable failure;
+    private int count;
+
+    private Failing(final Throwable failure) {
+      this.failure = failure;
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts)
+        throws SAXException {
+      if (++count == 10) {
+        if (failure instanceof Error e) {
+          throw e;
+        }
+
+        throw (SAXException) failure;
+      }
+    }
+  }
+
+  private static class Recorder extends DefaultHandler {
+    private final StringBuilder builder = new StringBuilder();
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+      builder.append(ch, start, length);
+    }
+
+    @Override
+    public void endElement(final String namespaceURI, final String localName, final String qName) {
+      builder.append("</").append(qName).append('>');
+    }
+
+    @Override
+    public void startDocument() {
+      builder.setLength(0);
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts) {
+      builder.append('<').append(qName);
+
+      for (int i = 0; i < atts.getLength(); ++i) {
+        builder.append(' ').append(atts.getQName(i)).append('=').append(atts.getValue(i));
+      }
+
+      builder.append('>');
+    }
+
+    private String text() {
+      return builder.toString();
+    }
+  }
+
+  private static class Slow extends Recorder {
+    private int count;
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts) {
+      if (++count % 1000 == 0) {
+        Thread.yield();
+      }
+
+      super.startElement(namespaceURI, localName, qName, atts);
+    }
+  }
+}
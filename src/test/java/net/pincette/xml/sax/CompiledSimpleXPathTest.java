@@ -0,0 +1,89 @@
+package net.pincette.xml.sax;
+
+import static java.util.Arrays.stream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.Map;
+import javax.xml.parsers.DocumentBuilderFactory;
+import net.pincette.xml.sax.SimpleXPath.PathElement;
+import org.junit.jupiter.api.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.InputSource;
+
+class CompiledSimpleXPathTest {
+  private static final Map<String, String> NAMESPACES = Map.of("q", "urn:q");
+  private static final String XML =
+      "<r xmlns:p='urn:q'><a>1</a><p:a>2</p:a><a>3<b>4</b><b>5</b></a><c><a>6</a></c></r>";
+
+  private static Document document() throws Exception {
+    final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+
+    factory.setNamespaceAware(true);
+
+    return factory.newDocumentBuilder().parse(new InputSource(new StringReader(XML)));
+  }
+
+  private static String[] evaluate(final String expression, final Element context) {
+    return stream(CompiledSimpleXPath.compile(expression, NAMESPACES).evaluate(context))
+        .map(Element::getTextContent)
+        .toArray(String[]::new);
+  }
+
+  @Test
+  void absolutePathIsAnchoredAtTheDocumentElement() throws Exception {
+    final Element r = document().getDocumentElement();
+    final Element c = (Element) r.getElementsByTagName("c").item(0);
+
+    assertArrayEquals(new String[] {"1", "345"}, evaluate("/r/a", c));
+    assertArrayEquals(new String[] {"6"}, evaluate("a", c));
+    assertArrayEquals(new String[] {}, evaluate("/a", r));
+    assertArrayEquals(new String[] {}, evaluate("/c/a", r));
+  }
+
+  @Test
+  void cache() {
+    final CompiledSimpleXPath path = CompiledSimpleXPath.compile("/r/a[2]", NAMESPACES);
+
+    assertSame(path, CompiledSimpleXPath.compile("/r/a[2]", Map.of("q", "urn:q")));
+    assertNotSame(path, CompiledSimpleXPath.compile("/r/a[2]", Map.of("q", "urn:other")));
+  }
+
+  @Test
+  void namespaces() throws Exception {
+    final Element r = document().getDocumentElement();
+
+    assertArrayEquals(new String[] {"2"}, evaluate("q:a", r));
+    assertArrayEquals(new String[] {"2"}, evaluate("q:*", r));
+    assertArrayEquals(new String[] {"1", "345"}, evaluate("a", r));
+    assertArrayEquals(new String[] {"6"}, evaluate("*/a", r));
+  }
+
+  @Test
+  void path() {
+    final CompiledSimpleXPath path = CompiledSimpleXPath.compile("q:a/b[2]", NAMESPACES);
+
+    assertTrue(path.isRelative());
+    assertFalse(CompiledSimpleXPath.compile("/r", null).isRelative());
+    assertArrayEquals(
+        new PathElement[] {new PathElement("urn:q", "a", -1), new PathElement(null, "b", 2)},
+        path.getPath());
+    assertArrayEquals(path.getPath(), new CompiledSimpleXPath(path.getPath(), true).getPath());
+  }
+
+  @Test
+  void positionsStartAtOne() throws Exception {
+    final Element r = document().getDocumentElement();
+
+    assertArrayEquals(new String[] {"1"}, evaluate("a[1]", r));
+    assertArrayEquals(new String[] {"345"}, evaluate("a[2]", r));
+    assertArrayEquals(new String[] {}, evaluate("a[3]", r));
+    assertArrayEquals(new String[] {"5"}, evaluate("/r/a[2]/b[2]", r));
+    assertArrayEquals(new String[] {"4", "5"}, evaluate("a/b", r));
+  }
+}
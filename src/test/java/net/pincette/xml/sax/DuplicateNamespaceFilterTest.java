@@ -0,0 +1,101 @@
+package net.pincette.xml.sax;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.SAXParserFactory;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.helpers.DefaultHandler;
+
+class DuplicateNamespaceFilterTest {
+  private static List<String> run(final String xml) throws Exception {
+    final SAXParserFactory factory = SAXParserFactory.newInstance();
+    final Recorder recorder = new Recorder();
+
+    factory.setNamespaceAware(true);
+
+    final DuplicateNamespaceFilter filter =
+        new DuplicateNamespaceFilter(factory.newSAXParser().getXMLReader());
+
+    filter.setContentHandler(recorder);
+    filter.parse(new InputSource(new StringReader(xml)));
+
+    return recorder.events;
+  }
+
+  @Test
+  void defaultNamespace() throws Exception {
+    assertEquals(
+        List.of("+=urn:d", "<r>", "<c>", "</c>", "+=", "<e>", "</e>", "-", "</r>", "-"),
+        run("<r xmlns='urn:d'><c xmlns='urn:d'/><e xmlns=''/></r>"));
+  }
+
+  @Test
+  void differentURI() throws Exception {
+    assertEquals(
+        List.of("+a=urn:a", "<r>", "+a=urn:b", "<c>", "</c>", "-a", "</r>", "-a"),
+        run("<r xmlns:a='urn:a'><c xmlns:a='urn:b'/></r>"));
+  }
+
+  @Test
+  void sameURI() throws Exception {
+    assertEquals(
+        List.of("+a=urn:a", "<r>", "<c>", "<e>", "</e>", "</c>", "</r>", "-a"),
+        run("<r xmlns:a='urn:a'><c xmlns:a='urn:a'><e xmlns:a='urn:a'/></c></r>"));
+  }
+
+  @Test
+  void sameURIAfterRedeclaration() throws Exception {
+    assertEquals(
+        List.of(
+            "+a=urn:a",
+            "<r>",
+            "+a=urn:b",
+            "<c>",
+            "+a=urn:a",
+            "<e>",
+            "</e>",
+            "-a",
+            "</c>",
+            "-a",
+            "<f>",
+            "</f>",
+            "</r>",
+            "-a"),
+        run(
+            "<r xmlns:a='urn:a'><c xmlns:a='urn:b'><e xmlns:a='urn:a'/></c>"
+                + "<f xmlns:a='urn:a'/></r>"));
+  }
+
+  private static class Recorder extends DefaultHandler {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void endElement(final String namespaceURI, final String localName, final String qName) {
+      events.add("</" + localName + ">");
+    }
+
+    @Override
+    public void endPrefixMapping(final String prefix) {
+      events.add("-" + prefix);
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts) {
+      events.add("<" + localName + ">");
+    }
+
+    @Override
+    public void startPrefixMapping(final String prefix, final String uri) {
+      events.add("+" + prefix + "=" + uri);
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package net.pincette.xml.sax;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.DefaultHandler;
+
+class EventBatchTest {
+  private static List<String> replay(final EventBatch batch) throws Exception {
+    final Recorder recorder = new Recorder();
+
+    batch.replay(() -> recorder);
+
+    return recorder.events;
+  }
+
+  @Test
+  void clear() throws Exception {
+    final EventBatch batch = new EventBatch(4);
+
+    batch.startElement("", "a", "a", attributes("x", "1"));
+    batch.characters("text".toCharArray(), 0, 4);
+    batch.clear();
+    assertTrue(batch.isEmpty());
+    batch.startElement("", "b", "b", new AttributesImpl());
+    assertEquals(List.of("<b>"), replay(batch));
+  }
+
+  @Test
+  void copies() throws Exception {
+    final EventBatch batch = new EventBatch(8);
+    final char[] text = "abcdef".toCharArray();
+    final AttributesImpl atts = attributes("x", "1");
+
+    batch.startDocument();
+    batch.startPrefixMapping("p", "urn:p");
+    batch.startElement("urn:p", "a", "p:a", atts);
+    batch.characters(text, 1, 3);
+    text[2] = 'X';
+    atts.clear();
+    batch.endElement("urn:p", "a", "p:a");
+    batch.endPrefixMapping("p");
+    batch.endDocument();
+
+    assertEquals(
+        List.of("start", "+p=urn:p", "<p:a x=1>", "bcd", "</p:a>", "-p", "end"),
+        replay(batch));
+  }
+
+  @Test
+  void full() {
+    final EventBatch batch = new EventBatch(2);
+    final char[] text = new char[200];
+
+    batch.characters(text, 0, text.length);
+    assertTrue(batch.isFull());
+    batch.clear();
+    batch.endDocument();
+    assertFalse(batch.isFull());
+    batch.endDocument();
+    assertTrue(batch.isFull());
+  }
+
+  @Test
+  void missingHandler() throws Exception {
+    final EventBatch batch = new EventBatch(2);
+
+    batch.startDocument();
+    batch.endDocument();
+    batch.replay(() -> null);
+    assertEquals(2, batch.size());
+  }
+
+  @Test
+  void share() {
+    final EventBatch batch = new EventBatch(2);
+
+    batch.share(2);
+    assertFalse(batch.release());
+    assertTrue(batch.release());
+  }
+
+  private static AttributesImpl attributes(final String name, final String value) {
+    final AttributesImpl result = new AttributesImpl();
+
+    result.addAttribute("", name, name, "CDATA", value);
+
+    return result;
+  }
+
+  private static class Recorder extends DefaultHandler {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+      events.add(new String(ch, start, length));
+    }
+
+    @Override
+    public void endDocument() {
+      events.add("end");
+    }
+
+    @Override
+    public void endElement(final String namespaceURI, final String localName, final String qName) {
+      events.add("</" + qName + ">");
+    }
+
+    @Override
+    public void endPrefixMapping(final String prefix) {
+      events.add("-" + prefix);
+    }
+
+    @Override
+    public void startDocument() {
+      events.add("start");
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts) {
+      final StringBuilder builder = new StringBuilder("<" + qName);
+
+      for (int i = 0; i < atts.getLength(); ++i) {
+        builder.append(' ').append(atts.getQName(i)).append('=').append(atts.getValue(i));
+      }
+
+      events.add(builder.append('>').toString());
+    }
+
+    @Override
+    public void startPrefixMapping(final String prefix, final String uri) {
+      events.add("+" + prefix + "=" + uri);
+    }
+  }
+}
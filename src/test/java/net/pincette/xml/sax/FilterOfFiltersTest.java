@@ -0,0 +1,172 @@
+package net.pincette.xml.sax;
+
+import static java.util.Collections.unmodifiableSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.parsers.SAXParserFactory;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLFilter;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+class FilterOfFiltersTest {
+  private static final String XML = "<r><a>x</a><c>y</c></r>";
+
+  private static XMLReader parser() throws Exception {
+    final SAXParserFactory factory = SAXParserFactory.newInstance();
+
+    factory.setNamespaceAware(true);
+
+    return factory.newSAXParser().getXMLReader();
+  }
+
+  private static List<String> run(final FilterOfFilters chain) throws Exception {
+    final Recorder recorder = new Recorder();
+
+    chain.setContentHandler(recorder);
+    chain.parse(new InputSource(new StringReader(XML)));
+
+    return recorder.events;
+  }
+
+  @Test
+  void chainWithPlainStage() throws Exception {
+    final Upper upper = new Upper();
+    final XMLFilterImpl plain = new XMLFilterImpl();
+    final Rename rename = new Rename();
+    final FilterOfFilters chain =
+        new FilterOfFilters(new XMLFilter[] {upper, plain, rename}, parser());
+
+    assertSame(upper, plain.getParent());
+    assertEquals(
+        List.of("<r>", "<b>", "X", "</b>", "<c>", "Y", "</c>", "</r>"), run(chain));
+    assertEquals(0, rename.characters);
+  }
+
+  @Test
+  void firstSelectiveStage() throws Exception {
+    final XMLReader parser = parser();
+    final Rename rename = new Rename();
+    final FilterOfFilters chain =
+        new FilterOfFilters(new XMLFilter[] {rename, new Upper()}, parser);
+
+    assertSame(parser, chain.getParent());
+    assertEquals(
+        List.of("<r>", "<b>", "X", "</b>", "<c>", "Y", "</c>", "</r>"), run(chain));
+    assertEquals(
+        List.of("<r>", "<b>", "X", "</b>", "<c>", "Y", "</c>", "</r>"), run(chain));
+    assertEquals(0, rename.characters);
+  }
+
+  @Test
+  void selectiveStageIsBypassedForCharacters() throws Exception {
+    final Rename rename = new Rename();
+    final FilterOfFilters chain =
+        new FilterOfFilters(new XMLFilter[] {new Upper(), rename}, parser());
+
+    assertEquals(
+        List.of("<r>", "<b>", "X", "</b>", "<c>", "Y", "</c>", "</r>"), run(chain));
+    assertEquals(0, rename.characters);
+  }
+
+  @Test
+  void selectiveStageBetweenStages() throws Exception {
+    final Rename rename = new Rename();
+    final Recorder middle = new Recorder();
+    final FilterOfFilters chain =
+        new FilterOfFilters(
+            new XMLFilter[] {new Upper(), rename, new Tee(new DefaultHandler[] {middle})},
+            parser());
+
+    assertEquals(
+        List.of("<r>", "<b>", "X", "</b>", "<c>", "Y", "</c>", "</r>"), run(chain));
+    assertEquals(
+        List.of("<r>", "<b>", "X", "</b>", "<c>", "Y", "</c>", "</r>"), middle.events);
+    assertEquals(0, rename.characters);
+  }
+
+  /** Renames the elements <code>a</code> to <code>b</code>. */
+  private static class Rename extends XMLFilterImpl implements SelectiveFilter {
+    private static final Set<Callback> CALLBACKS =
+        unmodifiableSet(EnumSet.of(Callback.END_ELEMENT, Callback.START_ELEMENT));
+
+    private int characters;
+
+    private static String rename(final String name) {
+      return "a".equals(name) ? "b" : name;
+    }
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length)
+        throws SAXException {
+      ++characters;
+      super.characters(ch, start, length);
+    }
+
+    @Override
+    public void endElement(final String namespaceURI, final String localName, final String qName)
+        throws SAXException {
+      super.endElement(namespaceURI, rename(localName), rename(qName));
+    }
+
+    public Set<Callback> getCallbacks() {
+      return CALLBACKS;
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts)
+        throws SAXException {
+      super.startElement(namespaceURI, rename(localName), rename(qName), atts);
+    }
+  }
+
+  private static class Recorder extends DefaultHandler {
+    private final List<String> events = new ArrayList<>();
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+      events.add(new String(ch, start, length));
+    }
+
+    @Override
+    public void endElement(final String namespaceURI, final String localName, final String qName) {
+      events.add("</" + localName + ">");
+    }
+
+    @Override
+    public void startDocument() {
+      events.clear();
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts) {
+      events.add("<" + localName + ">");
+    }
+  }
+
+  private static class Upper extends XMLFilterImpl {
+    @Override
+    public void characters(final char[] ch, final int start, final int length)
+        throws SAXException {
+      super.characters(new String(ch, start, length).toUpperCase().toCharArray(), 0, length);
+    }
+  }
+}
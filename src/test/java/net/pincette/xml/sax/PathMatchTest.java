@@ -0,0 +1,102 @@
+package net.pincette.xml.sax;
+
+import static java.util.Arrays.stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javax.xml.namespace.QName;
+import org.junit.jupiter.api.Test;
+
+class PathMatchTest {
+  private static QName[] path(final String... names) {
+    return stream(names).map(QName::new).toArray(QName[]::new);
+  }
+
+  private static int push(final PathMatch match, final String... names) {
+    for (final String name : names) {
+      match.push(null, name);
+    }
+
+    return match.matchIndex();
+  }
+
+  @Test
+  void absolutePathIsAnchoredAtTheDocumentElement() {
+    final PathMatch match = new PathMatch(new QName[][] {path("r", "a")}, true);
+
+    assertEquals(0, push(match, "r", "a"));
+    assertEquals(-1, push(match, "a"));
+    match.reset();
+    assertEquals(-1, push(match, "x", "r", "a"));
+    match.reset();
+    assertEquals(-1, push(match, "r", "x", "a"));
+  }
+
+  @Test
+  void firstGivenPathWins() {
+    final PathMatch match =
+        new PathMatch(new QName[][] {path("b", "c"), path("a", "b", "c")}, false);
+
+    assertEquals(0, push(match, "a", "b", "c"));
+  }
+
+  @Test
+  void namespaces() {
+    final PathMatch match = new PathMatch(new QName[][] {{new QName("urn:n", "a")}}, false);
+
+    match.push("urn:n", "a");
+    assertTrue(match.match());
+    match.push(new QName("a"));
+    assertFalse(match.match());
+    match.push(null, "b");
+    assertFalse(match.match());
+  }
+
+  @Test
+  void overlappingRelativePaths() {
+    final PathMatch match = new PathMatch(new QName[][] {path("a", "a", "b")}, false);
+
+    assertEquals(-1, push(match, "a", "a", "a"));
+    assertEquals(0, push(match, "b"));
+    match.pop();
+    match.pop();
+    match.pop();
+    assertEquals(-1, push(match, "b"));
+    match.reset();
+    assertEquals(0, push(match, "x", "a", "a", "b"));
+  }
+
+  @Test
+  void popRestoresTheState() {
+    final PathMatch match = new PathMatch(new QName[][] {path("a", "b")}, false);
+
+    assertEquals(0, push(match, "a", "b"));
+    match.pop();
+    assertEquals(-1, push(match, "c"));
+    match.pop();
+    assertEquals(0, push(match, "b"));
+  }
+
+  @Test
+  void shorterRelativePathMatches() {
+    final PathMatch match =
+        new PathMatch(new QName[][] {path("x", "y", "z"), path("y", "z")}, false);
+
+    assertEquals(0, push(match, "x", "y", "z"));
+    match.reset();
+    assertEquals(1, push(match, "w", "y", "z"));
+    match.reset();
+    assertEquals(1, push(match, "x", "x", "y", "z", "y", "z"));
+    match.reset();
+    assertEquals(-1, push(match, "x", "y", "z", "q"));
+  }
+
+  @Test
+  void unknownNamesRestartRelativePaths() {
+    final PathMatch match = new PathMatch(new QName[][] {path("a", "b")}, false);
+
+    assertEquals(-1, push(match, "a", "unknown", "b"));
+    assertEquals(0, push(match, "a", "b"));
+  }
+}
@@ -0,0 +1,163 @@
+package net.pincette.xml.sax;
+
+import static java.time.Duration.ofSeconds;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.StringReader;
+import java.util.concurrent.CountDownLatch;
+import javax.xml.parsers.SAXParserFactory;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+class PipeTest {
+  private static final String XML = "<r>" + "<a x='1'>text</a><b/>".repeat(5000) + "</r>";
+
+  private static InputSource input(final String xml) {
+    return new InputSource(new StringReader(xml));
+  }
+
+  private static XMLReader parser() throws Exception {
+    final SAXParserFactory factory = SAXParserFactory.newInstance();
+
+    factory.setNamespaceAware(true);
+
+    return factory.newSAXParser().getXMLReader();
+  }
+
+  @Test
+  void failedParse() throws Exception {
+    final Blocking blocking = new Blocking();
+    final Pipe pipe = new Pipe(parser());
+
+    pipe.setContentHandler(blocking);
+    // The document fits in the queue, so the parser reaches the error while the handler blocks.
+    assertThrows(SAXParseException.class, () -> pipe.parse(input("<r>" + "<a/>".repeat(1000))));
+    assertTrue(blocking.interrupted.await(10, SECONDS));
+  }
+
+  @Test
+  void handlerError() throws Exception {
+    final Pipe pipe = new Pipe(parser());
+
+    pipe.setContentHandler(
+        new DefaultHandler() {
+          @Override
+          public void startElement(
+              final String namespaceURI,
+              final String localName,
+              final String qName,
+              final Attributes atts) {
+            throw new StackOverflowError();
+          }
+        });
+    assertTimeoutPreemptively(
+        ofSeconds(10), () -> assertThrows(StackOverflowError.class, () -> pipe.parse(input(XML))));
+  }
+
+  @Test
+  void handlerException() throws Exception {
+    final Pipe pipe = new Pipe(parser());
+
+    pipe.setContentHandler(
+        new DefaultHandler() {
+          @Override
+          public void startElement(
+              final String namespaceURI,
+              final String localName,
+              final String qName,
+              final Attributes atts)
+              throws SAXException {
+            throw new SAXException("fail");
+          }
+        });
+    assertEquals(
+        "fail", assertThrows(SAXException.class, () -> pipe.parse(input(XML))).getMessage());
+  }
+
+  @Test
+  void otherThread() throws Exception {
+    final Recorder expected = new Recorder();
+    final Recorder recorder = new Recorder();
+    final XMLReader parser = parser();
+    final Pipe pipe = new Pipe(parser);
+
+    parser.setContentHandler(expected);
+    parser.parse(input(XML));
+    pipe.setContentHandler(recorder);
+
+    for (int i = 0; i < 2; ++i) {
+      pipe.parse(input(XML));
+      assertEquals(expected.text(), recorder.text());
+      assertNotSame(Thread.currentThread(), recorder.thread);
+    }
+  }
+
+  /** Blocks in the first element until it is interrupted. */
+  private static class Blocking extends DefaultHandler {
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts) {
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static class Recorder extends DefaultHandler {
+    private final StringBuilder builder = new StringBuilder();
+    private volatile Thread thread;
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+      builder.append(ch, start, length);
+    }
+
+    @Override
+    public void endElement(final String namespaceURI, final String localName, final String qName) {
+      builder.append("</").append(qName).append('>');
+    }
+
+    @Override
+    public void startDocument() {
+      builder.setLength(0);
+      thread = Thread.currentThread();
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts) {
+      builder.append('<').append(qName);
+
+      for (int i = 0; i < atts.getLength(); ++i) {
+        builder.append(' ').append(atts.getQName(i)).append('=').append(atts.getValue(i));
+      }
+
+      builder.append('>');
+    }
+
+    private String text() {
+      return builder.toString();
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package net.pincette.xml.sax;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.XMLFilter;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+class PipelinePoolTest {
+  private static PipelinePool pool(final XMLFilter stage) {
+    return new PipelinePool(new PipelineTemplate(List.of(() -> stage)), 1, 1);
+  }
+
+  @Test
+  void doubleRelease() throws Exception {
+    final PipelinePool pool = pool(new Stage(false));
+    final FilterOfFilters chain = pool.take();
+
+    pool.release(chain);
+    assertThrows(IllegalArgumentException.class, () -> pool.release(chain));
+    assertSame(chain, pool.take());
+  }
+
+  @Test
+  void failingReset() throws Exception {
+    final PipelinePool pool = pool(new Stage(true));
+    final FilterOfFilters chain = pool.take();
+
+    assertThrows(IllegalStateException.class, () -> pool.release(chain));
+    assertNotSame(chain, assertTimeoutPreemptively(Duration.ofSeconds(5), pool::take));
+  }
+
+  @Test
+  void otherChain() throws Exception {
+    final PipelinePool pool = pool(new Stage(false));
+
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> pool.release(new FilterOfFilters(new XMLFilter[] {new Stage(false)})));
+  }
+
+  private static class Stage extends XMLFilterImpl implements Resettable {
+    private final boolean fail;
+
+    private Stage(final boolean fail) {
+      this.fail = fail;
+    }
+
+    public void reset() {
+      if (fail) {
+        throw new IllegalStateException("reset");
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+package net.pincette.xml.stream;
+
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import org.junit.jupiter.api.Test;
+
+class EventStreamReaderTest {
+  private static EventStreamReader next(final EventStreamReader reader, final int type)
+      throws XMLStreamException {
+    while (reader.next() != type) {
+      // Skip.
+    }
+
+    return reader;
+  }
+
+  private static EventStreamReader reader(final String xml) throws XMLStreamException {
+    return new EventStreamReader(
+        XMLInputFactory.newFactory().createXMLEventReader(new StringReader(xml)));
+  }
+
+  @Test
+  void attributesAndNamespacesOfStartElement() throws XMLStreamException {
+    final EventStreamReader reader =
+        next(reader("<r xmlns='urn:d' xmlns:p='urn:p' p:a='1' b='2'/>"), START_ELEMENT);
+
+    assertEquals("urn:d", reader.getNamespaceURI());
+    assertEquals(2, reader.getNamespaceCount());
+    assertNull(reader.getNamespacePrefix(0));
+    assertEquals("urn:d", reader.getNamespaceURI(0));
+    assertEquals("p", reader.getNamespacePrefix(1));
+    assertEquals("urn:p", reader.getNamespaceURI(1));
+    assertEquals(2, reader.getAttributeCount());
+    assertEquals("1", reader.getAttributeValue("urn:p", "a"));
+    assertEquals("2", reader.getAttributeValue(null, "b"));
+    assertNull(reader.getAttributeValue(null, "a"));
+  }
+
+  @Test
+  void attributesOnlyOnStartElement() throws XMLStreamException {
+    final EventStreamReader reader = next(reader("<r a='1'>text</r>"), CHARACTERS);
+
+    assertThrows(IllegalStateException.class, reader::getAttributeCount);
+  }
+
+  @Test
+  void defaultNamespaceUndeclaration() throws XMLStreamException {
+    final EventStreamReader reader =
+        next(next(reader("<r xmlns='urn:d'><a xmlns=''/></r>"), START_ELEMENT), START_ELEMENT);
+
+    assertNull(reader.getNamespaceURI());
+    assertEquals(1, reader.getNamespaceCount());
+    assertNull(reader.getNamespacePrefix(0));
+    assertEquals("", reader.getNamespaceURI(0));
+    assertEquals("", reader.getNamespaceURI(""));
+    assertNull(reader.getNamespaceContext().getPrefix("urn:d"));
+
+    next(next(reader, END_ELEMENT), END_ELEMENT);
+
+    assertEquals("urn:d", reader.getNamespaceURI(""));
+    assertEquals("", reader.getNamespaceContext().getPrefix("urn:d"));
+  }
+
+  @Test
+  void endElementReportsNamespacesGoingOutOfScope() throws XMLStreamException {
+    final EventStreamReader reader = next(reader("<r><a xmlns:p='urn:p'/></r>"), END_ELEMENT);
+
+    assertEquals("a", reader.getLocalName());
+    assertEquals(1, reader.getNamespaceCount());
+    assertEquals("p", reader.getNamespacePrefix(0));
+    assertEquals("urn:p", reader.getNamespaceURI("p"));
+
+    next(reader, END_ELEMENT);
+
+    assertEquals("r", reader.getLocalName());
+    assertEquals(0, reader.getNamespaceCount());
+    assertNull(reader.getNamespaceURI("p"));
+  }
+
+  @Test
+  void shadowedPrefix() throws XMLStreamException {
+    final EventStreamReader reader =
+        next(
+            next(reader("<r xmlns:p='urn:1'><a xmlns:p='urn:2'/><b/></r>"), START_ELEMENT),
+            START_ELEMENT);
+
+    assertEquals("a", reader.getLocalName());
+    assertEquals("urn:2", reader.getNamespaceURI("p"));
+    assertEquals("p", reader.getNamespaceContext().getPrefix("urn:2"));
+    assertNull(reader.getNamespaceContext().getPrefix("urn:1"));
+
+    next(reader, START_ELEMENT);
+
+    assertEquals("b", reader.getLocalName());
+    assertEquals("urn:1", reader.getNamespaceURI("p"));
+    assertEquals("p", reader.getNamespaceContext().getPrefix("urn:1"));
+    assertNull(reader.getNamespaceContext().getPrefix("urn:2"));
+  }
+
+  @Test
+  void textCharacters() throws XMLStreamException {
+    final EventStreamReader reader = next(reader("<r>hello</r>"), CHARACTERS);
+    final char[] target = new char[3];
+
+    assertEquals(
+        "hello",
+        new String(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength()));
+    assertEquals(3, reader.getTextCharacters(1, target, 0, 3));
+    assertEquals("ell", new String(target));
+  }
+}
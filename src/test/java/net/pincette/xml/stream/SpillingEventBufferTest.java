@@ -0,0 +1,129 @@
+package net.pincette.xml.stream;
+
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.util.Collections.emptyIterator;
+import static net.pincette.util.StreamUtil.stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartDocument;
+import javax.xml.stream.events.XMLEvent;
+import org.junit.jupiter.api.Test;
+
+class SpillingEventBufferTest {
+  private static final String XML =
+      "<?xml version='1.0' encoding='ISO-8859-1' standalone='yes'?>"
+          + "<r xmlns='urn:d' xmlns:p='urn:p'><!--c--><?pi data?>"
+          + "<p:a p:x='1' y='2'>text<![CDATA[<cdata>]]></p:a>"
+          + "<b xmlns:q='urn:q'><q:c/></b></r>";
+
+  private static String describe(final XMLEvent event) {
+    return switch (event.getEventType()) {
+      case XMLEvent.START_DOCUMENT -> {
+        final StartDocument start = (StartDocument) event;
+
+        yield "start "
+            + start.getCharacterEncodingScheme()
+            + " "
+            + start.encodingSet()
+            + " "
+            + start.getVersion()
+            + " "
+            + start.isStandalone()
+            + " "
+            + start.standaloneSet();
+      }
+      case XMLEvent.START_ELEMENT ->
+          "<"
+              + name(event.asStartElement().getName())
+              + namespaces(stream(event.asStartElement().getNamespaces()).toList())
+              + stream(event.asStartElement().getAttributes())
+                  .map(a -> (Attribute) a)
+                  .map(a -> " " + name(a.getName()) + "=" + a.getValue())
+                  .toList();
+      case XMLEvent.END_ELEMENT ->
+          "</"
+              + name(event.asEndElement().getName())
+              + namespaces(stream(event.asEndElement().getNamespaces()).toList());
+      default -> event.getEventType() + " " + event;
+    };
+  }
+
+  private static String name(final QName name) {
+    return name.getPrefix() + ":" + name.getNamespaceURI() + ":" + name.getLocalPart();
+  }
+
+  private static List<String> namespaces(final List<?> namespaces) {
+    return namespaces.stream()
+        .map(n -> ((Namespace) n).getPrefix() + "=" + ((Namespace) n).getNamespaceURI())
+        .toList();
+  }
+
+  private static List<String> read(final XMLEventReader reader) throws Exception {
+    final List<String> result = new ArrayList<>();
+
+    while (reader.hasNext()) {
+      result.add(describe(reader.nextEvent()));
+    }
+
+    reader.close();
+
+    return result;
+  }
+
+  private static XMLEventReader reader() throws Exception {
+    return XMLInputFactory.newFactory()
+        .createXMLEventReader(new ByteArrayInputStream(XML.getBytes(ISO_8859_1)));
+  }
+
+  private static List<String> roundTrip(final XMLEventReader reader, final long threshold)
+      throws Exception {
+    final SpillingEventBuffer buffer = new SpillingEventBuffer(threshold);
+
+    while (reader.hasNext()) {
+      buffer.add(reader.nextEvent());
+    }
+
+    buffer.close();
+
+    return read(buffer.reader());
+  }
+
+  @Test
+  void endElementNamespaces() throws Exception {
+    final XMLEventFactory factory = XMLEventFactory.newFactory();
+    final List<XMLEvent> events =
+        List.of(
+            factory.createStartDocument(),
+            factory.createStartElement(
+                "",
+                "urn:d",
+                "b",
+                emptyIterator(),
+                List.of(factory.createNamespace("q", "urn:q")).iterator()),
+            new MutableEndElement().setName("", "urn:d", "b").addNamespace("q", "urn:q"),
+            factory.createEndDocument());
+    final List<String> expected = roundTrip(new ListEventReader(events), Long.MAX_VALUE);
+
+    assertTrue(expected.contains("</:urn:d:b[q=urn:q]"));
+    assertEquals(expected, roundTrip(new ListEventReader(events), 0));
+  }
+
+  @Test
+  void staxEvents() throws Exception {
+    final List<String> expected = read(reader());
+
+    assertTrue(expected.get(0).startsWith("start ISO-8859-1 true 1.0 true true"));
+    assertEquals(expected, roundTrip(reader(), Long.MAX_VALUE));
+    assertEquals(expected, roundTrip(reader(), 0));
+  }
+}
@@ -0,0 +1,77 @@
+package net.pincette.xml.stream;
+
+import static net.pincette.util.StreamUtil.stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.List;
+import javax.xml.namespace.QName;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.Namespace;
+import javax.xml.stream.events.StartElement;
+import org.junit.jupiter.api.Test;
+
+class StartElementEditorTest {
+  private static List<String> attributes(final StartElement event) {
+    return stream(event.getAttributes())
+        .map(a -> (Attribute) a)
+        .map(a -> a.getName().getLocalPart() + "=" + a.getValue())
+        .toList();
+  }
+
+  private static MutableStartElement event() {
+    return new MutableStartElement()
+        .setName("", "urn:d", "a")
+        .addAttribute("", "", "x", "1")
+        .addNamespace("p", "urn:p");
+  }
+
+  private static List<String> namespaces(final StartElement event) {
+    return stream(event.getNamespaces())
+        .map(n -> (Namespace) n)
+        .map(n -> n.getPrefix() + "=" + n.getNamespaceURI())
+        .toList();
+  }
+
+  @Test
+  void applyInPlace() {
+    final MutableStartElement event = event();
+
+    assertSame(
+        event,
+        new StartElementEditor()
+            .setAttribute(new QName("y"), "2")
+            .removeNamespace("p")
+            .apply(event));
+    assertEquals(List.of("x=1", "y=2"), attributes(event));
+    assertEquals(List.of(), namespaces(event));
+  }
+
+  @Test
+  void applyToCopy() {
+    final MutableStartElement event = event();
+    final StartElement copy =
+        new StartElementEditor()
+            .setAttribute(new QName("x"), "2")
+            .setNamespace("q", "urn:q")
+            .applyToCopy(event);
+
+    assertNotSame(event, copy);
+    assertEquals(List.of("x=2"), attributes(copy));
+    assertEquals(List.of("p=urn:p", "q=urn:q"), namespaces(copy));
+    assertEquals(List.of("x=1"), attributes(event));
+    assertEquals(List.of("p=urn:p"), namespaces(event));
+  }
+
+  @Test
+  void helpersLeaveEventAlone() {
+    final MutableStartElement event = event();
+
+    assertEquals(List.of(), attributes(Util.removeAttribute(event, new QName("x"))));
+    assertEquals(List.of("x=1", "y=2"), attributes(Util.setAttribute(event, new QName("y"), "2")));
+    assertEquals(List.of("p=urn:q"), namespaces(Util.setNamespace(event, "p", "urn:q")));
+    assertEquals(List.of("x=1"), attributes(event));
+    assertEquals(List.of("p=urn:p"), namespaces(event));
+  }
+}
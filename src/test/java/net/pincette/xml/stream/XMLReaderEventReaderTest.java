@@ -0,0 +1,127 @@
+package net.pincette.xml.stream;
+
+import static java.time.Duration.ofSeconds;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.XMLEvent;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.XMLFilterImpl;
+
+class XMLReaderEventReaderTest {
+  private static InputSource input(final String xml) {
+    return new InputSource(new StringReader(xml));
+  }
+
+  private static XMLReader parser() throws Exception {
+    final SAXParserFactory factory = SAXParserFactory.newInstance();
+
+    factory.setNamespaceAware(true);
+
+    return factory.newSAXParser().getXMLReader();
+  }
+
+  private static List<String> read(final XMLEventReader reader) throws XMLStreamException {
+    final List<String> result = new ArrayList<>();
+
+    while (reader.hasNext()) {
+      final XMLEvent event = reader.nextEvent();
+
+      if (event.isStartElement()) {
+        result.add("<" + event.asStartElement().getName().getLocalPart() + ">");
+      } else if (event.isCharacters()) {
+        result.add(event.asCharacters().getData());
+      } else if (event.isEndElement()) {
+        result.add("</" + event.asEndElement().getName().getLocalPart() + ">");
+      }
+    }
+
+    return result;
+  }
+
+  @Test
+  void closeStopsParser() throws Exception {
+    final ThreadRecorder parser = new ThreadRecorder(parser());
+    final XMLEventReader reader =
+        new XMLReaderEventReader(parser, input("<r>" + "<a>x</a>".repeat(100000) + "</r>"));
+
+    assertTrue(reader.nextEvent().isStartDocument());
+    reader.close();
+    parser.thread.join(10000);
+    assertFalse(parser.thread.isAlive());
+    assertFalse(reader.hasNext());
+  }
+
+  @Test
+  void error() throws Exception {
+    final XMLEventReader reader =
+        new XMLReaderEventReader(new Failing(parser()), input("<r><a>x</a><fail/></r>"));
+
+    assertTimeoutPreemptively(
+        ofSeconds(10), () -> assertThrows(StackOverflowError.class, () -> read(reader)));
+  }
+
+  @Test
+  void parse() throws Exception {
+    assertEquals(
+        List.of("<r>", "<a>", "x", "</a>", "<b>", "</b>", "</r>"),
+        read(new XMLReaderEventReader(parser(), input("<r><a>x</a><b/></r>"))));
+  }
+
+  @Test
+  void parseError() throws Exception {
+    final XMLEventReader reader = new XMLReaderEventReader(parser(), input("<r><a>x</a></r"));
+
+    assertTrue(reader.nextEvent().isStartDocument());
+    assertEquals("r", reader.nextEvent().asStartElement().getName().getLocalPart());
+    assertThrows(XMLStreamException.class, () -> read(reader));
+  }
+
+  private static class Failing extends XMLFilterImpl {
+    private Failing(final XMLReader parent) {
+      super(parent);
+    }
+
+    @Override
+    public void startElement(
+        final String namespaceURI,
+        final String localName,
+        final String qName,
+        final Attributes atts)
+        throws SAXException {
+      if ("fail".equals(localName)) {
+        throw new StackOverflowError();
+      }
+
+      super.startElement(namespaceURI, localName, qName, atts);
+    }
+  }
+
+  private static class ThreadRecorder extends XMLFilterImpl {
+    private volatile Thread thread;
+
+    private ThreadRecorder(final XMLReader parent) {
+      super(parent);
+    }
+
+    @Override
+    public void parse(final InputSource input) throws IOException, SAXException {
+      thread = Thread.currentThread();
+      super.parse(input);
+    }
+  }
+}